@@ -0,0 +1,100 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jol.info.GraphLayout;
+import ru.yandex.practicum.filmorate.storage.graph.IntAdjacencyStore;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the same like graph in three layouts and prints the retained heap of each one, measured
+ * with JOL, after the trial: a {@code HashSet<Integer>} per film as the storages originally kept it,
+ * a concurrent key set per film, and {@link IntAdjacencyStore}. The score is the build time.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g",
+        "--add-opens=java.base/java.util=ALL-UNNAMED",
+        "--add-opens=java.base/java.util.concurrent=ALL-UNNAMED",
+        "--add-opens=java.base/java.lang=ALL-UNNAMED"})
+@State(Scope.Benchmark)
+public class AdjacencyFootprintBenchmark {
+    @Param({"10000"})
+    int films;
+
+    @Param({"1000000"})
+    int likes;
+
+    private int[] filmIds;
+    private int[] userIds;
+    private Object built;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        Random random = new Random(42);
+        filmIds = new int[likes];
+        userIds = new int[likes];
+        for (int i = 0; i < likes; i++) {
+            filmIds[i] = 1 + random.nextInt(films);
+            userIds[i] = 1 + random.nextInt(likes);
+        }
+    }
+
+    @Benchmark
+    public Object hashSets() {
+        Map<Integer, Set<Integer>> graph = new HashMap<>();
+        for (int i = 0; i < likes; i++) {
+            graph.computeIfAbsent(filmIds[i], id -> new HashSet<>()).add(userIds[i]);
+        }
+        built = graph;
+        return graph;
+    }
+
+    @Benchmark
+    public Object concurrentSets() {
+        Map<Integer, Set<Integer>> graph = new ConcurrentHashMap<>();
+        for (int i = 0; i < likes; i++) {
+            graph.computeIfAbsent(filmIds[i], id -> ConcurrentHashMap.newKeySet()).add(userIds[i]);
+        }
+        built = graph;
+        return graph;
+    }
+
+    @Benchmark
+    public Object intArrays() {
+        IntAdjacencyStore graph = new IntAdjacencyStore();
+        for (int i = 0; i < likes; i++) {
+            graph.add(filmIds[i], userIds[i]);
+        }
+        built = graph;
+        return graph;
+    }
+
+    @TearDown(Level.Trial)
+    public void printFootprint(BenchmarkParams params) {
+        long bytes = GraphLayout.parseInstance(built).totalSize();
+        System.out.printf("%n%s footprint: %,d bytes, %.1f bytes per like%n",
+                params.getBenchmark(), bytes, (double) bytes / likes);
+    }
+}
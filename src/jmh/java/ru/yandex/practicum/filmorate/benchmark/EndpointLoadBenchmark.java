@@ -0,0 +1,155 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.controllers.FilmController;
+import ru.yandex.practicum.filmorate.controllers.UserController;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.KeysetPage;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.nio.file.Path;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the main read endpoints with 64 concurrent clients, calling the controllers of a
+ * running application backed by an H2 file database with 10k users, 10k films and 100k likes.
+ * <p>
+ * {@code defaults} runs with the stock Hikari pool and H2 settings, {@code tuned} with those of
+ * {@code application.properties}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(64)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EndpointLoadBenchmark {
+    private static final Path DATABASE_DIR = Path.of("target", "load-benchmark");
+    private static final int USERS = 10_000;
+    private static final int FILMS = 10_000;
+    private static final int LIKES_PER_USER = 10;
+    private static final int FRIENDS_PER_USER = 20;
+
+    @Param({"defaults", "tuned"})
+    String datasource;
+
+    private ConfigurableApplicationContext context;
+    private FilmController filmController;
+    private UserController userController;
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        FileSystemUtils.deleteRecursively(DATABASE_DIR);
+        String url = "jdbc:h2:file:./" + DATABASE_DIR.resolve("filmorate").toString().replace('\\', '/');
+        List<String> args = new ArrayList<>(List.of("--logging.level.root=WARN"));
+        if (datasource.equals("defaults")) {
+            args.add("--spring.datasource.url=" + url);
+            args.add("--spring.datasource.hikari.maximum-pool-size=10");
+            args.add("--spring.datasource.hikari.minimum-idle=10");
+        } else {
+            args.add("--spring.datasource.url=" + url + ";${filmorate.datasource.h2-options}");
+        }
+        context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args.toArray(new String[0]));
+        seed(context.getBean(JdbcTemplate.class));
+        filmController = context.getBean(FilmController.class);
+        userController = context.getBean(UserController.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public Film getFilm() {
+        return filmController.getFilmById(randomId(FILMS));
+    }
+
+    @Benchmark
+    public KeysetPage<Film> getFilmsPage() {
+        return filmController.getFilms(50, randomId(FILMS - 50));
+    }
+
+    @Benchmark
+    public List<Film> getPopularFilms() {
+        return filmController.getPopularFilms(10, null, null);
+    }
+
+    @Benchmark
+    public List<Film> getPopularFilmsOfGenreAndYear() {
+        return filmController.getPopularFilms(10, randomId(6), 2000 + randomId(20));
+    }
+
+    @Benchmark
+    public List<User> getCommonFriends() {
+        return userController.getCommonFriends(randomId(USERS), randomId(USERS));
+    }
+
+    private static int randomId(int bound) {
+        return 1 + ThreadLocalRandom.current().nextInt(bound);
+    }
+
+    static void seed(JdbcTemplate jdbcTemplate) {
+        Random random = new Random(42);
+        List<Object[]> users = new ArrayList<>();
+        for (int user = 1; user <= USERS; user++) {
+            users.add(new Object[]{"user" + user + "@mail.ru", "user" + user, "User " + user,
+                    Date.valueOf(LocalDate.of(1990, 1, 1))});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO USERS (EMAIL, LOGIN, USER_NAME, BIRTHDAY) VALUES (?, ?, ?, ?)", users);
+
+        List<Object[]> films = new ArrayList<>();
+        List<Object[]> genres = new ArrayList<>();
+        for (int film = 1; film <= FILMS; film++) {
+            films.add(new Object[]{"Film " + film, "Description " + film,
+                    Date.valueOf(LocalDate.of(2000 + film % 20, 1 + film % 12, 1)), 90, 1 + film % 5});
+            genres.add(new Object[]{film, 1 + film % 6});
+            genres.add(new Object[]{film, 1 + (film + 1) % 6});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO FILMS (FILM_NAME, DESCRIPTION, RELEASE_DATE, DURATION, MPA_ID) " +
+                "VALUES (?, ?, ?, ?, ?)", films);
+        jdbcTemplate.batchUpdate("INSERT INTO FILM_GENRE (FILM_ID, GENRE_ID) VALUES (?, ?)", genres);
+
+        List<Object[]> likes = new ArrayList<>();
+        List<Object[]> friends = new ArrayList<>();
+        for (int user = 1; user <= USERS; user++) {
+            int self = user;
+            random.ints(1, FILMS + 1).distinct().limit(LIKES_PER_USER)
+                    .forEach(film -> likes.add(new Object[]{film, self}));
+            random.ints(1, USERS + 1).filter(friend -> friend != self).distinct().limit(FRIENDS_PER_USER)
+                    .forEach(friend -> friends.add(new Object[]{self, friend, "UNFOLLOW"}));
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO FILM_LIKES (FILM_ID, USER_ID) VALUES (?, ?)", likes);
+        jdbcTemplate.batchUpdate("INSERT INTO FRIENDS (USER_ID, FRIEND_ID, STATUS) VALUES (?, ?, ?)", friends);
+        jdbcTemplate.update("UPDATE FILMS AS F SET LIKES_COUNT = " +
+                "(SELECT COUNT(*) FROM FILM_LIKES AS L WHERE L.FILM_ID = F.FILM_ID)");
+    }
+}
@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.storage.graph.LikeCoOccurrence;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency distribution of collaborative-filtering film recommendations (see the p0.99 line of the
+ * output). 1M users put 10M likes on 100k films, popular films drawn far more often, and the
+ * recommended user has {@code likes} likes drawn with the same skew.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class FilmRecommendationBenchmark {
+    private static final int USERS = 1_000_000;
+    private static final int FILMS = 100_000;
+    private static final int LIKES_PER_USER = 10;
+    private static final int USER_ID = 1;
+
+    @Param({"20", "200"})
+    int likes;
+
+    private LikeCoOccurrence likeIndex;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        Random random = new Random(42);
+        likeIndex = new LikeCoOccurrence();
+        // users are added in ascending order, so every film's liker list only ever grows at its tail
+        for (int user = 2; user <= USERS; user++) {
+            for (int i = 0; i < LIKES_PER_USER; i++) {
+                likeIndex.addLike(skewedFilm(random), user);
+            }
+        }
+        int liked = 0;
+        while (liked < likes) {
+            if (likeIndex.addLike(skewedFilm(random), USER_ID)) {
+                liked++;
+            }
+        }
+    }
+
+    @Benchmark
+    public int[] recommend() {
+        return likeIndex.recommend(USER_ID, 10);
+    }
+
+    private static int skewedFilm(Random random) {
+        return 1 + (int) ((FILMS - 1) * Math.pow(random.nextDouble(), 3));
+    }
+}
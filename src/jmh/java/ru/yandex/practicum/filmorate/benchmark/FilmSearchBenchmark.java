@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.storage.film.search.FilmSearchField;
+import ru.yandex.practicum.filmorate.storage.film.search.FilmSearchIndex;
+
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency distribution of film search over 1M films (see the p0.99 line of the output). Titles have
+ * 3 and descriptions 20 words drawn with a Zipf-like skew from 50k Latin and Cyrillic words, and
+ * every film has up to 100 likes.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class FilmSearchBenchmark {
+    private static final int FILMS = 1_000_000;
+    private static final int WORDS = 50_000;
+    private static final String[] LATIN = {"ka", "lo", "mi", "ne", "ru", "sa", "to", "vi"};
+    private static final String[] CYRILLIC = {"ба", "ве", "ги", "до", "жу", "за", "ки", "ло"};
+    private static final Set<FilmSearchField> FIELDS = EnumSet.allOf(FilmSearchField.class);
+
+    /**
+     * frequent: one of the 10 most common words; rare: a word of rank ~10k; twoWords: both of them;
+     * prefix: the first two letters of a common word.
+     */
+    @Param({"frequent", "rare", "twoWords", "prefix"})
+    String queryKind;
+
+    private FilmSearchIndex index;
+    private int[] likes;
+    private String query;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        Random random = new Random(42);
+        index = new FilmSearchIndex();
+        likes = new int[FILMS + 1];
+        for (int film = 1; film <= FILMS; film++) {
+            index.put(film, text(random, 3), text(random, 20));
+            likes[film] = random.nextInt(101);
+        }
+        switch (queryKind) {
+            case "frequent":
+                query = word(3);
+                break;
+            case "rare":
+                query = word(10_001);
+                break;
+            case "twoWords":
+                query = word(3) + " " + word(10_001);
+                break;
+            default:
+                query = word(2).substring(0, 2);
+        }
+    }
+
+    @Benchmark
+    public int[] search() {
+        return index.search(query, FIELDS, 10, filmId -> likes[filmId]);
+    }
+
+    private static String text(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            text.append(word(skewedRank(random))).append(' ');
+        }
+        return text.toString();
+    }
+
+    /**
+     * Rank r is drawn with probability roughly proportional to 1 / r.
+     */
+    private static int skewedRank(Random random) {
+        return (int) Math.min(WORDS - 1, Math.exp(random.nextDouble() * Math.log(WORDS)));
+    }
+
+    private static String word(int rank) {
+        String[] syllables = rank % 2 == 0 ? LATIN : CYRILLIC;
+        StringBuilder word = new StringBuilder();
+        for (int n = rank; n > 0; n /= syllables.length) {
+            word.append(syllables[n % syllables.length]);
+        }
+        return word.toString();
+    }
+}
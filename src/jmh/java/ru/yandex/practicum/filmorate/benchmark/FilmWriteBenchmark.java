@@ -0,0 +1,112 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.dao.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.dao.user.UserDbStorage;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Latency of the like and friendship writes under concurrent load, on an in-memory H2
+ * database behind the real Spring context. Every benchmark thread owns one user, so
+ * like/unlike and friend/unfriend pairs of different threads never collide.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class FilmWriteBenchmark {
+    private static final int FILMS = 1_000;
+    private static final int USERS = 64;
+
+    @State(Scope.Benchmark)
+    public static class Storage {
+        ConfigurableApplicationContext context;
+        FilmDbStorage filmStorage;
+        UserDbStorage userStorage;
+        final AtomicInteger nextUser = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            SpringApplication application = new SpringApplication(FilmorateApplication.class);
+            application.setWebApplicationType(WebApplicationType.NONE);
+            context = application.run("--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                    "--logging.level.root=warn");
+            filmStorage = context.getBean(FilmDbStorage.class);
+            userStorage = context.getBean(UserDbStorage.class);
+            for (int i = 0; i < USERS; i++) {
+                userStorage.createUser(User.builder()
+                        .email("user" + i + "@mail.ru")
+                        .login("user" + i)
+                        .name("User " + i)
+                        .birthday(LocalDate.of(1990, 1, 1))
+                        .build());
+            }
+            for (int i = 0; i < FILMS; i++) {
+                filmStorage.createFilm(Film.builder()
+                        .name("Film " + i)
+                        .description("Description " + i)
+                        .releaseDate(LocalDate.of(2000, 1, 1))
+                        .duration(100)
+                        .mpa(new Mpa(1, null))
+                        .build());
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Caller {
+        int userId;
+
+        @Setup(Level.Trial)
+        public void setUp(Storage storage) {
+            userId = storage.nextUser.incrementAndGet();
+        }
+    }
+
+    @Benchmark
+    public boolean likeAndUnlike(Storage storage, Caller caller) {
+        int filmId = 1 + ThreadLocalRandom.current().nextInt(FILMS);
+        storage.filmStorage.addLike(filmId, caller.userId);
+        return storage.filmStorage.deleteLike(filmId, caller.userId);
+    }
+
+    @Benchmark
+    public void addAndDeleteFriend(Storage storage, Caller caller) {
+        int friendId = 1 + ThreadLocalRandom.current().nextInt(USERS);
+        if (friendId == caller.userId) {
+            friendId = friendId % USERS + 1;
+        }
+        storage.userStorage.addFriend(caller.userId, friendId);
+        storage.userStorage.deleteFriend(caller.userId, friendId);
+    }
+}
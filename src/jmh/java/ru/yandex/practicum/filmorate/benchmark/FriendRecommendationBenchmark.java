@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.storage.graph.FriendOfFriendTraversal;
+import ru.yandex.practicum.filmorate.storage.graph.IntAdjacencyStore;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency distribution of friend-of-friend recommendations (see the p0.99 line of the output).
+ * The graph has 100k users with power-law degrees, a few of them celebrities with up to 50k
+ * friends, and the recommended user has {@code friends} friends drawn with the same skew.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FriendRecommendationBenchmark {
+    private static final int USERS = 100_000;
+    private static final int USER_ID = 1;
+
+    @Param({"500", "5000"})
+    int friends;
+
+    private IntAdjacencyStore graph;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        Random random = new Random(42);
+        graph = new IntAdjacencyStore();
+        for (int user = 2; user <= USERS; user++) {
+            int degree = (int) Math.min(50_000, 5 / Math.pow(1 - random.nextDouble(), 1.2));
+            for (int i = 0; i < degree; i++) {
+                graph.add(user, skewedUser(random));
+            }
+        }
+        while (graph.degree(USER_ID) < friends) {
+            graph.add(USER_ID, skewedUser(random));
+        }
+    }
+
+    @Benchmark
+    public int[] recommend() {
+        return FriendOfFriendTraversal.recommend(graph, USER_ID, 10);
+    }
+
+    /**
+     * Low ids are picked far more often, so they end up as the celebrities everybody follows.
+     */
+    private static int skewedUser(Random random) {
+        return 2 + (int) ((USERS - 2) * Math.pow(random.nextDouble(), 3));
+    }
+}
@@ -0,0 +1,118 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.storage.graph.IntSetIntersection;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Common-friends intersection over friend lists of different shapes:
+ * <ul>
+ *     <li>{@code sparse}: two users with 5k friends each among 10M ids,</li>
+ *     <li>{@code dense}: two users with 5k friends each among 20k ids,</li>
+ *     <li>{@code skewed}: a user with 50 friends and a celebrity with 50k,</li>
+ *     <li>{@code small}: two users with 20 friends each.</li>
+ * </ul>
+ * {@code boxedSets} is the stream-and-contains approach over {@code Set<Integer>}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IntersectionBenchmark {
+    @Param({"sparse", "dense", "skewed", "small"})
+    String shape;
+
+    private int[] first;
+    private int[] second;
+    private Set<Integer> firstSet;
+    private Set<Integer> secondSet;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        Random random = new Random(42);
+        switch (shape) {
+            case "sparse":
+                first = randomSet(random, 5_000, 10_000_000);
+                second = randomSet(random, 5_000, 10_000_000);
+                break;
+            case "dense":
+                first = randomSet(random, 5_000, 20_000);
+                second = randomSet(random, 5_000, 20_000);
+                break;
+            case "skewed":
+                first = randomSet(random, 50, 100_000);
+                second = randomSet(random, 50_000, 100_000);
+                break;
+            default:
+                first = randomSet(random, 20, 1_000);
+                second = randomSet(random, 20, 1_000);
+        }
+        firstSet = toSet(first);
+        secondSet = toSet(second);
+    }
+
+    @Benchmark
+    public List<Integer> boxedSets() {
+        return firstSet.stream()
+                .filter(secondSet::contains)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public int[] merge() {
+        return IntSetIntersection.merge(first, second);
+    }
+
+    @Benchmark
+    public int[] gallop() {
+        return first.length <= second.length
+                ? IntSetIntersection.gallop(first, second)
+                : IntSetIntersection.gallop(second, first);
+    }
+
+    @Benchmark
+    public int[] bitmapAnd() {
+        return IntSetIntersection.bitmapAnd(first, second);
+    }
+
+    @Benchmark
+    public int[] adaptive() {
+        return IntSetIntersection.intersect(first, second);
+    }
+
+    private static int[] randomSet(Random random, int size, int bound) {
+        TreeSet<Integer> set = new TreeSet<>();
+        while (set.size() < size) {
+            set.add(1 + random.nextInt(bound));
+        }
+        return set.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static Set<Integer> toSet(int[] values) {
+        Set<Integer> set = new HashSet<>();
+        for (int value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+}
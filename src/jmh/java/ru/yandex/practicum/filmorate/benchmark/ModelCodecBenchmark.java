@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.yandex.practicum.filmorate.codec.ModelCodec;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Encoding and decoding a page of films as JSON, the way Spring MVC does it, and in the
+ * binary format. Films carry named genres and ratings and 20 likes each out of 10 000 users,
+ * as served by the API. Document sizes are printed once per trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ModelCodecBenchmark {
+    private static final List<String> GENRES = List.of("Комедия", "Драма", "Мультфильм", "Триллер",
+            "Документальный", "Боевик");
+    private static final int USERS = 10_000;
+    private static final int LIKES_PER_FILM = 20;
+    private static final List<String> RATINGS = List.of("G", "PG", "PG-13", "R", "NC-17");
+
+    @Param({"1", "100"})
+    int films;
+
+    // configured as by Spring Boot
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .modulesToInstall(new ParameterNamesModule())
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+    private ObjectReader jsonReader;
+    private List<Film> page;
+    private byte[] json;
+    private byte[] binary;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        jsonReader = objectMapper.readerForListOf(Film.class);
+        page = SyntheticData.films(films).stream()
+                .map(ModelCodecBenchmark::asServed)
+                .collect(Collectors.toList());
+        json = objectMapper.writeValueAsBytes(page);
+        binary = ModelCodec.encodeList(Film.class, page);
+        System.out.printf("%n%d films: JSON %,d bytes, binary %,d bytes%n", films, json.length, binary.length);
+    }
+
+    @Benchmark
+    public byte[] jsonEncode() throws IOException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] binaryEncode() {
+        return ModelCodec.encodeList(Film.class, page);
+    }
+
+    @Benchmark
+    public List<Film> jsonDecode() throws IOException {
+        return jsonReader.readValue(json);
+    }
+
+    @Benchmark
+    public List<Film> binaryDecode() {
+        return ModelCodec.readList(ByteBuffer.wrap(binary), Film.class);
+    }
+
+    private static Film asServed(Film film) {
+        int id = Integer.parseInt(film.getName().substring("Film ".length()));
+        film.setId(id);
+        film.setMpa(new Mpa(film.getMpa().getId(), RATINGS.get(film.getMpa().getId() - 1)));
+        film.setGenres(film.getGenres().stream()
+                .map(genre -> new Genre(genre.getId(), GENRES.get(genre.getId() - 1)))
+                .collect(Collectors.toList()));
+        film.setLikesList(new Random(id).ints(1, USERS + 1)
+                .distinct()
+                .limit(LIKES_PER_FILM)
+                .boxed()
+                .collect(Collectors.toSet()));
+        return film;
+    }
+}
@@ -0,0 +1,105 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.util.FileSystemUtils;
+import ru.yandex.practicum.filmorate.storage.film.impl.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.wal.StorageJournal;
+import ru.yandex.practicum.filmorate.storage.wal.WriteAheadLog;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Time to restore an {@link InMemoryFilmStorage} after a crash, by the number of changes it went
+ * through: from the write-ahead log alone, or from a snapshot taken after the last change.
+ * The changes are {@code changes / 10} films and 9 likes of as many users each. File sizes are
+ * printed once per trial: mvn -Pbenchmark test-compile exec:exec -Dbenchmark="RecoveryBenchmark".
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecoveryBenchmark {
+    private static final long SEED = 42;
+    private static final int LIKES_PER_USER = 9;
+
+    @Param({"10000", "100000", "1000000"})
+    int changes;
+
+    @Param({"log", "snapshot"})
+    String from;
+
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        LoggingSystem.get(getClass().getClassLoader()).setLogLevel(LoggingSystem.ROOT_LOGGER_NAME, LogLevel.WARN);
+        directory = Files.createTempDirectory("recovery-benchmark");
+        StorageJournal journal = journal();
+        InMemoryFilmStorage storage = new InMemoryFilmStorage(journal);
+        storage.recover();
+        int films = changes / (LIKES_PER_USER + 1);
+        SyntheticData.films(films).forEach(storage::createFilm);
+        for (int[] like : new SyntheticData(SEED).likes(films, films, LIKES_PER_USER)) {
+            storage.addLike(like[0], like[1]);
+        }
+        if (from.equals("snapshot")) {
+            journal.checkpoint();
+        }
+        // the journal is left open, as after a crash
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> System.out.printf("%s: %,d bytes%n", file.getFileName(), size(file)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public InMemoryFilmStorage recover() throws IOException {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage(journal());
+        storage.recover();
+        return storage;
+    }
+
+    private StorageJournal journal() {
+        return new StorageJournal(directory, StorageJournal.Durability.ASYNC, Long.MAX_VALUE);
+    }
+
+    /**
+     * The used part of a log: its file is grown in whole chunks.
+     */
+    private static long size(Path file) {
+        try {
+            if (file.getFileName().toString().endsWith(".log")) {
+                long[] used = new long[1];
+                WriteAheadLog.replay(file, record -> used[0] += record.remaining() + 2 * Integer.BYTES);
+                return used[0];
+            }
+            return Files.size(file);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.dao.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.dao.user.UserDbStorage;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.impl.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.storage.user.impl.InMemoryUserStorage;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Latency of the FilmStorage and UserStorage hot paths, in-memory against H2, over
+ * {@link SyntheticData} with {@code size} users and as many films. Every user has 10 likes and
+ * 10 friends. Compare runs of the same seed: mvn -Pbenchmark test-compile exec:exec
+ * -Dbenchmark="StorageBenchmark -p size=10000".
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StorageBenchmark {
+    private static final long SEED = 42;
+    private static final int LIKES_PER_USER = 10;
+    private static final int FRIENDS_PER_USER = 10;
+
+    @Param({"memory", "h2"})
+    String storage;
+
+    @Param({"1000", "10000"})
+    int size;
+
+    private ConfigurableApplicationContext context;
+    private FilmStorage filmStorage;
+    private UserStorage userStorage;
+    /**
+     * A user without likes, so every like it adds is a real insert and is deleted right after.
+     */
+    private int likerId;
+    private final AtomicInteger created = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if (storage.equals("memory")) {
+            // no Spring context to apply logging.level, and the storages log every write
+            LoggingSystem.get(getClass().getClassLoader()).setLogLevel(LoggingSystem.ROOT_LOGGER_NAME, LogLevel.WARN);
+            filmStorage = new InMemoryFilmStorage();
+            userStorage = new InMemoryUserStorage();
+        } else {
+            SpringApplication application = new SpringApplication(FilmorateApplication.class);
+            application.setWebApplicationType(WebApplicationType.NONE);
+            context = application.run("--spring.datasource.url=jdbc:h2:mem:storage-benchmark",
+                    "--logging.level.root=warn");
+            filmStorage = context.getBean(FilmDbStorage.class);
+            userStorage = context.getBean(UserDbStorage.class);
+        }
+        seed();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public Film createFilm() {
+        return filmStorage.createFilm(SyntheticData.film(created.incrementAndGet()));
+    }
+
+    @Benchmark
+    public Film getFilmById() {
+        return filmStorage.getFilmById(randomId());
+    }
+
+    @Benchmark
+    public boolean addAndDeleteLike() {
+        int filmId = randomId();
+        filmStorage.addLike(filmId, likerId);
+        return filmStorage.deleteLike(filmId, likerId);
+    }
+
+    @Benchmark
+    public List<Film> getPopularFilms() {
+        return filmStorage.getPopularFilms(10, null, null);
+    }
+
+    @Benchmark
+    public User createUser() {
+        return userStorage.createUser(SyntheticData.user(size + 1 + created.incrementAndGet()));
+    }
+
+    @Benchmark
+    public User getUserById() {
+        return userStorage.getUserById(randomId());
+    }
+
+    @Benchmark
+    public List<User> getCommonFriends() {
+        return userStorage.getCommonFriends(randomId(), randomId());
+    }
+
+    private int randomId() {
+        return 1 + ThreadLocalRandom.current().nextInt(size);
+    }
+
+    private void seed() {
+        SyntheticData data = new SyntheticData(SEED);
+        userStorage.createUsers(SyntheticData.users(size));
+        filmStorage.createFilms(SyntheticData.films(size));
+        for (int[] like : data.likes(size, size, LIKES_PER_USER)) {
+            filmStorage.addLike(like[0], like[1]);
+        }
+        for (int[] friendship : data.friendships(size, FRIENDS_PER_USER)) {
+            userStorage.addFriend(friendship[0], friendship[1]);
+        }
+        likerId = userStorage.createUser(SyntheticData.user(size + 1)).getId();
+    }
+}
@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Reproducible data for benchmarks: the same seed gives the same users, films, likes and
+ * friendships, so runs before and after a change measure the same workload.
+ * <p>
+ * Ids are 1-based in creation order, as both storages assign them. Films are liked with a skew
+ * towards low ids (a few blockbusters, a long tail); friends are drawn uniformly.
+ */
+public class SyntheticData {
+    private final Random random;
+
+    public SyntheticData(long seed) {
+        random = new Random(seed);
+    }
+
+    public static User user(int number) {
+        return User.builder()
+                .email("user" + number + "@mail.ru")
+                .login("user" + number)
+                .name("User " + number)
+                .birthday(LocalDate.of(1970, 1, 1).plusDays(number % 15_000))
+                .build();
+    }
+
+    /**
+     * Films spread over 20 release years, 5 ratings and 6 genres, two genres each.
+     */
+    public static Film film(int number) {
+        List<Genre> genres = new ArrayList<>(List.of(new Genre(1 + number % 6, null),
+                new Genre(1 + (number + 1) % 6, null)));
+        return Film.builder()
+                .name("Film " + number)
+                .description("Description of film " + number)
+                .releaseDate(LocalDate.of(2000 + number % 20, 1 + number % 12, 1))
+                .duration(60 + number % 120)
+                .mpa(new Mpa(1 + number % 5, null))
+                .genres(genres)
+                .build();
+    }
+
+    public static List<User> users(int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int number = 1; number <= count; number++) {
+            users.add(user(number));
+        }
+        return users;
+    }
+
+    public static List<Film> films(int count) {
+        List<Film> films = new ArrayList<>(count);
+        for (int number = 1; number <= count; number++) {
+            films.add(film(number));
+        }
+        return films;
+    }
+
+    /**
+     * @return distinct (film id, user id) pairs, {@code likesPerUser} per user
+     */
+    public List<int[]> likes(int users, int films, int likesPerUser) {
+        List<int[]> likes = new ArrayList<>(users * likesPerUser);
+        for (int user = 1; user <= users; user++) {
+            int userId = user;
+            IntStream.generate(() -> skewedId(films))
+                    .distinct()
+                    .limit(Math.min(likesPerUser, films))
+                    .forEach(filmId -> likes.add(new int[]{filmId, userId}));
+        }
+        return likes;
+    }
+
+    /**
+     * @return distinct (user id, friend id) pairs, {@code friendsPerUser} per user
+     */
+    public List<int[]> friendships(int users, int friendsPerUser) {
+        List<int[]> friendships = new ArrayList<>(users * friendsPerUser);
+        for (int user = 1; user <= users; user++) {
+            int userId = user;
+            random.ints(1, users + 1)
+                    .filter(friendId -> friendId != userId)
+                    .distinct()
+                    .limit(Math.min(friendsPerUser, users - 1))
+                    .forEach(friendId -> friendships.add(new int[]{userId, friendId}));
+        }
+        return friendships;
+    }
+
+    /**
+     * Id in [1, bound], low ids drawn far more often.
+     */
+    public int skewedId(int bound) {
+        return 1 + (int) ((bound - 1) * Math.pow(random.nextDouble(), 3));
+    }
+}
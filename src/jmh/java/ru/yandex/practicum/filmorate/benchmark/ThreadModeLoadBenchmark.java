@@ -0,0 +1,105 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.concurrency.VirtualThreads;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and latency percentiles of HTTP calls to a running server with 400 concurrent
+ * clients, twice the Tomcat worker pool, for {@code filmorate.threads.mode} platform and virtual.
+ * The data is that of {@link EndpointLoadBenchmark}. Any answer but 200, a 503 of the concurrency
+ * limit included, fails the run rather than counting as a fast call.
+ * <p>
+ * The virtual mode needs JDK 21: run with {@code JAVA_HOME} pointing at one.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Threads(400)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ThreadModeLoadBenchmark {
+    private static final Path DATABASE_DIR = Path.of("target", "thread-mode-benchmark");
+
+    @Param({"platform", "virtual"})
+    String threads;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUrl;
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        if (threads.equals("virtual") && !VirtualThreads.isSupported()) {
+            throw new IllegalStateException("Virtual threads need JDK 21, running on " + Runtime.version());
+        }
+        FileSystemUtils.deleteRecursively(DATABASE_DIR);
+        String url = "jdbc:h2:file:./" + DATABASE_DIR.resolve("filmorate").toString().replace('\\', '/');
+        context = new SpringApplicationBuilder(FilmorateApplication.class).run(
+                "--logging.level.root=WARN",
+                "--server.port=0",
+                "--filmorate.threads.mode=" + threads,
+                "--spring.datasource.url=" + url + ";${filmorate.datasource.h2-options}");
+        EndpointLoadBenchmark.seed(context.getBean(JdbcTemplate.class));
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        baseUrl = "http://localhost:" + port;
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public String getFilm() throws Exception {
+        return get("/films/" + (1 + ThreadLocalRandom.current().nextInt(10_000)));
+    }
+
+    @Benchmark
+    public String getPopularFilms() throws Exception {
+        return get("/films/popular?count=10");
+    }
+
+    @Benchmark
+    public String getCommonFriends() throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return get("/users/" + (1 + random.nextInt(10_000)) + "/friends/common/" + (1 + random.nextInt(10_000)));
+    }
+
+    private String get(String path) throws Exception {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + path)).build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(path + " answered " + response.statusCode());
+        }
+        return response.body();
+    }
+}
@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.codec;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class BinaryCodecConfig implements WebMvcConfigurer {
+
+    /**
+     * Added after the default converters, so requests accepting anything still get JSON.
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new BinaryModelHttpMessageConverter());
+    }
+}
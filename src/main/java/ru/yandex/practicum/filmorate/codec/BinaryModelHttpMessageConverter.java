@@ -0,0 +1,109 @@
+package ru.yandex.practicum.filmorate.codec;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reads and writes model objects, and collections of one model type, as
+ * {@code application/x-filmorate-bin} documents of {@link ModelCodec}. JSON stays the default:
+ * clients opt in with the Accept or Content-Type header. Errors have no binary form, so a client
+ * should accept {@code application/json} as well to read them.
+ */
+public class BinaryModelHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+    public static final String MEDIA_TYPE_VALUE = "application/x-filmorate-bin";
+    public static final MediaType MEDIA_TYPE = MediaType.valueOf(MEDIA_TYPE_VALUE);
+    private static final int BUFFER_SIZE = 8192;
+
+    public BinaryModelHttpMessageConverter() {
+        super(MEDIA_TYPE);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return ModelCodec.supports(clazz);
+    }
+
+    /**
+     * Asked with the raw class of a value, so collections have to be let through here and
+     * checked against their element type by {@link #canWrite(Type, Class, MediaType)}.
+     */
+    @Override
+    public List<MediaType> getSupportedMediaTypes(Class<?> clazz) {
+        return supports(clazz) || Collection.class.isAssignableFrom(clazz) ? getSupportedMediaTypes() : List.of();
+    }
+
+    @Override
+    public boolean canRead(Type type, @Nullable Class<?> contextClass, @Nullable MediaType mediaType) {
+        return modelType(type) != null && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(@Nullable Type type, Class<?> clazz, @Nullable MediaType mediaType) {
+        return (type == null ? supports(clazz) : modelType(type) != null) && canWrite(mediaType);
+    }
+
+    @Override
+    public Object read(Type type, @Nullable Class<?> contextClass, HttpInputMessage inputMessage)
+            throws IOException {
+        Class<?> modelType = modelType(type);
+        ByteBuffer body = ByteBuffer.wrap(inputMessage.getBody().readAllBytes());
+        try {
+            if (modelType == ResolvableType.forType(type).resolve()) {
+                return ModelCodec.read(body, modelType);
+            }
+            return ModelCodec.readList(body, modelType);
+        } catch (IllegalArgumentException e) {
+            throw new HttpMessageNotReadableException("Malformed " + MEDIA_TYPE_VALUE + " body: " + e.getMessage(),
+                    e, inputMessage);
+        }
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        return read(clazz, null, inputMessage);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void writeInternal(Object value, @Nullable Type type, HttpOutputMessage outputMessage)
+            throws IOException {
+        BinaryWriter out = new BinaryWriter(outputMessage.getBody(), BUFFER_SIZE);
+        if (value instanceof Collection) {
+            ModelCodec.writeList(out, (Class<Object>) modelType(type), (Collection<Object>) value);
+        } else {
+            ModelCodec.write(out, value);
+        }
+        out.flush();
+    }
+
+    /**
+     * @return the model class of the type or of its collection elements, or {@code null}
+     */
+    @Nullable
+    private static Class<?> modelType(@Nullable Type type) {
+        if (type == null) {
+            return null;
+        }
+        ResolvableType resolvable = ResolvableType.forType(type);
+        Class<?> raw = resolvable.resolve();
+        if (raw != null && ModelCodec.supports(raw)) {
+            return raw;
+        }
+        if (raw != null && Collection.class.isAssignableFrom(raw)) {
+            Class<?> element = resolvable.asCollection().resolveGeneric(0);
+            return element != null && ModelCodec.supports(element) ? element : null;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the primitives written by {@link BinaryWriter} straight from a {@link ByteBuffer},
+ * advancing its position. Nothing is copied but string bytes, which go from the backing array
+ * of a heap buffer into the string directly. Malformed input fails with
+ * {@link IllegalArgumentException}.
+ */
+public class BinaryReader {
+    private final ByteBuffer buffer;
+    private byte[] scratch;
+
+    public BinaryReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    public int readByte() {
+        require(1);
+        return buffer.get() & 0xFF;
+    }
+
+    public int readVarint() {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readByte();
+            value |= (b & 0x7F) << shift;
+            if (b < 0x80) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint at " + buffer.position());
+    }
+
+    public long readVarlong() {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b < 0x80) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint at " + buffer.position());
+    }
+
+    public int readZigZag() {
+        int value = readVarint();
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    public long readZigZagLong() {
+        long value = readVarlong();
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    public String readString() {
+        int length = readVarint() - 1;
+        if (length < 0) {
+            return null;
+        }
+        require(length);
+        int position = buffer.position();
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + position, length, StandardCharsets.UTF_8);
+        } else {
+            if (scratch == null || scratch.length < length) {
+                scratch = new byte[Math.max(length, 64)];
+            }
+            buffer.get(position, scratch, 0, length);
+            value = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+        buffer.position(position + length);
+        return value;
+    }
+
+    /**
+     * Checks a count read from the input against the bytes left, each element taking at least one.
+     */
+    public int readCount() {
+        int count = readVarint();
+        if (count < 0 || count > buffer.remaining()) {
+            throw new IllegalArgumentException("Malformed count " + count + " at " + buffer.position());
+        }
+        return count;
+    }
+
+    public boolean hasRemaining() {
+        return buffer.hasRemaining();
+    }
+
+    private void require(int bytes) {
+        if (bytes > buffer.remaining()) {
+            throw new IllegalArgumentException("Input ends at " + buffer.position() + ", " + bytes +
+                    " more bytes expected");
+        }
+    }
+}
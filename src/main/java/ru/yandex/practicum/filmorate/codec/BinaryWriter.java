@@ -0,0 +1,153 @@
+package ru.yandex.practicum.filmorate.codec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer with the primitives of the binary model format: unsigned LEB128 varints,
+ * zigzag varints for signed values, and strings as a varint of the UTF-8 length plus one
+ * ({@code 0} stands for {@code null}) followed by the bytes.
+ * <p>
+ * With a sink the buffer is written out whenever it fills up, and by {@link #flush()};
+ * without one it grows. Not thread-safe.
+ */
+public class BinaryWriter {
+    private final OutputStream sink;
+    private byte[] buffer;
+    private int position;
+
+    public BinaryWriter() {
+        this(null, 256);
+    }
+
+    public BinaryWriter(OutputStream sink, int bufferSize) {
+        this.sink = sink;
+        this.buffer = new byte[bufferSize];
+    }
+
+    public void writeByte(int value) {
+        ensure(1);
+        buffer[position++] = (byte) value;
+    }
+
+    public void writeVarint(int value) {
+        ensure(5);
+        while ((value & ~0x7F) != 0) {
+            buffer[position++] = (byte) (value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    public void writeVarlong(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) (value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    public void writeZigZag(int value) {
+        writeVarint(value << 1 ^ value >> 31);
+    }
+
+    public void writeZigZag(long value) {
+        writeVarlong(value << 1 ^ value >> 63);
+    }
+
+    public void writeString(String value) {
+        if (value == null) {
+            writeVarint(0);
+            return;
+        }
+        int length = value.length();
+        if (isAscii(value, length)) {
+            writeVarint(length + 1);
+            ensure(length);
+            for (int i = 0; i < length; i++) {
+                buffer[position++] = (byte) value.charAt(i);
+            }
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(bytes.length + 1);
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    public void writeInt(int value) {
+        ensure(4);
+        buffer[position++] = (byte) (value >>> 24);
+        buffer[position++] = (byte) (value >>> 16);
+        buffer[position++] = (byte) (value >>> 8);
+        buffer[position++] = (byte) value;
+    }
+
+    /**
+     * Bytes not yet written to the sink.
+     */
+    public int size() {
+        return position;
+    }
+
+    /**
+     * The buffer itself, valid up to {@link #size()} until the next write.
+     */
+    public byte[] array() {
+        return buffer;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    public void reset() {
+        position = 0;
+    }
+
+    /**
+     * @throws UncheckedIOException if the sink fails
+     */
+    public void flush() {
+        if (sink == null) {
+            return;
+        }
+        try {
+            sink.write(buffer, 0, position);
+            sink.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        position = 0;
+    }
+
+    private void ensure(int bytes) {
+        if (position + bytes <= buffer.length) {
+            return;
+        }
+        if (sink != null && bytes <= buffer.length) {
+            try {
+                sink.write(buffer, 0, position);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            position = 0;
+            return;
+        }
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + bytes));
+    }
+
+    private static boolean isAscii(String value, int length) {
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
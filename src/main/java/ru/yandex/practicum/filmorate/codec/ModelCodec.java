@@ -0,0 +1,157 @@
+package ru.yandex.practicum.filmorate.codec;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Compact binary format of {@link Film}, {@link User}, {@link Genre} and {@link Mpa}, served as
+ * {@code application/x-filmorate-bin} and used by the in-memory storage journals.
+ * <p>
+ * A document is a header, {@code 0xFB}, the format {@link #VERSION} and the type, then one object
+ * or, if the type has the {@link #LIST} bit, a varint count and that many objects sharing one
+ * genre and rating dictionary. Ids and counts are varints, dates zigzag varints of the epoch day,
+ * strings are nullable; see {@link BinaryWriter}. Layouts, optional parts in brackets:
+ * <ul>
+ *     <li>film - id, name, description, flags, [release date], duration (zigzag), [rating],
+ *     [genre count, genres], [likes]</li>
+ *     <li>user - id, email, login, name, flags, [birthday], [friends]</li>
+ *     <li>genre, rating - id, name</li>
+ * </ul>
+ * A genre or rating inside a film is a dictionary reference: {@code 0} followed by the genre or
+ * rating itself the first time, its 1-based index in order of appearance after that. Id sets
+ * such as likes and friends are a count, the smallest id as a zigzag varint, and the gaps
+ * between the following ones in ascending order.
+ * <p>
+ * Readers reject versions newer than their own and flags they do not know.
+ */
+public final class ModelCodec {
+    public static final int VERSION = 1;
+    public static final int LIST = 0x80;
+
+    static final int RELEASE_DATE = 1;
+    static final int MPA = 1 << 1;
+    static final int GENRES = 1 << 2;
+    static final int LIKES = 1 << 3;
+    static final int BIRTHDAY = 1;
+    static final int FRIENDS = 1 << 1;
+
+    private static final int MAGIC = 0xFB;
+    private static final List<Class<?>> TYPES = List.of(Film.class, User.class, Genre.class, Mpa.class);
+
+    private ModelCodec() {
+    }
+
+    public static boolean supports(Class<?> type) {
+        return TYPES.contains(type);
+    }
+
+    public static byte[] encode(Object value) {
+        BinaryWriter out = new BinaryWriter();
+        write(out, value);
+        return out.toByteArray();
+    }
+
+    public static <T> byte[] encodeList(Class<T> type, Collection<? extends T> values) {
+        BinaryWriter out = new BinaryWriter();
+        writeList(out, type, values);
+        return out.toByteArray();
+    }
+
+    public static void write(BinaryWriter out, Object value) {
+        writeHeader(out, typeCode(value.getClass()));
+        writeValue(new ModelEncoder(out), value);
+    }
+
+    public static <T> void writeList(BinaryWriter out, Class<T> type, Collection<? extends T> values) {
+        writeHeader(out, typeCode(type) | LIST);
+        out.writeVarint(values.size());
+        ModelEncoder encoder = new ModelEncoder(out);
+        for (T value : values) {
+            writeValue(encoder, value);
+        }
+    }
+
+    /**
+     * Reads a document holding one object of the type.
+     */
+    public static <T> T read(ByteBuffer buffer, Class<T> type) {
+        BinaryReader in = new BinaryReader(buffer);
+        readHeader(in, typeCode(type));
+        return type.cast(readValue(new ModelDecoder(buffer), type));
+    }
+
+    /**
+     * Reads a document holding a list of objects of the type.
+     */
+    public static <T> List<T> readList(ByteBuffer buffer, Class<T> type) {
+        BinaryReader in = new BinaryReader(buffer);
+        readHeader(in, typeCode(type) | LIST);
+        int count = in.readCount();
+        ModelDecoder decoder = new ModelDecoder(buffer);
+        List<T> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(type.cast(readValue(decoder, type)));
+        }
+        return values;
+    }
+
+    private static void writeHeader(BinaryWriter out, int type) {
+        out.writeByte(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(type);
+    }
+
+    private static void readHeader(BinaryReader in, int expectedType) {
+        if (in.readByte() != MAGIC) {
+            throw new IllegalArgumentException("Not a filmorate binary document");
+        }
+        int version = in.readByte();
+        if (version > VERSION) {
+            throw new IllegalArgumentException("Unsupported format version " + version);
+        }
+        int type = in.readByte();
+        if (type != expectedType) {
+            throw new IllegalArgumentException("Expected type " + expectedType + ", found " + type);
+        }
+    }
+
+    private static int typeCode(Class<?> type) {
+        int index = TYPES.indexOf(type);
+        if (index < 0) {
+            throw new IllegalArgumentException(type.getSimpleName() + " has no binary form");
+        }
+        return index + 1;
+    }
+
+    private static void writeValue(ModelEncoder encoder, Object value) {
+        if (value instanceof Film) {
+            encoder.writeFilm((Film) value);
+        } else if (value instanceof User) {
+            encoder.writeUser((User) value);
+        } else if (value instanceof Genre) {
+            encoder.writeGenre((Genre) value);
+        } else {
+            encoder.writeMpa((Mpa) value);
+        }
+    }
+
+    private static Object readValue(ModelDecoder decoder, Class<?> type) {
+        if (type == Film.class) {
+            return decoder.readFilm();
+        }
+        if (type == User.class) {
+            return decoder.readUser();
+        }
+        if (type == Genre.class) {
+            return decoder.readGenre();
+        }
+        return decoder.readMpa();
+    }
+}
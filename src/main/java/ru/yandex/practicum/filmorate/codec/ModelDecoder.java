@@ -0,0 +1,138 @@
+package ru.yandex.practicum.filmorate.codec;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads model objects written by a {@link ModelEncoder} straight from a buffer, advancing its
+ * position. Every object gets its own genre and rating instances, so decoded objects can be
+ * changed independently. Malformed input fails with {@link IllegalArgumentException}.
+ */
+public class ModelDecoder {
+    private final BinaryReader in;
+    private final List<Genre> genres = new ArrayList<>();
+    private final List<Mpa> ratings = new ArrayList<>();
+
+    public ModelDecoder(ByteBuffer buffer) {
+        this.in = new BinaryReader(buffer);
+    }
+
+    public Film readFilm() {
+        Film film = Film.builder()
+                .id(in.readVarint())
+                .name(in.readString())
+                .description(in.readString())
+                .build();
+        int flags = readFlags(ModelCodec.RELEASE_DATE | ModelCodec.MPA | ModelCodec.GENRES | ModelCodec.LIKES);
+        if ((flags & ModelCodec.RELEASE_DATE) != 0) {
+            film.setReleaseDate(LocalDate.ofEpochDay(in.readZigZagLong()));
+        }
+        film.setDuration(in.readZigZag());
+        if ((flags & ModelCodec.MPA) != 0) {
+            Mpa mpa = readRatingReference();
+            film.setMpa(new Mpa(mpa.getId(), mpa.getName()));
+        }
+        if ((flags & ModelCodec.GENRES) != 0) {
+            int count = in.readCount();
+            List<Genre> filmGenres = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Genre genre = readGenreReference();
+                filmGenres.add(new Genre(genre.getId(), genre.getName()));
+            }
+            film.setGenres(filmGenres);
+        }
+        if ((flags & ModelCodec.LIKES) != 0) {
+            film.setLikesList(toSet(readIds()));
+        }
+        return film;
+    }
+
+    public User readUser() {
+        User user = User.builder()
+                .id(in.readVarint())
+                .email(in.readString())
+                .login(in.readString())
+                .name(in.readString())
+                .build();
+        int flags = readFlags(ModelCodec.BIRTHDAY | ModelCodec.FRIENDS);
+        if ((flags & ModelCodec.BIRTHDAY) != 0) {
+            user.setBirthday(LocalDate.ofEpochDay(in.readZigZagLong()));
+        }
+        if ((flags & ModelCodec.FRIENDS) != 0) {
+            user.setFriendsList(toSet(readIds()));
+        }
+        return user;
+    }
+
+    public Genre readGenre() {
+        return new Genre(in.readVarint(), in.readString());
+    }
+
+    public Mpa readMpa() {
+        return new Mpa(in.readVarint(), in.readString());
+    }
+
+    public int[] readIds() {
+        int[] ids = new int[in.readCount()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i == 0 ? in.readZigZag() : ids[i - 1] + in.readVarint();
+        }
+        return ids;
+    }
+
+    private int readFlags(int known) {
+        int flags = in.readByte();
+        if ((flags & ~known) != 0) {
+            throw new IllegalArgumentException("Unknown flags " + Integer.toBinaryString(flags));
+        }
+        return flags;
+    }
+
+    private Mpa readRatingReference() {
+        int index = readDictionaryIndex(ratings.size());
+        if (index >= 0) {
+            return ratings.get(index);
+        }
+        Mpa mpa = readMpa();
+        ratings.add(mpa);
+        return mpa;
+    }
+
+    private Genre readGenreReference() {
+        int index = readDictionaryIndex(genres.size());
+        if (index >= 0) {
+            return genres.get(index);
+        }
+        Genre genre = readGenre();
+        genres.add(genre);
+        return genre;
+    }
+
+    /**
+     * @return the index of an entry already read, or -1 if a new entry follows
+     */
+    private int readDictionaryIndex(int size) {
+        int reference = in.readVarint();
+        if (reference < 0 || reference > size) {
+            throw new IllegalArgumentException("Unknown dictionary entry " + reference);
+        }
+        return reference - 1;
+    }
+
+    private static Set<Integer> toSet(int[] ids) {
+        Set<Integer> set = new HashSet<>(ids.length * 4 / 3 + 1);
+        for (int id : ids) {
+            set.add(id);
+        }
+        return set;
+    }
+}
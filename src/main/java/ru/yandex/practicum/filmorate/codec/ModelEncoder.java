@@ -0,0 +1,137 @@
+package ru.yandex.practicum.filmorate.codec;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes model objects in the binary format read by {@link ModelDecoder}, without a header.
+ * Genres and ratings are dictionary-encoded: the first use of an (id, name) pair writes it in
+ * full and adds it to the dictionary, later uses write its index. The dictionaries live as long
+ * as the encoder, so a decoder must read the same sequence of objects with one instance.
+ *
+ * @see ModelCodec for the layout of every type
+ */
+public class ModelEncoder {
+    private final BinaryWriter out;
+    private final Map<Map.Entry<Integer, String>, Integer> genres = new HashMap<>();
+    private final Map<Map.Entry<Integer, String>, Integer> ratings = new HashMap<>();
+
+    public ModelEncoder(BinaryWriter out) {
+        this.out = out;
+    }
+
+    public void writeFilm(Film film) {
+        out.writeVarint(film.getId());
+        out.writeString(film.getName());
+        out.writeString(film.getDescription());
+        List<Genre> filmGenres = film.getGenres();
+        Collection<Integer> likes = film.getLikesList();
+        int flags = (film.getReleaseDate() != null ? ModelCodec.RELEASE_DATE : 0)
+                | (film.getMpa() != null ? ModelCodec.MPA : 0)
+                | (filmGenres != null ? ModelCodec.GENRES : 0)
+                | (!likes.isEmpty() ? ModelCodec.LIKES : 0);
+        out.writeByte(flags);
+        if (film.getReleaseDate() != null) {
+            out.writeZigZag(film.getReleaseDate().toEpochDay());
+        }
+        out.writeZigZag(film.getDuration());
+        if (film.getMpa() != null) {
+            writeReference(ratings, film.getMpa().getId(), film.getMpa().getName());
+        }
+        if (filmGenres != null) {
+            out.writeVarint(filmGenres.size());
+            for (Genre genre : filmGenres) {
+                writeReference(genres, genre.getId(), genre.getName());
+            }
+        }
+        if (!likes.isEmpty()) {
+            writeIds(likes);
+        }
+    }
+
+    public void writeUser(User user) {
+        out.writeVarint(user.getId());
+        out.writeString(user.getEmail());
+        out.writeString(user.getLogin());
+        out.writeString(user.getName());
+        Collection<Integer> friends = user.getFriendsList();
+        int flags = (user.getBirthday() != null ? ModelCodec.BIRTHDAY : 0)
+                | (!friends.isEmpty() ? ModelCodec.FRIENDS : 0);
+        out.writeByte(flags);
+        if (user.getBirthday() != null) {
+            out.writeZigZag(user.getBirthday().toEpochDay());
+        }
+        if (!friends.isEmpty()) {
+            writeIds(friends);
+        }
+    }
+
+    public void writeGenre(Genre genre) {
+        out.writeVarint(genre.getId());
+        out.writeString(genre.getName());
+    }
+
+    public void writeMpa(Mpa mpa) {
+        out.writeVarint(mpa.getId());
+        out.writeString(mpa.getName());
+    }
+
+    /**
+     * Writes ids ascending as the first one and the gaps to the next ones, which stay short
+     * whatever the ids are.
+     */
+    public void writeIds(int[] ids) {
+        for (int i = 1; i < ids.length; i++) {
+            if (ids[i] < ids[i - 1]) {
+                int[] sorted = ids.clone();
+                Arrays.sort(sorted);
+                writeSortedIds(sorted);
+                return;
+            }
+        }
+        writeSortedIds(ids);
+    }
+
+    public void writeIds(Collection<Integer> ids) {
+        int[] sorted = new int[ids.size()];
+        int count = 0;
+        for (int id : ids) {
+            sorted[count++] = id;
+        }
+        Arrays.sort(sorted);
+        writeSortedIds(sorted);
+    }
+
+    private void writeSortedIds(int[] ids) {
+        out.writeVarint(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            if (i == 0) {
+                out.writeZigZag(ids[0]);
+            } else {
+                out.writeVarint(ids[i] - ids[i - 1]);
+            }
+        }
+    }
+
+    private void writeReference(Map<Map.Entry<Integer, String>, Integer> dictionary, int id, String name) {
+        Map.Entry<Integer, String> key = new AbstractMap.SimpleImmutableEntry<>(id, name);
+        Integer index = dictionary.get(key);
+        if (index != null) {
+            out.writeVarint(index + 1);
+            return;
+        }
+        dictionary.put(key, dictionary.size());
+        out.writeVarint(0);
+        out.writeVarint(id);
+        out.writeString(name);
+    }
+}
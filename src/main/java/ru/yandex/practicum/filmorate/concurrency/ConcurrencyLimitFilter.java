@@ -0,0 +1,116 @@
+package ru.yandex.practicum.filmorate.concurrency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.yandex.practicum.filmorate.metrics.Counter;
+import ru.yandex.practicum.filmorate.metrics.MetricsRegistry;
+import ru.yandex.practicum.filmorate.model.ErrorResponse;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lets at most {@code limit} requests run at once and queues the rest for up to {@code timeout},
+ * then answers 503. With virtual threads nothing else bounds concurrency, and thousands of
+ * requests queueing inside the connection pool would all time out there at once; sized to the
+ * pool, the filter keeps H2 busy without a stampede.
+ * <p>
+ * A streamed response keeps its permit until the async dispatch completes: it holds a connection
+ * until the last row is written.
+ */
+@Slf4j
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+    private final Semaphore permits;
+    private final long timeoutNanos;
+    private final ObjectMapper objectMapper;
+    private final Counter rejected;
+
+    public ConcurrencyLimitFilter(int limit, Duration timeout, ObjectMapper objectMapper,
+                                  MetricsRegistry metricsRegistry) {
+        this.permits = new Semaphore(limit, true);
+        this.timeoutNanos = timeout.toNanos();
+        this.objectMapper = objectMapper;
+        metricsRegistry.gauge("filmorate_request_limit_available", "Free request permits",
+                permits::availablePermits);
+        metricsRegistry.gauge("filmorate_request_limit_waiting", "Requests waiting for a permit",
+                permits::getQueueLength);
+        rejected = metricsRegistry.counter("filmorate_request_limit_rejected_total",
+                "Requests rejected after waiting for a permit");
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().equals("/metrics");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!acquire()) {
+            reject(response);
+            return;
+        }
+        boolean released = true;
+        try {
+            chain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleasingListener());
+                released = false;
+            }
+        } finally {
+            if (released) {
+                permits.release();
+            }
+        }
+    }
+
+    private boolean acquire() {
+        try {
+            return permits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        rejected.increment();
+        log.warn("Request rejected, {} requests are waiting for a permit", permits.getQueueLength());
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader("Retry-After", "1");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ErrorResponse("Too many concurrent requests"));
+    }
+
+    private class ReleasingListener implements AsyncListener {
+        @Override
+        public void onComplete(AsyncEvent event) {
+            // also follows onTimeout and onError
+            permits.release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
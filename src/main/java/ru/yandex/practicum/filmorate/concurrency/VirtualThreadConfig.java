@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.concurrency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import ru.yandex.practicum.filmorate.metrics.MetricsRegistry;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * {@code filmorate.threads.mode=virtual}: Tomcat runs every request, and with it the services and
+ * DAOs, on a new virtual thread, and so do streamed responses. Concurrency is then bounded by
+ * {@link ConcurrencyLimitFilter} instead of the Tomcat thread pool. Needs JDK 21, startup fails
+ * on older ones.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "filmorate.threads.mode", havingValue = "virtual")
+public class VirtualThreadConfig implements WebMvcConfigurer {
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    private final ExecutorService executor = VirtualThreads.newPerTaskExecutor();
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandler() {
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new TaskExecutorAdapter(executor));
+    }
+
+    /**
+     * @param limit requests allowed to run at once, 0 for the connection pool size
+     */
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(
+            @Value("${filmorate.threads.request-limit:0}") int limit,
+            @Value("${filmorate.threads.request-timeout:5s}") Duration timeout,
+            DataSource dataSource, ObjectMapper objectMapper, MetricsRegistry metricsRegistry) {
+        int permits = limit > 0 ? limit : poolSize(dataSource);
+        log.info("Virtual threads on, at most {} concurrent requests", permits);
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration = new FilterRegistrationBean<>(
+                new ConcurrencyLimitFilter(permits, timeout, objectMapper, metricsRegistry));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static int poolSize(DataSource dataSource) {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+            }
+        } catch (SQLException ex) {
+            log.warn("Cannot unwrap the DataSource", ex);
+        }
+        log.warn("DataSource is not a Hikari pool, limiting requests to {}", DEFAULT_POOL_SIZE);
+        return DEFAULT_POOL_SIZE;
+    }
+}
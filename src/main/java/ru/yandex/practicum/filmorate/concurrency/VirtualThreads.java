@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.concurrency;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates virtual-thread executors when the running JDK has them. The build targets Java 17, so
+ * the JDK 21 factory is looked up at runtime instead of being called directly.
+ */
+public final class VirtualThreads {
+    private static final MethodHandle NEW_PER_TASK_EXECUTOR = findFactory();
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isSupported() {
+        return NEW_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Executor that starts a new virtual thread for every task.
+     *
+     * @throws IllegalStateException if the JDK has no virtual threads, or has them only as a preview
+     *                               feature that is not enabled
+     */
+    public static ExecutorService newPerTaskExecutor() {
+        if (NEW_PER_TASK_EXECUTOR == null) {
+            throw new IllegalStateException("Virtual threads need JDK 21 or later, running on " + Runtime.version());
+        }
+        try {
+            return (ExecutorService) NEW_PER_TASK_EXECUTOR.invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Virtual threads are not available on JDK " + Runtime.version(), e);
+        }
+    }
+
+    private static MethodHandle findFactory() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+}
@@ -1,11 +1,17 @@
 package ru.yandex.practicum.filmorate.controllers;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.ImportResult;
+import ru.yandex.practicum.filmorate.model.KeysetPage;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
 import javax.validation.Valid;
+import java.io.InputStream;
 import java.util.Collection;
 import java.util.List;
 
@@ -15,12 +21,24 @@ import java.util.List;
 public class FilmController {
 
     private final FilmService filmService;
+    private final NdjsonStreamer ndjsonStreamer;
 
     @GetMapping
     public Collection<Film> getAllFilms() {
         return filmService.getAllFilms();
     }
 
+    @GetMapping(params = "limit")
+    public KeysetPage<Film> getFilms(@RequestParam Integer limit,
+                                     @RequestParam(defaultValue = "0") int after) {
+        return filmService.getFilms(after, limit);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportFilms() {
+        return ndjsonStreamer.stream(filmService::streamFilms);
+    }
+
     @GetMapping("/{id}")
     public Film getFilmById(@PathVariable int id) {
         return filmService.getFilmById(id);
@@ -31,6 +49,11 @@ public class FilmController {
         return filmService.createFilm(film);
     }
 
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public List<ImportResult> importFilms(InputStream body) {
+        return filmService.importFilms(body);
+    }
+
     @PutMapping
     public Film updateFilm(@Valid @RequestBody Film film) {
         return filmService.updateFilm(film);
@@ -53,8 +76,17 @@ public class FilmController {
         filmService.deleteLike(filmId, userId);
     }
 
+    @GetMapping("/search")
+    public List<Film> searchFilms(@RequestParam String query,
+                                  @RequestParam(defaultValue = "title,description") String by,
+                                  @RequestParam(defaultValue = "10") Integer limit) {
+        return filmService.searchFilms(query, by, limit);
+    }
+
     @GetMapping("/popular")
-    public List<Film> getPopularFilms(@RequestParam(value = "count", defaultValue = "10", required = false) Integer count) {
-        return filmService.getPopularFilms(count);
+    public List<Film> getPopularFilms(@RequestParam(value = "count", defaultValue = "10", required = false) Integer count,
+                                      @RequestParam(required = false) Integer genreId,
+                                      @RequestParam(required = false) Integer year) {
+        return filmService.getPopularFilms(count, genreId, year);
     }
 }
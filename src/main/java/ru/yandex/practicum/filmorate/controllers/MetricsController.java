@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.metrics.MetricsRegistry;
+
+/**
+ * Prometheus scrape endpoint.
+ */
+@RestController
+@RequiredArgsConstructor
+public class MetricsController {
+    private final MetricsRegistry metricsRegistry;
+
+    @GetMapping(value = "/metrics", produces = "text/plain; version=0.0.4; charset=utf-8")
+    public String scrape() {
+        StringBuilder out = new StringBuilder();
+        metricsRegistry.scrape(out);
+        return out.toString();
+    }
+}
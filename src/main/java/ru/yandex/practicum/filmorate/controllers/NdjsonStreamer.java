@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Iterator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Writes a stream of items as newline-delimited JSON, one item per line, without collecting the items first.
+ * The stream is opened on the response thread and closed once the last line is written.
+ */
+@Slf4j
+@Component
+public class NdjsonStreamer {
+    private final ObjectWriter writer;
+
+    public NdjsonStreamer(ObjectMapper objectMapper) {
+        this.writer = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    public <T> ResponseEntity<StreamingResponseBody> stream(Supplier<Stream<T>> items) {
+        StreamingResponseBody body = out -> {
+            int count = 0;
+            try (Stream<T> stream = items.get()) {
+                Iterator<T> iterator = stream.iterator();
+                while (iterator.hasNext()) {
+                    writer.writeValue(out, iterator.next());
+                    out.write('\n');
+                    count++;
+                }
+            }
+            out.flush();
+            log.info("Exported {} items", count);
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+}
@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.reactive.ReactiveJdbc;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import javax.validation.Valid;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+/**
+ * Non-blocking variant of {@link FilmController}: the service calls run on {@link ReactiveJdbc}
+ * threads, and listings are streamed as NDJSON at the pace the client reads them.
+ */
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/reactive/films")
+public class ReactiveFilmController {
+    private final FilmService filmService;
+    private final ReactiveJdbc reactiveJdbc;
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flow.Publisher<Film> getFilms() {
+        return reactiveJdbc.keyset(filmService::getFilms);
+    }
+
+    @GetMapping("/{id}")
+    public CompletableFuture<Film> getFilmById(@PathVariable int id) {
+        return reactiveJdbc.supply(() -> filmService.getFilmById(id));
+    }
+
+    @PostMapping
+    public CompletableFuture<Film> createFilm(@Valid @RequestBody Film film) {
+        return reactiveJdbc.supply(() -> filmService.createFilm(film));
+    }
+
+    @GetMapping("/popular")
+    public CompletableFuture<List<Film>> getPopularFilms(@RequestParam(defaultValue = "10") Integer count,
+                                                         @RequestParam(required = false) Integer genreId,
+                                                         @RequestParam(required = false) Integer year) {
+        return reactiveJdbc.supply(() -> filmService.getPopularFilms(count, genreId, year));
+    }
+}
@@ -0,0 +1,55 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.reactive.ReactiveJdbc;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import javax.validation.Valid;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+/**
+ * Non-blocking variant of {@link UserController}, see {@link ReactiveFilmController}.
+ */
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/reactive/users")
+public class ReactiveUserController {
+    private final UserService userService;
+    private final ReactiveJdbc reactiveJdbc;
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flow.Publisher<User> getUsers() {
+        return reactiveJdbc.keyset(userService::getUsers);
+    }
+
+    @GetMapping("/{id}")
+    public CompletableFuture<User> getUserById(@PathVariable int id) {
+        return reactiveJdbc.supply(() -> userService.getUserById(id));
+    }
+
+    @PostMapping
+    public CompletableFuture<User> createUser(@Valid @RequestBody User user) {
+        return reactiveJdbc.supply(() -> userService.createUser(user));
+    }
+
+    /**
+     * The user is looked up before streaming starts, on the request thread: once the first line
+     * is sent, a missing user could no longer be answered with 404.
+     */
+    @GetMapping(value = "/{id}/friends", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flow.Publisher<User> getFriendList(@PathVariable("id") int userId) {
+        userService.getUserById(userId);
+        return reactiveJdbc.keyset((after, limit) -> userService.getFriendList(userId, after, limit));
+    }
+
+    @GetMapping("/{id}/friends/common/{otherId}")
+    public CompletableFuture<List<User>> getCommonFriends(@PathVariable("id") int userId,
+                                                          @PathVariable("otherId") int friendId) {
+        return reactiveJdbc.supply(() -> userService.getCommonFriends(userId, friendId));
+    }
+}
@@ -1,11 +1,19 @@
 package ru.yandex.practicum.filmorate.controllers;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.ImportResult;
+import ru.yandex.practicum.filmorate.model.KeysetPage;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import javax.validation.Valid;
+import java.io.InputStream;
 import java.util.Collection;
 import java.util.List;
 
@@ -14,17 +22,35 @@ import java.util.List;
 @RequestMapping("/users")
 public class UserController {
     private final UserService userService;
+    private final FilmService filmService;
+    private final NdjsonStreamer ndjsonStreamer;
 
     @GetMapping
     public Collection<User> getUsers() {
         return userService.getUsers();
     }
 
+    @GetMapping(params = "limit")
+    public KeysetPage<User> getUsers(@RequestParam Integer limit,
+                                     @RequestParam(defaultValue = "0") int after) {
+        return userService.getUsers(after, limit);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        return ndjsonStreamer.stream(userService::streamUsers);
+    }
+
     @PostMapping
     public User createUser(@Valid @RequestBody User user) {
         return userService.createUser(user);
     }
 
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public List<ImportResult> importUsers(InputStream body) {
+        return userService.importUsers(body);
+    }
+
     @PutMapping
     public User updateUser(@Valid @RequestBody User user) {
         return userService.updateUser(user);
@@ -57,6 +83,25 @@ public class UserController {
         return userService.getFriendList(userId);
     }
 
+    @GetMapping(value = "/{id}/friends", params = "limit")
+    public KeysetPage<User> getFriendList(@PathVariable("id") int userId,
+                                          @RequestParam Integer limit,
+                                          @RequestParam(defaultValue = "0") int after) {
+        return userService.getFriendList(userId, after, limit);
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public List<User> getRecommendations(@PathVariable("id") int userId,
+                                         @RequestParam(defaultValue = "10") Integer limit) {
+        return userService.getRecommendations(userId, limit);
+    }
+
+    @GetMapping("/{id}/films/recommendations")
+    public List<Film> getFilmRecommendations(@PathVariable("id") int userId,
+                                             @RequestParam(defaultValue = "10") Integer limit) {
+        return filmService.getRecommendations(userId, limit);
+    }
+
     @GetMapping("/{id}/friends/common/{otherId}")
     public List<User> getCommonFriends(@PathVariable("id") int userId,
                                        @PathVariable("otherId") int friendId) {
@@ -2,51 +2,195 @@ package ru.yandex.practicum.filmorate.dao.film;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.exception.IncorrectParameterException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
-import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.LikesCountListener;
+import ru.yandex.practicum.filmorate.storage.film.search.FilmSearchField;
+import ru.yandex.practicum.filmorate.storage.film.search.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.graph.LikeCoOccurrence;
+import ru.yandex.practicum.filmorate.storage.rating.MpaStorage;
 
+import javax.annotation.PostConstruct;
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class FilmDbStorage implements FilmStorage {
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final String POPULAR_SELECT = "SELECT F.* FROM FILMS AS F ";
+    private static final String POPULAR_GENRE_FILTER = "JOIN FILM_GENRE AS FG ON FG.FILM_ID = F.FILM_ID AND FG.GENRE_ID = ? ";
+    // the year is matched as a RELEASE_DATE range, so that FILMS_RELEASE_DATE_IDX applies
+    private static final String POPULAR_YEAR_FILTER = "WHERE F.RELEASE_DATE >= ? AND F.RELEASE_DATE < ? ";
+    private static final String POPULAR_ORDER = "ORDER BY F.LIKES_COUNT DESC, F.FILM_ID LIMIT ?";
+    /**
+     * Popular films queries by filter: none, genre, year, genre and year.
+     */
+    private static final String[] POPULAR_SQL = {
+            POPULAR_SELECT + POPULAR_ORDER,
+            POPULAR_SELECT + POPULAR_GENRE_FILTER + POPULAR_ORDER,
+            POPULAR_SELECT + POPULAR_YEAR_FILTER + POPULAR_ORDER,
+            POPULAR_SELECT + POPULAR_GENRE_FILTER + POPULAR_YEAR_FILTER + POPULAR_ORDER
+    };
+
     private final JdbcTemplate jdbcTemplate;
+    private final GenreStorage genreStorage;
+    private final MpaStorage mpaStorage;
+    private final TransactionTemplate transactionTemplate;
+    private final Optional<LikeWriteBehind> likeWriteBehind;
+    private final LikeCoOccurrence likeIndex = new LikeCoOccurrence();
+    private final FilmSearchIndex searchIndex = new FilmSearchIndex();
+    private final List<LikesCountListener> likesCountListeners = new CopyOnWriteArrayList<>();
+
+    @PostConstruct
+    public void loadIndexes() {
+        String sqlLikes = "SELECT FILM_ID, USER_ID FROM FILM_LIKES";
+        jdbcTemplate.query(sqlLikes, rs -> {
+            likeIndex.addLike(rs.getInt("FILM_ID"), rs.getInt("USER_ID"));
+        });
+        log.info("Like index is loaded");
+
+        String sqlFilms = "SELECT FILM_ID, FILM_NAME, DESCRIPTION FROM FILMS";
+        jdbcTemplate.query(sqlFilms, rs -> {
+            searchIndex.put(rs.getInt("FILM_ID"), rs.getString("FILM_NAME"), rs.getString("DESCRIPTION"));
+        });
+        log.info("Search index is loaded");
+
+        likeWriteBehind.ifPresent(writeBehind -> writeBehind.setLikesCountListener(this::likesCounted));
+    }
 
     @Override
     public Collection<Film> getAllFilms() {
-        String sql = "SELECT * FROM FILMS AS F " +
-                "JOIN MPA AS M ON F.MPA_ID = M.MPA_ID";
-        return jdbcTemplate.query(sql, this::makeFilm);
+        String sql = "SELECT * FROM FILMS";
+        return loadGenres(jdbcTemplate.query(sql, this::makeFilm));
+    }
+
+    /**
+     * Films are read together with their genres through one forward-only cursor ordered by film id,
+     * and consecutive rows of the same film are folded into one {@link Film}. The stream holds
+     * a connection until it is closed.
+     */
+    @Override
+    public Stream<Film> streamFilms() {
+        String sql = "SELECT F.*, FG.GENRE_ID AS FILM_GENRE_ID FROM FILMS AS F " +
+                "LEFT JOIN FILM_GENRE AS FG ON F.FILM_ID = FG.FILM_ID " +
+                "ORDER BY F.FILM_ID, FG.GENRE_ID";
+        Stream<FilmGenreRow> rows = jdbcTemplate.queryForStream(connection -> {
+            PreparedStatement stmt = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(STREAM_FETCH_SIZE);
+            return stmt;
+        }, (rs, rowNum) -> {
+            int genreId = rs.getInt("FILM_GENRE_ID");
+            Genre genre = rs.wasNull() ? null : genreStorage.getById(genreId);
+            return new FilmGenreRow(makeFilm(rs, rowNum), genre);
+        });
+
+        Iterator<FilmGenreRow> iterator = rows.iterator();
+        Spliterator<Film> films = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            private FilmGenreRow next;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super Film> action) {
+                if (next == null && iterator.hasNext()) {
+                    next = iterator.next();
+                }
+                if (next == null) {
+                    return false;
+                }
+                Film film = next.film;
+                film.setGenres(new ArrayList<>());
+                while (next != null && next.film.getId() == film.getId()) {
+                    if (next.genre != null) {
+                        film.getGenres().add(next.genre);
+                    }
+                    next = iterator.hasNext() ? iterator.next() : null;
+                }
+                action.accept(film);
+                return true;
+            }
+        };
+        return StreamSupport.stream(films, false).onClose(rows::close);
+    }
+
+    @Override
+    public List<Film> getFilms(int afterId, int limit) {
+        String sql = "SELECT * FROM FILMS WHERE FILM_ID > ? ORDER BY FILM_ID LIMIT ?";
+        List<Film> films = jdbcTemplate.query(sql, this::makeFilm, afterId, limit);
+        loadGenres(films);
+        return films;
     }
 
     @Override
     public Film getFilmById(int id) {
-        validateFilm(id);
-        String sql =
-                "SELECT FILM_ID, FILM_NAME, DESCRIPTION, RELEASE_DATE, DURATION, M.MPA_ID, M.MPA_NAME FROM FILMS " +
-                        "JOIN MPA M ON M.MPA_ID = FILMS.MPA_ID " +
-                        "WHERE FILM_ID = ?";
-        return jdbcTemplate.queryForObject(sql, this::makeFilm, id);
+        String sql = "SELECT * FROM FILMS WHERE FILM_ID = ?";
+        List<Film> films = jdbcTemplate.query(sql, this::makeFilm, id);
+        if (films.isEmpty()) {
+            throw filmNotFound(id);
+        }
+        Film film = films.get(0);
+        film.setGenres(getFilmGenres(id));
+        return film;
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(List<Integer> ids) {
+        String sql = "SELECT * FROM FILMS WHERE FILM_ID = ANY(?)";
+        Map<Integer, Film> filmsById = new HashMap<>();
+        jdbcTemplate.query(sql, this::makeFilm, new Object[]{ids.toArray(new Integer[0])})
+                .forEach(film -> filmsById.put(film.getId(), film));
+        return loadGenres(ids.stream()
+                .map(filmsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
     }
 
     @Override
+    @Transactional
     public Film createFilm(Film film) {
+        List<Genre> genres = resolveGenres(film.getGenres());
         String sql = "INSERT INTO FILMS(FILM_NAME, DESCRIPTION, RELEASE_DATE, DURATION, MPA_ID) " +
                 "VALUES (?, ?, ?, ?, ?)";
 
@@ -62,61 +206,127 @@ public class FilmDbStorage implements FilmStorage {
         }, keyHolder);
 
         film.setId(Objects.requireNonNull(keyHolder.getKey()).intValue());
-        addGenres(film);
-        film.setGenres(getFilmGenres(film.getId()));
+        insertGenres(film.getId(), genres);
+        film.setGenres(genres);
+        indexFilm(film);
         log.info("Film " + film.getName() + " was created");
         return film;
     }
 
     @Override
+    @Transactional
+    public List<Film> createFilms(List<Film> films) {
+        List<List<Genre>> genres = films.stream()
+                .map(film -> resolveGenres(film.getGenres()))
+                .collect(Collectors.toList());
+        String sql = "INSERT INTO FILMS(FILM_NAME, DESCRIPTION, RELEASE_DATE, DURATION, MPA_ID) " +
+                "VALUES (?, ?, ?, ?, ?)";
+        List<Integer> ids = jdbcTemplate.execute((ConnectionCallback<List<Integer>>) connection -> {
+            try (PreparedStatement stmt = connection.prepareStatement(sql, new String[]{"FILM_ID"})) {
+                for (Film film : films) {
+                    stmt.setString(1, film.getName());
+                    stmt.setString(2, film.getDescription());
+                    stmt.setDate(3, Date.valueOf(film.getReleaseDate()));
+                    stmt.setInt(4, film.getDuration());
+                    stmt.setObject(5, film.getMpa() == null ? null : film.getMpa().getId());
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                List<Integer> keys = new ArrayList<>();
+                try (ResultSet rs = stmt.getGeneratedKeys()) {
+                    while (rs.next()) {
+                        keys.add(rs.getInt(1));
+                    }
+                }
+                return keys;
+            }
+        });
+
+        List<Object[]> genreRows = new ArrayList<>();
+        for (int i = 0; i < films.size(); i++) {
+            Film film = films.get(i);
+            film.setId(Objects.requireNonNull(ids).get(i));
+            film.setGenres(genres.get(i));
+            film.getGenres().forEach(genre -> genreRows.add(new Object[]{film.getId(), genre.getId()}));
+            indexFilm(film);
+        }
+        if (!genreRows.isEmpty()) {
+            String sqlGenres = "INSERT INTO FILM_GENRE (FILM_ID, GENRE_ID) VALUES (?, ?)";
+            jdbcTemplate.batchUpdate(sqlGenres, genreRows);
+        }
+        log.info("{} films were created", films.size());
+        return films;
+    }
+
+    @Override
+    @Transactional
     public Film updateFilm(Film film) {
-        validateFilm(film.getId());
+        List<Genre> genres = resolveGenres(film.getGenres());
         String sql = "UPDATE FILMS SET FILM_NAME = ?, DESCRIPTION = ?, RELEASE_DATE = ?, DURATION = ?, " +
                 "MPA_ID = ? WHERE FILM_ID = ?";
 
-        jdbcTemplate.update(sql,
+        int updated = jdbcTemplate.update(sql,
                 film.getName(),
                 film.getDescription(),
                 film.getReleaseDate(),
                 film.getDuration(),
                 film.getMpa().getId(),
                 film.getId());
-        removeGenres(film.getId());
-        addGenres(film);
-        film.setGenres(getFilmGenres(film.getId()));
+        if (updated == 0) {
+            throw filmNotFound(film.getId());
+        }
+        updateGenres(film.getId(), genres);
+        film.setGenres(genres);
+        indexFilm(film);
         log.info("Film id " + film.getId() + " was updated.");
         return film;
     }
 
     @Override
+    @Transactional
     public void deleteFilmById(int id) {
-        validateFilm(id);
         removeGenres(id);
         String sql = "DELETE FROM FILMS WHERE FILM_ID =?;";
-        jdbcTemplate.update(sql, id);
+        if (jdbcTemplate.update(sql, id) == 0) {
+            throw filmNotFound(id);
+        }
+        afterCommit(() -> {
+            likeIndex.deleteFilm(id);
+            searchIndex.remove(id);
+        });
 
         log.info("Film id " + id + " was deleted.");
     }
 
+    /**
+     * Written behind when {@link LikeWriteBehind} is on: the film and user are checked with one
+     * query and the like is queued. Otherwise it is inserted in a transaction of its own, which
+     * a queued like must not hold while it waits for room or for its flush. That transaction
+     * runs under the film's lock of the like index, so the index follows the commits of a film
+     * in their order.
+     */
     @Override
-    public void addLike(int filmId, int userId) {
-        validateFilm(filmId);
-        validateUser(userId);
-        log.info("User id " + userId + " liked film id " + filmId);
-        String sql = "INSERT INTO FILM_LIKES (FILM_ID, USER_ID) VALUES (?, ?)";
-        jdbcTemplate.update(sql, filmId, userId);
+    public boolean addLike(int filmId, int userId) {
+        if (likeWriteBehind.isPresent()) {
+            validateFilmAndUser(filmId, userId);
+            return likeWriteBehind.get().submit(filmId, userId, true, () -> likeIndex.addLike(filmId, userId));
+        }
+        return likeIndex.locked(filmId,
+                () -> Boolean.TRUE.equals(transactionTemplate.execute(status -> insertLike(filmId, userId))));
     }
 
     @Override
-    public void deleteLike(int filmId, int userId) {
-        validateFilm(filmId);
-        validateUser(userId);
-        String sql = "DELETE FROM FILM_LIKES WHERE FILM_ID = ? AND USER_ID = ?";
-        jdbcTemplate.update(sql, filmId, userId);
+    public boolean deleteLike(int filmId, int userId) {
+        if (likeWriteBehind.isPresent()) {
+            validateFilmAndUser(filmId, userId);
+            return likeWriteBehind.get().submit(filmId, userId, false, () -> likeIndex.deleteLike(filmId, userId));
+        }
+        return likeIndex.locked(filmId,
+                () -> Boolean.TRUE.equals(transactionTemplate.execute(status -> removeLike(filmId, userId))));
     }
 
     @Override
-    public List<Film> getPopularFilms(Integer count) {
+    public List<Film> getPopularFilms(Integer count, Integer genreId, Integer year) {
         if (count == null) {
             log.info("'Count' is null");
             throw new IncorrectParameterException("'Count' is null");
@@ -125,38 +335,181 @@ public class FilmDbStorage implements FilmStorage {
             log.info("'Count' is negative value");
             throw new IncorrectParameterException("'Count' is negative value");
         }
-        String sql = "SELECT F.FILM_ID, F.FILM_NAME, F.DESCRIPTION, F.RELEASE_DATE, F.DURATION," +
-                " F.MPA_ID, M.MPA_ID, M.MPA_NAME " +
+        String sql = POPULAR_SQL[(genreId == null ? 0 : 1) + (year == null ? 0 : 2)];
+        List<Object> args = new ArrayList<>();
+        if (genreId != null) {
+            args.add(genreId);
+        }
+        if (year != null) {
+            args.add(Date.valueOf(LocalDate.of(year, 1, 1)));
+            args.add(Date.valueOf(LocalDate.of(year + 1, 1, 1)));
+        }
+        if (likeWriteBehind.isPresent()) {
+            return likeWriteBehind.get().readWithPendingDeltas(pendingDeltas -> pendingDeltas.isEmpty()
+                    ? getPopularFilms(sql, args, count)
+                    : getPopularFilms(sql, new ArrayList<>(args), count, genreId, year, pendingDeltas));
+        }
+        return getPopularFilms(sql, args, count);
+    }
+
+    private List<Film> getPopularFilms(String sql, List<Object> args, int count) {
+        List<Object> withLimit = new ArrayList<>(args);
+        withLimit.add(count);
+        return loadGenres(jdbcTemplate.query(sql, this::makeFilm, withLimit.toArray()));
+    }
+
+    /**
+     * Popular films with the like changes still queued in {@link LikeWriteBehind} counted in, so a
+     * client reads its own likes. A film losing likes may drop out of the committed top, so one
+     * more row is read per such film; films gaining likes are read by id, whatever their rank.
+     */
+    private List<Film> getPopularFilms(String sql, List<Object> args, int count, Integer genreId, Integer year,
+                                       Map<Integer, Integer> pendingDeltas) {
+        Map<Integer, Integer> likes = new HashMap<>();
+        RowMapper<Film> withLikes = (rs, rowNum) -> {
+            Film film = makeFilm(rs, rowNum);
+            likes.put(film.getId(), rs.getInt("LIKES_COUNT") + pendingDeltas.getOrDefault(film.getId(), 0));
+            return film;
+        };
+        long losing = pendingDeltas.values().stream().filter(delta -> delta < 0).count();
+        args.add(count + losing);
+        List<Film> candidates = new ArrayList<>(jdbcTemplate.query(sql, withLikes, args.toArray()));
+
+        Integer[] gaining = pendingDeltas.entrySet().stream()
+                .filter(entry -> entry.getValue() > 0 && !likes.containsKey(entry.getKey()))
+                .map(Map.Entry::getKey)
+                .toArray(Integer[]::new);
+        if (gaining.length > 0) {
+            String sqlGaining = "SELECT * FROM FILMS WHERE FILM_ID = ANY(?)";
+            candidates.addAll(jdbcTemplate.query(sqlGaining, withLikes, new Object[]{gaining}));
+        }
+        return loadGenres(candidates).stream()
+                .filter(film -> genreId == null || film.getGenres().stream().anyMatch(genre -> genre.getId() == genreId))
+                .filter(film -> year == null || film.getReleaseDate().getYear() == year)
+                .sorted(Comparator.comparing((Film film) -> likes.get(film.getId())).reversed()
+                        .thenComparing(Film::getId))
+                .limit(count)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Film> getRecommendations(int userId, int limit) {
+        int[] filmIds = likeIndex.recommend(userId, limit);
+        if (filmIds.length == 0) {
+            validateUser(userId);
+            return Collections.emptyList();
+        }
+        return getFilmsByIds(Arrays.stream(filmIds).boxed().collect(Collectors.toList()));
+    }
+
+    @Override
+    public List<Film> searchFilms(String query, Set<FilmSearchField> by, int limit) {
+        int[] filmIds = searchIndex.search(query, by, limit, likeIndex::likesCount);
+        return getFilmsByIds(Arrays.stream(filmIds).boxed().collect(Collectors.toList()));
+    }
+
+    @Override
+    public Map<Integer, Integer> getLikesCounts() {
+        String sql = "SELECT F.FILM_ID, COUNT(L.USER_ID) AS LIKES " +
                 "FROM FILMS AS F " +
-                "LEFT JOIN FILM_LIKES L ON F.FILM_ID = L.FILM_ID " +
-                "LEFT JOIN MPA AS M ON F.MPA_ID = M.MPA_ID " +
-                "GROUP BY F.FILM_NAME " +
-                "ORDER BY COUNT(L.USER_ID) " +
-                "DESC LIMIT ?";
+                "LEFT JOIN FILM_LIKES AS L ON F.FILM_ID = L.FILM_ID " +
+                "GROUP BY F.FILM_ID";
+        Map<Integer, Integer> likes = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            likes.put(rs.getInt("FILM_ID"), rs.getInt("LIKES"));
+        });
+        return likes;
+    }
 
-        return jdbcTemplate.query(sql, this::makeFilm, count);
+    @Override
+    public void addLikesCountListener(LikesCountListener listener) {
+        likesCountListeners.add(listener);
     }
 
     private Film makeFilm(ResultSet rs, int rowNum) throws SQLException {
-        Film film = Film.builder()
+        Integer mpaId = rs.getObject("MPA_ID", Integer.class);
+        return Film.builder()
                 .id(rs.getInt("FILM_ID"))
                 .name(rs.getString("FILM_NAME"))
                 .description(rs.getString("DESCRIPTION"))
                 .releaseDate(rs.getDate("RELEASE_DATE").toLocalDate())
                 .duration(rs.getInt("DURATION"))
-                .mpa(new Mpa(rs.getInt("MPA_ID"), rs.getString("MPA_NAME")))
+                .mpa(mpaId == null ? null : mpaStorage.getById(mpaId))
                 .build();
-        film.setGenres(getFilmGenres(film.getId()));
-        return film;
+    }
+
+    /**
+     * Loads genres for the whole list with a single query instead of one query per film. The ids
+     * are bound as one array, so the statement text is the same for any number of films and stays
+     * in H2's per-connection query cache.
+     */
+    private List<Film> loadGenres(List<Film> films) {
+        Map<Integer, Film> filmsById = new HashMap<>();
+        for (Film film : films) {
+            film.setGenres(new ArrayList<>());
+            filmsById.put(film.getId(), film);
+        }
+        if (filmsById.isEmpty()) {
+            return films;
+        }
+        String sql = "SELECT FILM_ID, GENRE_ID FROM FILM_GENRE WHERE FILM_ID = ANY(?) ORDER BY FILM_ID, GENRE_ID";
+        jdbcTemplate.query(sql, rs -> {
+            filmsById.get(rs.getInt("FILM_ID")).getGenres()
+                    .add(genreStorage.getById(rs.getInt("GENRE_ID")));
+        }, new Object[]{filmsById.keySet().toArray(new Integer[0])});
+        return films;
     }
 
     private List<Genre> getFilmGenres(int id) {
-        String sql = "SELECT G.GENRE_ID, G.GENRE_NAME " +
-                "FROM GENRE AS G " +
-                "JOIN FILM_GENRE AS FG ON G.GENRE_ID = FG.GENRE_ID " +
-                "WHERE FG.FILM_ID =?";
-        return jdbcTemplate.query(sql, (rs, rowNum) ->
-                new Genre(rs.getInt("GENRE_ID"), rs.getString("GENRE_NAME")), id);
+        String sql = "SELECT GENRE_ID FROM FILM_GENRE WHERE FILM_ID = ? ORDER BY GENRE_ID";
+        return jdbcTemplate.query(sql, (rs, rowNum) -> genreStorage.getById(rs.getInt("GENRE_ID")), id);
+    }
+
+    private boolean insertLike(int filmId, int userId) {
+        String sql = "INSERT INTO FILM_LIKES (FILM_ID, USER_ID) VALUES (?, ?)";
+        try {
+            jdbcTemplate.update(sql, filmId, userId);
+        } catch (DuplicateKeyException ex) {
+            // already liked: unchanged, as when written behind
+            return false;
+        } catch (DataIntegrityViolationException ex) {
+            validateFilmAndUser(filmId, userId);
+            throw ex;
+        }
+        int likes = updateLikesCount(filmId, 1);
+        afterCommit(() -> {
+            likeIndex.addLike(filmId, userId);
+            likesCounted(filmId, likes);
+        });
+        log.info("User id " + userId + " liked film id " + filmId);
+        return true;
+    }
+
+    private boolean removeLike(int filmId, int userId) {
+        String sql = "DELETE FROM FILM_LIKES WHERE FILM_ID = ? AND USER_ID = ?";
+        if (jdbcTemplate.update(sql, filmId, userId) == 0) {
+            validateFilmAndUser(filmId, userId);
+            return false;
+        }
+        int likes = updateLikesCount(filmId, -1);
+        afterCommit(() -> {
+            likeIndex.deleteLike(filmId, userId);
+            likesCounted(filmId, likes);
+        });
+        return true;
+    }
+
+    /**
+     * @return the new like count, as this transaction will commit it
+     */
+    private int updateLikesCount(int filmId, int delta) {
+        String sql = "SELECT LIKES_COUNT FROM FINAL TABLE " +
+                "(UPDATE FILMS SET LIKES_COUNT = LIKES_COUNT + ? WHERE FILM_ID = ?)";
+        return jdbcTemplate.queryForObject(sql, Integer.class, delta, filmId);
+    }
+
+    private void likesCounted(int filmId, int likes) {
+        likesCountListeners.forEach(listener -> listener.likesCounted(filmId, likes));
     }
 
     private void removeGenres(int id) {
@@ -164,32 +517,113 @@ public class FilmDbStorage implements FilmStorage {
         jdbcTemplate.update(sql, id);
     }
 
-    private void addGenres(Film film) {
-        if (film.getGenres() != null && !film.getGenres().isEmpty()) {
-            for (Genre genre : film.getGenres()) {
-                String sql = "MERGE INTO FILM_GENRE (FILM_ID, GENRE_ID) KEY (FILM_ID,GENRE_ID) VALUES (?, ?)";
-                jdbcTemplate.update(sql, film.getId(), genre.getId());
-            }
+    /**
+     * Deduplicates the requested genres, orders them by id and takes them from the genre dictionary,
+     * so the film can be returned without reading FILM_GENRE back.
+     */
+    private List<Genre> resolveGenres(List<Genre> requested) {
+        if (requested == null) {
+            return new ArrayList<>();
+        }
+        return requested.stream()
+                .map(Genre::getId)
+                .distinct()
+                .sorted()
+                .map(genreStorage::getById)
+                .collect(Collectors.toList());
+    }
+
+    private void insertGenres(int filmId, List<Genre> genres) {
+        if (genres.isEmpty()) {
+            return;
         }
+        String sql = "INSERT INTO FILM_GENRE (FILM_ID, GENRE_ID) VALUES (?, ?)";
+        jdbcTemplate.batchUpdate(sql, genres.stream()
+                .map(genre -> new Object[]{filmId, genre.getId()})
+                .collect(Collectors.toList()));
     }
 
-    private void validateFilm(int filmId) {
-        String checkFilm = "SELECT * FROM FILMS WHERE FILM_ID = ?";
-        SqlRowSet filmRows = jdbcTemplate.queryForRowSet(checkFilm, filmId);
+    /**
+     * Writes only the difference between the stored and the requested genres.
+     */
+    private void updateGenres(int filmId, List<Genre> genres) {
+        String sqlCurrent = "SELECT GENRE_ID FROM FILM_GENRE WHERE FILM_ID = ?";
+        Set<Integer> current = new HashSet<>(jdbcTemplate.queryForList(sqlCurrent, Integer.class, filmId));
+        Set<Integer> requested = genres.stream().map(Genre::getId).collect(Collectors.toSet());
 
-        if (!filmRows.next()) {
-            log.warn("Film id {} is not found", filmId);
-            throw new NotFoundException("Film ID " + filmId + " is not found");
+        List<Object[]> removed = current.stream()
+                .filter(genreId -> !requested.contains(genreId))
+                .map(genreId -> new Object[]{filmId, genreId})
+                .collect(Collectors.toList());
+        if (!removed.isEmpty()) {
+            String sql = "DELETE FROM FILM_GENRE WHERE FILM_ID = ? AND GENRE_ID = ?";
+            jdbcTemplate.batchUpdate(sql, removed);
         }
+        insertGenres(filmId, genres.stream()
+                .filter(genre -> !current.contains(genre.getId()))
+                .collect(Collectors.toList()));
     }
 
-    private void validateUser(int userId) {
-        String checkUser = "SELECT * FROM USERS WHERE USER_ID = ?";
-        SqlRowSet userRows = jdbcTemplate.queryForRowSet(checkUser, userId);
+    /**
+     * Checks both ids with one statement. Only called on the failure path, after an insert or
+     * delete has already told us that something is missing.
+     */
+    private void validateFilmAndUser(int filmId, int userId) {
+        String sql = "SELECT (SELECT COUNT(*) FROM FILMS WHERE FILM_ID = ?) AS FILMS, " +
+                "(SELECT COUNT(*) FROM USERS WHERE USER_ID = ?) AS USERS";
+        SqlRowSet rows = jdbcTemplate.queryForRowSet(sql, filmId, userId);
+        rows.next();
+
+        if (rows.getInt("FILMS") == 0) {
+            throw filmNotFound(filmId);
+        }
+        if (rows.getInt("USERS") == 0) {
+            log.warn("User id {} is not found", userId);
+            throw new NotFoundException("User id " + userId + " is not found");
+        }
+    }
 
-        if (!userRows.next()) {
+    private void validateUser(int userId) {
+        String sql = "SELECT COUNT(*) FROM USERS WHERE USER_ID = ?";
+        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, userId);
+        if (count == null || count == 0) {
             log.warn("User id {} is not found", userId);
             throw new NotFoundException("User id " + userId + " is not found");
         }
     }
+
+    private void indexFilm(Film film) {
+        int id = film.getId();
+        String name = film.getName();
+        String description = film.getDescription();
+        afterCommit(() -> searchIndex.put(id, name, description));
+    }
+
+    /**
+     * The in-memory indexes must not see writes that are rolled back, so inside a transaction
+     * they are updated only once the transaction commits.
+     */
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private NotFoundException filmNotFound(int filmId) {
+        log.warn("Film id {} is not found", filmId);
+        return new NotFoundException("Film ID " + filmId + " is not found");
+    }
+
+    @RequiredArgsConstructor
+    private static class FilmGenreRow {
+        private final Film film;
+        private final Genre genre;
+    }
 }
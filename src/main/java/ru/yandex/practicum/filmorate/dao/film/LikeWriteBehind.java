@@ -0,0 +1,347 @@
+package ru.yandex.practicum.filmorate.dao.film;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.exception.ServiceUnavailableException;
+import ru.yandex.practicum.filmorate.storage.film.LikesCountListener;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind queue of like changes, used by {@link FilmDbStorage} when
+ * {@code filmorate.likes.write-mode=write-behind}.
+ * <p>
+ * Pending changes are kept as one entry per (film, user) pair holding the state to write, so a
+ * like and a later unlike of the same pair cancel out before reaching the database. A flusher
+ * thread writes them to FILM_LIKES in one transaction of JDBC batches, when {@code batch-size}
+ * pairs are pending or every {@code flush-interval}, and then recounts LIKES_COUNT of the films
+ * touched. A like of a film or user deleted meanwhile is dropped by the insert itself.
+ * <p>
+ * At most {@code capacity} pairs may be pending or in flight; beyond that writers wait for a
+ * flush for up to {@code full-queue-timeout} and are then refused. Durability:
+ * <ul>
+ *     <li>{@code async} - a change is acknowledged once queued. Pending changes are flushed on
+ *     shutdown and lost on a crash.</li>
+ *     <li>{@code group-commit} - a change is acknowledged once the flush that carries it has
+ *     committed. Concurrent writers share that one transaction.</li>
+ * </ul>
+ * A failed flush is put back in the queue and retried with the next one, and its writers wait for
+ * that one: they are told of a failure only if the last flush on shutdown fails.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.likes.write-mode", havingValue = "write-behind")
+public class LikeWriteBehind {
+    private static final String INSERT_SQL = "INSERT INTO FILM_LIKES (FILM_ID, USER_ID) " +
+            "SELECT F.FILM_ID, U.USER_ID FROM FILMS AS F JOIN USERS AS U ON U.USER_ID = ? " +
+            "WHERE F.FILM_ID = ? " +
+            "AND NOT EXISTS (SELECT 1 FROM FILM_LIKES AS L WHERE L.FILM_ID = F.FILM_ID AND L.USER_ID = U.USER_ID)";
+    private static final String DELETE_SQL = "DELETE FROM FILM_LIKES WHERE FILM_ID = ? AND USER_ID = ?";
+    private static final String RECOUNT_SQL = "SELECT FILM_ID, LIKES_COUNT FROM FINAL TABLE (UPDATE FILMS AS F " +
+            "SET LIKES_COUNT = (SELECT COUNT(*) FROM FILM_LIKES AS L WHERE L.FILM_ID = F.FILM_ID) " +
+            "WHERE F.FILM_ID = ANY(?))";
+
+    public enum Durability {
+        ASYNC, GROUP_COMMIT
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long fullQueueTimeoutNanos;
+    private final Durability durability;
+    private final Semaphore capacity;
+    // true - like, false - unlike
+    private final Map<Long, Boolean> pending = new ConcurrentHashMap<>();
+    // per film: likes count as seen by readers minus the count in FILMS.LIKES_COUNT
+    private final Map<Integer, Integer> filmDeltas = new ConcurrentHashMap<>();
+    private final Thread flusher = new Thread(this::runFlusher, "like-write-behind");
+    private volatile CompletableFuture<Void> nextFlush = new CompletableFuture<>();
+    // flushes are numbered: committing is set just before a flush commits, committed once its
+    // deltas are taken off again, so the two differ while the database and the deltas overlap
+    private volatile long committingGeneration;
+    private volatile long committedGeneration;
+    private volatile boolean running = true;
+    private volatile LikesCountListener likesCountListener = (filmId, likes) -> {
+    };
+
+    public LikeWriteBehind(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                           @Value("${filmorate.likes.write-behind.batch-size:500}") int batchSize,
+                           @Value("${filmorate.likes.write-behind.flush-interval:100ms}") Duration flushInterval,
+                           @Value("${filmorate.likes.write-behind.capacity:10000}") int capacity,
+                           @Value("${filmorate.likes.write-behind.full-queue-timeout:1s}") Duration fullQueueTimeout,
+                           @Value("${filmorate.likes.write-behind.durability:async}") Durability durability) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.fullQueueTimeoutNanos = fullQueueTimeout.toNanos();
+        this.durability = durability;
+        this.capacity = new Semaphore(capacity);
+    }
+
+    @PostConstruct
+    public void start() {
+        flusher.setDaemon(true);
+        flusher.start();
+        log.info("Likes are written behind, durability {}", durability);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(flusher);
+        flusher.join();
+        flush(true);
+        if (!pending.isEmpty()) {
+            log.error("{} like changes could not be written on shutdown", pending.size());
+        }
+    }
+
+    /**
+     * Queues a like change. {@code apply} changes the in-memory view of likes and tells whether
+     * the state of the pair changed; it runs under the pair's lock, so changes of one pair are
+     * applied and queued in the same order.
+     *
+     * @return {@code false} if the pair already was in the requested state
+     * @throws ServiceUnavailableException if the queue stayed full for {@code full-queue-timeout}
+     */
+    public boolean submit(int filmId, int userId, boolean like, BooleanSupplier apply) {
+        acquireSlot();
+        Submission submission = new Submission();
+        pending.compute(key(filmId, userId), (key, queued) -> {
+            if (!apply.getAsBoolean()) {
+                return queued;
+            }
+            submission.changed = true;
+            addDelta(filmId, like ? 1 : -1);
+            if (queued == null) {
+                submission.freedSlots = 0;
+                return like;
+            }
+            // the queued change is the opposite one: together they leave the database as it is
+            submission.freedSlots = 2;
+            return null;
+        });
+        capacity.release(submission.freedSlots);
+        if (!submission.changed) {
+            return false;
+        }
+        if (pending.size() >= batchSize) {
+            LockSupport.unpark(flusher);
+        }
+        if (durability == Durability.GROUP_COMMIT) {
+            awaitFlush(nextFlush);
+        }
+        return true;
+    }
+
+    /**
+     * Sets the listener told the like counts of the films of each flush once it commits. Flushes
+     * run one at a time, so it hears of them in commit order.
+     */
+    public void setLikesCountListener(LikesCountListener likesCountListener) {
+        this.likesCountListener = likesCountListener;
+    }
+
+    /**
+     * @return per film with changes not yet committed, their sum
+     */
+    public Map<Integer, Integer> pendingDeltas() {
+        return filmDeltas.isEmpty() ? Map.of() : new HashMap<>(filmDeltas);
+    }
+
+    /**
+     * Runs a read of the committed like counts given the {@link #pendingDeltas()} to add to them.
+     * A read that may have seen a flush committed while its deltas were still pending would
+     * count that flush twice, so it is run again.
+     */
+    public <T> T readWithPendingDeltas(Function<Map<Integer, Integer>, T> read) {
+        while (true) {
+            long committed = committedGeneration;
+            T result = read.apply(pendingDeltas());
+            if (committingGeneration == committed) {
+                return result;
+            }
+        }
+    }
+
+    /**
+     * Writes every queued change now. Changes queued while it runs are left for the next flush.
+     */
+    public void flush() {
+        flush(false);
+    }
+
+    /**
+     * @param last whether no flush follows to retry the changes if this one fails
+     */
+    private synchronized void flush(boolean last) {
+        CompletableFuture<Void> flushed = nextFlush;
+        nextFlush = new CompletableFuture<>();
+        List<Long> likes = new ArrayList<>();
+        List<Long> unlikes = new ArrayList<>();
+        for (Map.Entry<Long, Boolean> entry : pending.entrySet()) {
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                (entry.getValue() ? likes : unlikes).add(entry.getKey());
+            }
+        }
+        if (likes.isEmpty() && unlikes.isEmpty()) {
+            flushed.complete(null);
+            return;
+        }
+        long generation = committedGeneration + 1;
+        Map<Integer, Integer> likesCounts;
+        try {
+            likesCounts = transactionTemplate.execute(status -> {
+                Map<Integer, Integer> counts = write(likes, unlikes);
+                committingGeneration = generation;
+                return counts;
+            });
+        } catch (RuntimeException ex) {
+            committedGeneration = generation;
+            log.warn("Flush of {} like changes failed, they are queued again", likes.size() + unlikes.size(), ex);
+            likes.forEach(key -> requeue(key, true));
+            unlikes.forEach(key -> requeue(key, false));
+            if (last) {
+                flushed.completeExceptionally(ex);
+            } else {
+                // the changes are committed, or fail for good, with the flush that retries them
+                nextFlush.whenComplete((result, retryEx) -> complete(flushed, retryEx));
+            }
+            return;
+        }
+        likes.forEach(key -> addDelta(filmId(key), -1));
+        unlikes.forEach(key -> addDelta(filmId(key), 1));
+        committedGeneration = generation;
+        capacity.release(likes.size() + unlikes.size());
+        likesCounts.forEach(likesCountListener::likesCounted);
+        flushed.complete(null);
+        log.debug("Flushed {} likes and {} unlikes", likes.size(), unlikes.size());
+    }
+
+    /**
+     * @return the new like counts of the films touched
+     */
+    private Map<Integer, Integer> write(List<Long> likes, List<Long> unlikes) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, likes.stream()
+                .map(key -> new Object[]{userId(key), filmId(key)})
+                .collect(Collectors.toList()));
+        jdbcTemplate.batchUpdate(DELETE_SQL, unlikes.stream()
+                .map(key -> new Object[]{filmId(key), userId(key)})
+                .collect(Collectors.toList()));
+        Set<Integer> filmIds = new HashSet<>();
+        likes.forEach(key -> filmIds.add(filmId(key)));
+        unlikes.forEach(key -> filmIds.add(filmId(key)));
+        Map<Integer, Integer> likesCounts = new HashMap<>();
+        jdbcTemplate.query(RECOUNT_SQL, rs -> {
+            likesCounts.put(rs.getInt("FILM_ID"), rs.getInt("LIKES_COUNT"));
+        }, new Object[]{filmIds.toArray(new Integer[0])});
+        return likesCounts;
+    }
+
+    /**
+     * Puts a change of a failed flush back. A change of the same pair queued since then was
+     * made on top of it, so it is the opposite one and both cancel out.
+     */
+    private void requeue(long key, boolean like) {
+        Submission submission = new Submission();
+        pending.compute(key, (k, newer) -> {
+            if (newer == null) {
+                return like;
+            }
+            submission.freedSlots = 2;
+            return null;
+        });
+        capacity.release(submission.freedSlots);
+    }
+
+    private void runFlusher() {
+        while (running) {
+            LockSupport.parkNanos(this, flushIntervalNanos);
+            try {
+                flush();
+            } catch (RuntimeException ex) {
+                log.error("Like flusher failed", ex);
+            }
+        }
+    }
+
+    private void acquireSlot() {
+        if (capacity.tryAcquire()) {
+            return;
+        }
+        LockSupport.unpark(flusher);
+        try {
+            if (capacity.tryAcquire(fullQueueTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.warn("Like queue is full");
+        throw new ServiceUnavailableException("Too many pending likes, try again later");
+    }
+
+    private void awaitFlush(CompletableFuture<Void> flush) {
+        try {
+            flush.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    private static void complete(CompletableFuture<Void> flush, Throwable ex) {
+        if (ex == null) {
+            flush.complete(null);
+        } else {
+            flush.completeExceptionally(ex instanceof CompletionException ? ex.getCause() : ex);
+        }
+    }
+
+    private void addDelta(int filmId, int delta) {
+        filmDeltas.merge(filmId, delta, (current, added) -> current + added == 0 ? null : current + added);
+    }
+
+    private static long key(int filmId, int userId) {
+        return ((long) filmId << 32) | (userId & 0xFFFFFFFFL);
+    }
+
+    private static int filmId(long key) {
+        return (int) (key >>> 32);
+    }
+
+    private static int userId(long key) {
+        return (int) key;
+    }
+
+    private static final class Submission {
+        private boolean changed;
+        private int freedSlots = 1;
+    }
+}
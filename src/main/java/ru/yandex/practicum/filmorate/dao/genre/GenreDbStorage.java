@@ -3,40 +3,75 @@ package ru.yandex.practicum.filmorate.dao.genre;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.metrics.CacheMetrics;
+import ru.yandex.practicum.filmorate.metrics.MetricsRegistry;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.storage.genre.GenreStorage;
 
+import javax.annotation.PostConstruct;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Genres are static reference data, so the whole table is kept as an immutable dictionary
+ * and lookups never reach the database. Call {@link #invalidate()} after changing GENRE.
+ */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class GenreDbStorage implements GenreStorage {
 
     private final JdbcTemplate jdbcTemplate;
+    private final MetricsRegistry metricsRegistry;
+    private CacheMetrics cacheMetrics;
+    private volatile Map<Integer, Genre> genres;
+
+    @PostConstruct
+    public void preload() {
+        cacheMetrics = new CacheMetrics(metricsRegistry, "genres");
+        getGenres();
+    }
 
     @Override
     public Genre getById(int id) {
-        String sql = "SELECT * FROM GENRE WHERE GENRE_ID = ?";
-        SqlRowSet genreRows = jdbcTemplate.queryForRowSet(sql, id);
-
-        if (!genreRows.next()) {
+        Genre genre = getGenres().get(id);
+        if (genre == null) {
             log.warn("Genre id {} is not found.", id);
             throw new NotFoundException("Genre id " + id + " is not found");
         }
-        return jdbcTemplate.queryForObject(sql, this::makeGenre, id);
+        return genre;
     }
 
     @Override
     public List<Genre> getAll() {
-        String sql = "SELECT * FROM GENRE";
+        return new ArrayList<>(getGenres().values());
+    }
 
-        return jdbcTemplate.query(sql, this::makeGenre);
+    public void invalidate() {
+        genres = null;
+        log.info("Genre cache is invalidated");
+    }
+
+    private Map<Integer, Genre> getGenres() {
+        Map<Integer, Genre> cached = genres;
+        if (cached == null) {
+            cacheMetrics.miss();
+            String sql = "SELECT * FROM GENRE ORDER BY GENRE_ID";
+            Map<Integer, Genre> loaded = new LinkedHashMap<>();
+            jdbcTemplate.query(sql, this::makeGenre).forEach(genre -> loaded.put(genre.getId(), genre));
+            cached = Collections.unmodifiableMap(loaded);
+            genres = cached;
+        } else {
+            cacheMetrics.hit();
+        }
+        return cached;
     }
 
     private Genre makeGenre(ResultSet rs, int rowNum) throws SQLException {
@@ -0,0 +1,152 @@
+package ru.yandex.practicum.filmorate.dao.migration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.sql.init.dependency.DatabaseInitializationDependencyConfigurer;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Versioned schema migrations. Scripts named {@code V<version>__<description>.sql} under
+ * {@code classpath:db/migration} are applied once each, in version order, and recorded in
+ * SCHEMA_HISTORY with a checksum. An applied script that has since been edited stops the startup:
+ * schema changes go into a new version instead. H2 commits DDL implicitly, so a script that fails
+ * halfway is not rolled back; scripts use IF NOT EXISTS to be safe to re-run.
+ * <p>
+ * Registered as a database initializer (see {@link SchemaMigratorDetector}), so every bean that
+ * uses the JdbcTemplate is created after the migrations ran.
+ */
+@Slf4j
+@Component
+@Import(DatabaseInitializationDependencyConfigurer.class)
+public class SchemaMigrator implements InitializingBean {
+    private static final String LOCATION = "classpath*:db/migration/V*__*.sql";
+    private static final Pattern SCRIPT_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    public SchemaMigrator(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS SCHEMA_HISTORY " +
+                "(VERSION int primary key, DESCRIPTION varchar(200) not null, CHECKSUM bigint not null, " +
+                "INSTALLED_ON timestamp default CURRENT_TIMESTAMP not null)");
+        Map<Integer, Long> applied = new HashMap<>();
+        jdbcTemplate.query("SELECT VERSION, CHECKSUM FROM SCHEMA_HISTORY",
+                rs -> {
+                    applied.put(rs.getInt("VERSION"), rs.getLong("CHECKSUM"));
+                });
+
+        int migrated = 0;
+        for (Migration migration : findMigrations()) {
+            Long checksum = applied.get(migration.version);
+            if (checksum == null) {
+                apply(migration);
+                migrated++;
+            } else if (checksum != migration.checksum) {
+                throw new IllegalStateException("Migration " + migration.resource.getFilename() +
+                        " was changed after it had been applied");
+            }
+        }
+        log.info("Database schema is up to date, {} migrations applied", migrated);
+    }
+
+    private void apply(Migration migration) {
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                ScriptUtils.executeSqlScript(connection, new EncodedResource(migration.resource, "UTF-8"));
+                try (PreparedStatement history = connection.prepareStatement(
+                        "INSERT INTO SCHEMA_HISTORY (VERSION, DESCRIPTION, CHECKSUM) VALUES (?, ?, ?)")) {
+                    history.setInt(1, migration.version);
+                    history.setString(2, migration.description);
+                    history.setLong(3, migration.checksum);
+                    history.executeUpdate();
+                }
+                connection.commit();
+            } catch (RuntimeException | SQLException ex) {
+                connection.rollback();
+                throw ex;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Migration " + migration.resource.getFilename() + " failed", ex);
+        }
+        log.info("Applied migration {}", migration.resource.getFilename());
+    }
+
+    private static List<Migration> findMigrations() {
+        List<Migration> migrations = new ArrayList<>();
+        try {
+            for (Resource resource : new PathMatchingResourcePatternResolver().getResources(LOCATION)) {
+                Matcher name = SCRIPT_NAME.matcher(resource.getFilename());
+                if (!name.matches()) {
+                    throw new IllegalStateException("Migration " + resource.getFilename() +
+                            " is not named V<version>__<description>.sql");
+                }
+                migrations.add(new Migration(Integer.parseInt(name.group(1)), name.group(2).replace('_', ' '),
+                        checksum(resource), resource));
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        migrations.sort(Comparator.comparingInt(migration -> migration.version));
+        for (int i = 1; i < migrations.size(); i++) {
+            if (migrations.get(i).version == migrations.get(i - 1).version) {
+                throw new IllegalStateException("Duplicate migration version " + migrations.get(i).version);
+            }
+        }
+        return migrations;
+    }
+
+    private static long checksum(Resource resource) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream in = resource.getInputStream()) {
+            crc.update(StreamUtils.copyToByteArray(in));
+        }
+        return crc.getValue();
+    }
+
+    private static final class Migration {
+        private final int version;
+        private final String description;
+        private final long checksum;
+        private final Resource resource;
+
+        private Migration(int version, String description, long checksum, Resource resource) {
+            this.version = version;
+            this.description = description;
+            this.checksum = checksum;
+            this.resource = resource;
+        }
+    }
+}
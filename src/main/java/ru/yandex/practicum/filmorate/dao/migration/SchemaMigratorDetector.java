@@ -0,0 +1,18 @@
+package ru.yandex.practicum.filmorate.dao.migration;
+
+import org.springframework.boot.sql.init.dependency.AbstractBeansOfTypeDatabaseInitializerDetector;
+
+import java.util.Set;
+
+/**
+ * Makes Spring Boot treat {@link SchemaMigrator} like Flyway or the SQL script initializer:
+ * beans that depend on database initialization wait for it. Registered in
+ * {@code META-INF/spring.factories}.
+ */
+public class SchemaMigratorDetector extends AbstractBeansOfTypeDatabaseInitializerDetector {
+
+    @Override
+    protected Set<Class<?>> getDatabaseInitializerBeanTypes() {
+        return Set.of(SchemaMigrator.class);
+    }
+}
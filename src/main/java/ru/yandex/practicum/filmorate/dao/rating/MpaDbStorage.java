@@ -3,38 +3,74 @@ package ru.yandex.practicum.filmorate.dao.rating;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.metrics.CacheMetrics;
+import ru.yandex.practicum.filmorate.metrics.MetricsRegistry;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.storage.rating.MpaStorage;
 
+import javax.annotation.PostConstruct;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * MPA ratings are static reference data, so the whole table is kept as an immutable dictionary
+ * and lookups never reach the database. Call {@link #invalidate()} after changing MPA.
+ */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class MpaDbStorage implements MpaStorage {
     private final JdbcTemplate jdbcTemplate;
+    private final MetricsRegistry metricsRegistry;
+    private CacheMetrics cacheMetrics;
+    private volatile Map<Integer, Mpa> ratings;
+
+    @PostConstruct
+    public void preload() {
+        cacheMetrics = new CacheMetrics(metricsRegistry, "ratings");
+        getRatings();
+    }
 
     @Override
     public Mpa getById(int id) {
-        String sql = "SELECT * FROM MPA WHERE MPA_ID = ?";
-        SqlRowSet mpaRows = jdbcTemplate.queryForRowSet(sql, id);
-
-        if (!mpaRows.next()) {
+        Mpa mpa = getRatings().get(id);
+        if (mpa == null) {
             log.warn("Rating MPA {} is not found.", id);
             throw new NotFoundException("Mpa id " + id + " is not found");
         }
-        return jdbcTemplate.queryForObject(sql, this::makeMpa, id);
+        return mpa;
     }
 
     @Override
     public List<Mpa> getAll() {
-        String sql = "SELECT * FROM MPA";
-        return jdbcTemplate.query(sql, this::makeMpa);
+        return new ArrayList<>(getRatings().values());
+    }
+
+    public void invalidate() {
+        ratings = null;
+        log.info("MPA cache is invalidated");
+    }
+
+    private Map<Integer, Mpa> getRatings() {
+        Map<Integer, Mpa> cached = ratings;
+        if (cached == null) {
+            cacheMetrics.miss();
+            String sql = "SELECT * FROM MPA ORDER BY MPA_ID";
+            Map<Integer, Mpa> loaded = new LinkedHashMap<>();
+            jdbcTemplate.query(sql, this::makeMpa).forEach(mpa -> loaded.put(mpa.getId(), mpa));
+            cached = Collections.unmodifiableMap(loaded);
+            ratings = cached;
+        } else {
+            cacheMetrics.hit();
+        }
+        return cached;
     }
 
     private Mpa makeMpa(ResultSet rs, int rowNum) throws SQLException {
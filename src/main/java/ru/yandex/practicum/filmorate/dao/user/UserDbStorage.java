@@ -2,29 +2,67 @@ package ru.yandex.practicum.filmorate.dao.user;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.FriendshipStatus;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.graph.FriendOfFriendTraversal;
+import ru.yandex.practicum.filmorate.storage.graph.IntAdjacencyStore;
+import ru.yandex.practicum.filmorate.storage.graph.IntArrayBuilder;
+import ru.yandex.practicum.filmorate.storage.graph.IntSetIntersection;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
+import javax.annotation.PostConstruct;
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class UserDbStorage implements UserStorage {
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final int LOCK_STRIPES = 64;
+
     private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Copy of the FRIENDS table kept for graph walks. Loaded on startup and updated after every
+     * committed friendship write of this instance. A write runs in a transaction under the locks
+     * of the users it touches, so the index follows the commits of those users in their order.
+     */
+    private final IntAdjacencyStore friendIndex = new IntAdjacencyStore();
+    private final Object[] locks = newLocks();
+
+    @PostConstruct
+    public void loadFriendIndex() {
+        String sql = "SELECT USER_ID, FRIEND_ID FROM FRIENDS";
+        jdbcTemplate.query(sql, rs -> {
+            friendIndex.add(rs.getInt("USER_ID"), rs.getInt("FRIEND_ID"));
+        });
+        log.info("Friend index is loaded");
+    }
 
     @Override
     public Collection<User> getUsers() {
@@ -32,6 +70,26 @@ public class UserDbStorage implements UserStorage {
         return jdbcTemplate.query(sql, this::makeUser);
     }
 
+    /**
+     * Rows are read through a forward-only cursor; the stream holds a connection until it is closed.
+     */
+    @Override
+    public Stream<User> streamUsers() {
+        String sql = "SELECT * FROM USERS ORDER BY USER_ID";
+        return jdbcTemplate.queryForStream(connection -> {
+            PreparedStatement stmt = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(STREAM_FETCH_SIZE);
+            return stmt;
+        }, this::makeUser);
+    }
+
+    @Override
+    public List<User> getUsers(int afterId, int limit) {
+        String sql = "SELECT * FROM USERS WHERE USER_ID > ? ORDER BY USER_ID LIMIT ?";
+        return jdbcTemplate.query(sql, this::makeUser, afterId, limit);
+    }
+
     @Override
     public User createUser(User user) {
         String sql = "INSERT INTO USERS (EMAIL, LOGIN, USER_NAME, BIRTHDAY) " +
@@ -50,82 +108,193 @@ public class UserDbStorage implements UserStorage {
         return user;
     }
 
+    @Override
+    public List<User> createUsers(List<User> users) {
+        String sql = "INSERT INTO USERS (EMAIL, LOGIN, USER_NAME, BIRTHDAY) " +
+                "VALUES ( ?, ?, ?, ?)";
+        List<Integer> ids = jdbcTemplate.execute((ConnectionCallback<List<Integer>>) connection -> {
+            try (PreparedStatement stmt = connection.prepareStatement(sql, new String[]{"USER_ID"})) {
+                for (User user : users) {
+                    stmt.setString(1, user.getEmail());
+                    stmt.setString(2, user.getLogin());
+                    stmt.setString(3, user.getName());
+                    stmt.setDate(4, Date.valueOf(user.getBirthday()));
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                List<Integer> keys = new ArrayList<>();
+                try (ResultSet rs = stmt.getGeneratedKeys()) {
+                    while (rs.next()) {
+                        keys.add(rs.getInt(1));
+                    }
+                }
+                return keys;
+            }
+        });
+        for (int i = 0; i < users.size(); i++) {
+            users.get(i).setId(Objects.requireNonNull(ids).get(i));
+        }
+        log.info("{} users are created", users.size());
+        return users;
+    }
+
     @Override
     public User updateUser(User user) {
-        validateUser(user.getId());
         String sql = "UPDATE USERS SET EMAIL = ?, LOGIN = ?, USER_NAME = ?, BIRTHDAY = ? WHERE USER_ID = ?";
-        jdbcTemplate.update(sql,
+        int updated = jdbcTemplate.update(sql,
                 user.getEmail(),
                 user.getLogin(),
                 user.getName(),
                 user.getBirthday(),
                 user.getId());
+        if (updated == 0) {
+            throw userNotFound(user.getId());
+        }
         log.info("User id " + user.getId() + " is upd.");
         return user;
     }
 
     @Override
     public User getUserById(int id) {
-        validateUser(id);
         String sql = "SELECT * FROM USERS WHERE USER_ID = ?";
-        return jdbcTemplate.queryForObject(sql, this::makeUser, id);
+        List<User> users = jdbcTemplate.query(sql, this::makeUser, id);
+        if (users.isEmpty()) {
+            throw userNotFound(id);
+        }
+        return users.get(0);
     }
 
     @Override
     public void deleteUserById(int id) {
-        validateUser(id);
         String sql = "DELETE FROM USERS WHERE USER_ID = ?";
-        jdbcTemplate.update(sql, id);
+        inTransaction(id, id, () -> {
+            if (jdbcTemplate.update(sql, id) == 0) {
+                throw userNotFound(id);
+            }
+            afterCommit(() -> friendIndex.removeNode(id));
+        });
         log.info("User ID {} is deleted", id);
 
     }
 
     @Override
     public void addFriend(int userId, int friendId) {
-        validateUser(userId);
-        validateUser(friendId);
         String sqlForWrite = "INSERT INTO FRIENDS (USER_ID, FRIEND_ID, STATUS) " +
                 "VALUES (?, ?, ?)";
         String sqlForUpdate = "UPDATE FRIENDS SET STATUS = ? " +
                 "WHERE USER_ID = ? AND FRIEND_ID = ?";
-        String sqlCheckFriendship = "SELECT * FROM FRIENDS WHERE USER_ID = ? AND FRIEND_ID = ?";
-        SqlRowSet userRows = jdbcTemplate.queryForRowSet(sqlCheckFriendship, userId, friendId);
 
-        if (userRows.first()) {
-            jdbcTemplate.update(sqlForUpdate, FriendshipStatus.FOLLOW.toString(), userId, friendId);
-        } else {
-            jdbcTemplate.update(sqlForWrite, userId, friendId, FriendshipStatus.UNFOLLOW.toString());
-        }
+        inTransaction(userId, friendId, () -> {
+            if (jdbcTemplate.update(sqlForUpdate, FriendshipStatus.FOLLOW.toString(), userId, friendId) == 0) {
+                try {
+                    jdbcTemplate.update(sqlForWrite, userId, friendId, FriendshipStatus.UNFOLLOW.toString());
+                } catch (DuplicateKeyException ex) {
+                    // a subclass of the one below, but it means the pair exists, not that a user is missing
+                    throw ex;
+                } catch (DataIntegrityViolationException ex) {
+                    validateUsers(userId, friendId);
+                    throw ex;
+                }
+            }
+            afterCommit(() -> friendIndex.add(userId, friendId));
+        });
         log.info("User {} subscribed to User {}", friendId, userId);
     }
 
     @Override
     public void deleteFriend(int userId, int friendId) {
-        validateUser(userId);
-        validateUser(friendId);
-        String sqlQuery = "DELETE FROM FRIENDS WHERE (USER_ID = ? AND FRIEND_ID =?) OR (USER_ID =? AND FRIEND_ID = ?)";
-        jdbcTemplate.update(sqlQuery, userId, friendId, friendId, userId);
+        // both directions; unlike an OR of the two pairs, H2 serves this from the primary key.
+        // The IN lists also match (userId, userId) and (friendId, friendId), hence the guard against
+        // self-friendships, which then need a statement of their own
+        String sqlQuery = userId == friendId
+                ? "DELETE FROM FRIENDS WHERE USER_ID = ? AND FRIEND_ID = ?"
+                : "DELETE FROM FRIENDS WHERE USER_ID IN (?, ?) AND FRIEND_ID IN (?, ?) AND USER_ID <> FRIEND_ID";
+        Object[] args = userId == friendId
+                ? new Object[]{userId, friendId}
+                : new Object[]{userId, friendId, friendId, userId};
+        inTransaction(userId, friendId, () -> {
+            if (jdbcTemplate.update(sqlQuery, args) == 0) {
+                validateUsers(userId, friendId);
+            }
+            afterCommit(() -> {
+                friendIndex.remove(userId, friendId);
+                friendIndex.remove(friendId, userId);
+            });
+        });
         log.info("User {} unsubscribed from User {}", friendId, userId);
     }
 
     @Override
     public List<User> getFriendList(int id) {
-        validateUser(id);
         String sql = "SELECT * FROM USERS WHERE USER_ID IN (SELECT FRIEND_ID FROM FRIENDS WHERE USER_ID = ?)";
-        return jdbcTemplate.query(sql, this::makeUser, id);
+        List<User> friends = jdbcTemplate.query(sql, this::makeUser, id);
+        if (friends.isEmpty()) {
+            validateUsers(id, id);
+        }
+        return friends;
+    }
+
+    @Override
+    public List<User> getFriendList(int id, int afterId, int limit) {
+        String sql = "SELECT U.* FROM FRIENDS AS F " +
+                "JOIN USERS AS U ON U.USER_ID = F.FRIEND_ID " +
+                "WHERE F.USER_ID = ? AND F.FRIEND_ID > ? " +
+                "ORDER BY F.FRIEND_ID LIMIT ?";
+        List<User> friends = jdbcTemplate.query(sql, this::makeUser, id, afterId, limit);
+        if (friends.isEmpty()) {
+            validateUsers(id, id);
+        }
+        return friends;
     }
 
+    /**
+     * Reads both friend id lists in one statement off the primary key, intersects them in memory
+     * and loads the common friends with one batch lookup.
+     */
     @Override
     public List<User> getCommonFriends(int userId, int friendId) {
-        validateUser(userId);
-        validateUser(friendId);
-        String sql = "SELECT U.USER_ID, U.EMAIL, U.LOGIN, U.USER_NAME, U.BIRTHDAY " +
-                "FROM FRIENDS AS F " +
-                "LEFT JOIN FRIENDS AS FF ON FF.FRIEND_ID = F.FRIEND_ID AND FF.USER_ID = ?" +
-                "LEFT JOIN USERS AS U ON U.USER_ID = F.FRIEND_ID " +
-                "WHERE F.USER_ID = ? ";
+        String sql = "SELECT USER_ID, FRIEND_ID FROM FRIENDS WHERE USER_ID IN (?, ?) ORDER BY USER_ID, FRIEND_ID";
+        IntArrayBuilder userFriends = new IntArrayBuilder();
+        IntArrayBuilder otherFriends = new IntArrayBuilder();
+        jdbcTemplate.query(sql, rs -> {
+            if (rs.getInt("USER_ID") == userId) {
+                userFriends.add(rs.getInt("FRIEND_ID"));
+            }
+            if (rs.getInt("USER_ID") == friendId) {
+                otherFriends.add(rs.getInt("FRIEND_ID"));
+            }
+        }, userId, friendId);
 
-        return jdbcTemplate.query(sql, this::makeUser, userId, friendId);
+        int[] commonIds = IntSetIntersection.intersect(userFriends.toArray(), otherFriends.toArray());
+        if (commonIds.length == 0) {
+            validateUsers(userId, friendId);
+            return new ArrayList<>();
+        }
+        return getUsersByIds(commonIds);
+    }
+
+    /**
+     * Walks two hops over the in-memory friend index and loads the recommended users with one batch lookup.
+     */
+    @Override
+    public List<User> getRecommendations(int id, int limit) {
+        int[] ids = FriendOfFriendTraversal.recommend(friendIndex, id, limit);
+        if (ids.length == 0) {
+            validateUsers(id, id);
+            return new ArrayList<>();
+        }
+        Map<Integer, User> usersById = getUsersByIds(ids).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        return Arrays.stream(ids)
+                .mapToObj(usersById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private List<User> getUsersByIds(int[] ids) {
+        String sql = "SELECT * FROM USERS WHERE USER_ID = ANY(?) ORDER BY USER_ID";
+        Integer[] boxedIds = Arrays.stream(ids).boxed().toArray(Integer[]::new);
+        return jdbcTemplate.query(sql, this::makeUser, new Object[]{boxedIds});
     }
 
     private User makeUser(ResultSet rs, int rowNum) throws SQLException {
@@ -138,13 +307,66 @@ public class UserDbStorage implements UserStorage {
                 .build();
     }
 
-    private void validateUser(int userId) {
-        String checkUser = "SELECT * FROM USERS WHERE USER_ID = ?";
-        SqlRowSet userRows = jdbcTemplate.queryForRowSet(checkUser, userId);
+    /**
+     * Checks both ids with one statement. Only called when a write or a read has come back empty,
+     * to tell a missing user apart from a missing relation.
+     */
+    private void validateUsers(int userId, int otherId) {
+        String sql = "SELECT (SELECT COUNT(*) FROM USERS WHERE USER_ID = ?) AS USER_FOUND, " +
+                "(SELECT COUNT(*) FROM USERS WHERE USER_ID = ?) AS OTHER_FOUND";
+        SqlRowSet rows = jdbcTemplate.queryForRowSet(sql, userId, otherId);
+        rows.next();
+
+        if (rows.getInt("USER_FOUND") == 0) {
+            throw userNotFound(userId);
+        }
+        if (rows.getInt("OTHER_FOUND") == 0) {
+            throw userNotFound(otherId);
+        }
+    }
+
+    private NotFoundException userNotFound(int userId) {
+        log.warn("User id {} is not found", userId);
+        return new NotFoundException("User id " + userId + " is not found");
+    }
+
+    /**
+     * Runs a friendship write in a transaction of its own under the locks of both users, taken
+     * in stripe order. Its index update, registered with {@link #afterCommit}, runs before the
+     * locks are released.
+     */
+    private void inTransaction(int userId, int friendId, Runnable write) {
+        int userStripe = Math.floorMod(userId, LOCK_STRIPES);
+        int friendStripe = Math.floorMod(friendId, LOCK_STRIPES);
+        synchronized (locks[Math.min(userStripe, friendStripe)]) {
+            synchronized (locks[Math.max(userStripe, friendStripe)]) {
+                transactionTemplate.executeWithoutResult(status -> write.run());
+            }
+        }
+    }
+
+    /**
+     * The friend index must not see writes that are rolled back, so inside a transaction it is
+     * updated only once the transaction commits.
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
 
-        if (!userRows.next()) {
-            log.warn("User id {} is not found", userId);
-            throw new NotFoundException("User id " + userId + " is not found");
+    private static Object[] newLocks() {
+        Object[] locks = new Object[LOCK_STRIPES];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
         }
+        return locks;
     }
 }
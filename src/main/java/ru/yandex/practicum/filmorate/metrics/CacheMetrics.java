@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+/**
+ * Hit and miss counters of one cache, plus its lifetime hit ratio as a gauge.
+ */
+public class CacheMetrics {
+    private final Counter hits;
+    private final Counter misses;
+
+    public CacheMetrics(MetricsRegistry metricsRegistry, String cache) {
+        String help = "Cache lookups by result";
+        hits = metricsRegistry.counter("cache_gets_total", help, "cache", cache, "result", "hit");
+        misses = metricsRegistry.counter("cache_gets_total", help, "cache", cache, "result", "miss");
+        metricsRegistry.gauge("cache_hit_ratio", "Share of cache lookups served from the cache", () -> {
+            long hitCount = hits.get();
+            long total = hitCount + misses.get();
+            return total == 0 ? Double.NaN : (double) hitCount / total;
+        }, "cache", cache);
+    }
+
+    public void hit() {
+        hits.increment();
+    }
+
+    public void miss() {
+        misses.increment();
+    }
+}
@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * Remembers which DAO method is running on the current thread, so {@link MeteredJdbcTemplate}
+ * can tag every statement with the operation that issued it. Nested DAO calls keep the outermost
+ * operation. Only the film and user DAOs are advised: the genre and MPA dictionaries are called
+ * per row and almost never query.
+ */
+@Aspect
+@Component
+public class DaoOperationAspect {
+    static final String UNKNOWN = "unknown";
+    private static final ThreadLocal<String> OPERATION = new ThreadLocal<>();
+
+    static String currentOperation() {
+        String operation = OPERATION.get();
+        return operation == null ? UNKNOWN : operation;
+    }
+
+    @Around("execution(public * ru.yandex.practicum.filmorate.dao.film..*(..)) " +
+            "|| execution(public * ru.yandex.practicum.filmorate.dao.user..*(..))")
+    public Object tagOperation(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (OPERATION.get() != null) {
+            return joinPoint.proceed();
+        }
+        OPERATION.set(joinPoint.getSignature().getDeclaringType().getSimpleName() + "." +
+                joinPoint.getSignature().getName());
+        try {
+            return joinPoint.proceed();
+        } finally {
+            OPERATION.remove();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram with fixed buckets from 100 us to 10 s. Recording is a binary search over
+ * the bounds and two {@link LongAdder} increments, so it never blocks concurrent recorders.
+ */
+public class Histogram {
+    static final double[] BUCKETS_SECONDS = {
+            0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+    private static final long[] BUCKETS_NANOS = Arrays.stream(BUCKETS_SECONDS)
+            .mapToLong(seconds -> (long) (seconds * TimeUnit.SECONDS.toNanos(1)))
+            .toArray();
+
+    /**
+     * Observations per bucket, not cumulative; the last one counts those above every bound.
+     */
+    private final LongAdder[] counts = new LongAdder[BUCKETS_NANOS.length + 1];
+    private final LongAdder sumNanos = new LongAdder();
+
+    Histogram() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        int bucket = Arrays.binarySearch(BUCKETS_NANOS, nanos);
+        counts[bucket >= 0 ? bucket : -bucket - 1].increment();
+        sumNanos.add(nanos);
+    }
+
+    /**
+     * @return cumulative counts per bucket, the +Inf bucket (the total count) last
+     */
+    long[] cumulativeCounts() {
+        long[] cumulative = new long[counts.length];
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            total += counts[i].sum();
+            cumulative[i] = total;
+        }
+        return cumulative;
+    }
+
+    double sumSeconds() {
+        return sumNanos.sum() / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,169 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.KeyHolder;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * JdbcTemplate that times every call and counts the rows it read or wrote, tagged with the DAO
+ * operation from {@link DaoOperationAspect}. It overrides the few methods all the query, update
+ * and batch overloads funnel into, so each DAO call is recorded once.
+ * <p>
+ * Rows are counted from list results, row callbacks and update counts; a custom
+ * ResultSetExtractor counts none. Failed calls are timed too. queryForStream is not recorded:
+ * its rows are read after the call returns.
+ */
+public class MeteredJdbcTemplate extends JdbcTemplate {
+    private final MetricsRegistry metricsRegistry;
+    private final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+
+    public MeteredJdbcTemplate(DataSource dataSource, MetricsRegistry metricsRegistry) {
+        super(dataSource);
+        this.metricsRegistry = metricsRegistry;
+    }
+
+    @Override
+    public <T> T query(PreparedStatementCreator psc, PreparedStatementSetter pss, ResultSetExtractor<T> rse)
+            throws DataAccessException {
+        return record(() -> super.query(psc, pss, rse), MeteredJdbcTemplate::size);
+    }
+
+    @Override
+    public <T> T query(String sql, ResultSetExtractor<T> rse) throws DataAccessException {
+        return record(() -> super.query(sql, rse), MeteredJdbcTemplate::size);
+    }
+
+    /**
+     * Row callbacks return nothing to count, so their rows are counted as they are handled.
+     * The query itself is timed by the extractor overloads these delegate to.
+     */
+    @Override
+    public void query(String sql, PreparedStatementSetter pss, RowCallbackHandler rch) throws DataAccessException {
+        CountingRowCallbackHandler counting = new CountingRowCallbackHandler(rch);
+        super.query(sql, pss, counting);
+        operationMetrics().rows.add(counting.count);
+    }
+
+    @Override
+    public void query(String sql, RowCallbackHandler rch) throws DataAccessException {
+        CountingRowCallbackHandler counting = new CountingRowCallbackHandler(rch);
+        super.query(sql, counting);
+        operationMetrics().rows.add(counting.count);
+    }
+
+    @Override
+    public void query(PreparedStatementCreator psc, RowCallbackHandler rch) throws DataAccessException {
+        CountingRowCallbackHandler counting = new CountingRowCallbackHandler(rch);
+        super.query(psc, counting);
+        operationMetrics().rows.add(counting.count);
+    }
+
+    @Override
+    protected int update(PreparedStatementCreator psc, PreparedStatementSetter pss) throws DataAccessException {
+        return record(() -> super.update(psc, pss), Integer::longValue);
+    }
+
+    @Override
+    public int update(PreparedStatementCreator psc, KeyHolder generatedKeyHolder) throws DataAccessException {
+        return record(() -> super.update(psc, generatedKeyHolder), Integer::longValue);
+    }
+
+    @Override
+    public int update(String sql) throws DataAccessException {
+        return record(() -> super.update(sql), Integer::longValue);
+    }
+
+    @Override
+    public int[] batchUpdate(String sql, BatchPreparedStatementSetter pss) throws DataAccessException {
+        return record(() -> super.batchUpdate(sql, pss), MeteredJdbcTemplate::sum);
+    }
+
+    @Override
+    public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                   ParameterizedPreparedStatementSetter<T> pss) throws DataAccessException {
+        return record(() -> super.batchUpdate(sql, batchArgs, batchSize, pss),
+                counts -> Arrays.stream(counts).mapToLong(MeteredJdbcTemplate::sum).sum());
+    }
+
+    @Override
+    public <T> T execute(ConnectionCallback<T> action) throws DataAccessException {
+        return record(() -> super.execute(action), MeteredJdbcTemplate::size);
+    }
+
+    private OperationMetrics operationMetrics() {
+        return operations.computeIfAbsent(DaoOperationAspect.currentOperation(), OperationMetrics::new);
+    }
+
+    private <T> T record(Supplier<T> call, RowCount<T> rowCount) {
+        OperationMetrics metrics = operationMetrics();
+        long start = System.nanoTime();
+        try {
+            T result = call.get();
+            metrics.rows.add(rowCount.of(result));
+            return result;
+        } finally {
+            metrics.duration.record(System.nanoTime() - start);
+        }
+    }
+
+    private static long size(Object result) {
+        return result instanceof Collection ? ((Collection<?>) result).size() : 0;
+    }
+
+    private static long sum(int[] counts) {
+        long sum = 0;
+        for (int count : counts) {
+            // drivers may report SUCCESS_NO_INFO (-2) instead of a count
+            sum += Math.max(count, 0);
+        }
+        return sum;
+    }
+
+    @FunctionalInterface
+    private interface RowCount<T> {
+        long of(T result);
+    }
+
+    private final class OperationMetrics {
+        private final Histogram duration;
+        private final Counter rows;
+
+        private OperationMetrics(String operation) {
+            duration = metricsRegistry.histogram("filmorate_jdbc_query_seconds",
+                    "Time of JdbcTemplate calls by DAO operation", "operation", operation);
+            rows = metricsRegistry.counter("filmorate_jdbc_rows_total",
+                    "Rows read or written by JdbcTemplate calls by DAO operation", "operation", operation);
+        }
+    }
+
+    private static final class CountingRowCallbackHandler implements RowCallbackHandler {
+        private final RowCallbackHandler delegate;
+        private long count;
+
+        private CountingRowCallbackHandler(RowCallbackHandler delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            delegate.processRow(rs);
+            count++;
+        }
+    }
+}
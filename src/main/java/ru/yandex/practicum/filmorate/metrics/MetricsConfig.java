@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.function.ToIntFunction;
+
+@Slf4j
+@Configuration
+public class MetricsConfig implements WebMvcConfigurer {
+    private final MetricsRegistry metricsRegistry;
+
+    public MetricsConfig(MetricsRegistry metricsRegistry, DataSource dataSource) {
+        this.metricsRegistry = metricsRegistry;
+        registerPoolGauges(dataSource);
+    }
+
+    /**
+     * Replaces the auto-configured JdbcTemplate, which backs off when one is defined.
+     */
+    @Bean
+    public JdbcTemplate jdbcTemplate(DataSource dataSource) {
+        return new MeteredJdbcTemplate(dataSource, metricsRegistry);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new RequestMetricsInterceptor(metricsRegistry));
+    }
+
+    private void registerPoolGauges(DataSource dataSource) {
+        HikariDataSource hikari;
+        try {
+            if (!dataSource.isWrapperFor(HikariDataSource.class)) {
+                log.info("DataSource is not a Hikari pool, pool metrics are off");
+                return;
+            }
+            hikari = dataSource.unwrap(HikariDataSource.class);
+        } catch (SQLException ex) {
+            log.warn("Cannot unwrap the DataSource, pool metrics are off", ex);
+            return;
+        }
+        String pool = String.valueOf(hikari.getPoolName());
+        poolGauge(hikari, pool, "hikaricp_connections_active", "Connections in use", HikariPoolMXBean::getActiveConnections);
+        poolGauge(hikari, pool, "hikaricp_connections_idle", "Idle connections", HikariPoolMXBean::getIdleConnections);
+        poolGauge(hikari, pool, "hikaricp_connections_pending", "Threads waiting for a connection",
+                HikariPoolMXBean::getThreadsAwaitingConnection);
+        poolGauge(hikari, pool, "hikaricp_connections", "Open connections", HikariPoolMXBean::getTotalConnections);
+        metricsRegistry.gauge("hikaricp_connections_max", "Maximum pool size",
+                hikari::getMaximumPoolSize, "pool", pool);
+    }
+
+    /**
+     * The pool starts with the first connection, until then its gauges read NaN.
+     */
+    private void poolGauge(HikariDataSource hikari, String pool, String name, String help,
+                           ToIntFunction<HikariPoolMXBean> value) {
+        metricsRegistry.gauge(name, help, () -> {
+            HikariPoolMXBean bean = hikari.getHikariPoolMXBean();
+            return bean == null ? Double.NaN : value.applyAsInt(bean);
+        }, "pool", pool);
+    }
+}
@@ -0,0 +1,162 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+
+/**
+ * Histograms, counters and gauges rendered in the Prometheus text format by
+ * {@link #scrape(StringBuilder)}. Looking a metric up costs a map lookup and building its label
+ * string, so hot paths resolve their metrics once and keep them.
+ * <p>
+ * Labels are given as name, value pairs: {@code counter("rows_total", "Rows", "operation", "get")}.
+ */
+@Component
+public class MetricsRegistry {
+    private final ConcurrentMap<String, Family> families = new ConcurrentSkipListMap<>();
+
+    public Histogram histogram(String name, String help, String... labels) {
+        return family(name, help, Type.HISTOGRAM).get(labels, key -> new Histogram());
+    }
+
+    public Counter counter(String name, String help, String... labels) {
+        return family(name, help, Type.COUNTER).get(labels, key -> new Counter());
+    }
+
+    /**
+     * Registers a gauge read on every scrape; registering the same labels again replaces it.
+     */
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, Type.GAUGE).metrics.put(labelText(labels), value);
+    }
+
+    public void scrape(StringBuilder out) {
+        for (Family family : families.values()) {
+            out.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(family.name).append(' ').append(family.type.text).append('\n');
+            for (Map.Entry<String, Object> metric : new TreeMap<>(family.metrics).entrySet()) {
+                String labels = metric.getKey();
+                switch (family.type) {
+                    case HISTOGRAM:
+                        appendHistogram(out, family.name, labels, (Histogram) metric.getValue());
+                        break;
+                    case COUNTER:
+                        appendSample(out, family.name, labels, ((Counter) metric.getValue()).get());
+                        break;
+                    default:
+                        appendSample(out, family.name, labels, ((DoubleSupplier) metric.getValue()).getAsDouble());
+                }
+            }
+        }
+    }
+
+    private Family family(String name, String help, Type type) {
+        Family family = families.computeIfAbsent(name, n -> new Family(n, help, type));
+        if (family.type != type) {
+            throw new IllegalArgumentException("Metric " + name + " is already a " + family.type.text);
+        }
+        return family;
+    }
+
+    private static void appendHistogram(StringBuilder out, String name, String labels, Histogram histogram) {
+        long[] counts = histogram.cumulativeCounts();
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        for (int i = 0; i < Histogram.BUCKETS_SECONDS.length; i++) {
+            String bound = BigDecimal.valueOf(Histogram.BUCKETS_SECONDS[i]).toPlainString();
+            appendSample(out, name + "_bucket", prefix + "le=\"" + bound + "\"", counts[i]);
+        }
+        appendSample(out, name + "_bucket", prefix + "le=\"+Inf\"", counts[counts.length - 1]);
+        appendSample(out, name + "_sum", labels, histogram.sumSeconds());
+        appendSample(out, name + "_count", labels, counts[counts.length - 1]);
+    }
+
+    private static void appendSample(StringBuilder out, String name, String labels, long value) {
+        appendName(out, name, labels).append(value).append('\n');
+    }
+
+    private static void appendSample(StringBuilder out, String name, String labels, double value) {
+        appendName(out, name, labels);
+        if (Double.isNaN(value)) {
+            out.append("NaN");
+        } else if (Double.isInfinite(value)) {
+            out.append(value > 0 ? "+Inf" : "-Inf");
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+
+    private static StringBuilder appendName(StringBuilder out, String name, String labels) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        return out.append(' ');
+    }
+
+    private static String labelText(String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name, value pairs");
+        }
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                text.append(',');
+            }
+            text.append(labels[i]).append("=\"");
+            String value = labels[i + 1];
+            for (int c = 0; c < value.length(); c++) {
+                char ch = value.charAt(c);
+                if (ch == '\\' || ch == '"') {
+                    text.append('\\').append(ch);
+                } else if (ch == '\n') {
+                    text.append("\\n");
+                } else {
+                    text.append(ch);
+                }
+            }
+            text.append('"');
+        }
+        return text.toString();
+    }
+
+    private enum Type {
+        HISTOGRAM("histogram"),
+        COUNTER("counter"),
+        GAUGE("gauge");
+
+        private final String text;
+
+        Type(String text) {
+            this.text = text;
+        }
+    }
+
+    private static final class Family {
+        private final String name;
+        private final String help;
+        private final Type type;
+        /**
+         * Label text to a {@link Histogram}, {@link Counter} or gauge {@link DoubleSupplier}.
+         */
+        private final ConcurrentMap<String, Object> metrics = new ConcurrentHashMap<>();
+
+        private Family(String name, String help, Type type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> T get(String[] labels, Function<String, T> factory) {
+            return (T) metrics.computeIfAbsent(labelText(labels), factory);
+        }
+    }
+}
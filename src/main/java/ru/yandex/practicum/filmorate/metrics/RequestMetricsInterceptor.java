@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records the latency of every controller call by method, URI template and status. A streamed
+ * response is timed until its last byte: the async dispatch that completes it finds the start
+ * time of the original request.
+ */
+@RequiredArgsConstructor
+public class RequestMetricsInterceptor implements HandlerInterceptor {
+    private static final String START_ATTRIBUTE = RequestMetricsInterceptor.class.getName() + ".start";
+
+    private final MetricsRegistry metricsRegistry;
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getAttribute(START_ATTRIBUTE) == null) {
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (!(handler instanceof HandlerMethod) || start == null) {
+            return;
+        }
+        long nanos = System.nanoTime() - (Long) start;
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        String status = Integer.toString(ex != null && response.getStatus() < 400 ? 500 : response.getStatus());
+        String method = request.getMethod();
+        histograms.computeIfAbsent(method + ' ' + uri + ' ' + status,
+                key -> metricsRegistry.histogram("http_server_requests_seconds", "Latency of HTTP requests",
+                        "method", method, "uri", uri, "status", status))
+                .record(nanos);
+    }
+}
@@ -32,7 +32,7 @@ public class Film {
 
     public Set<Integer> getLikesList() {
         if (likesList == null) {
-            return new HashSet<>();
+            likesList = new HashSet<>();
         }
         return likesList;
     }
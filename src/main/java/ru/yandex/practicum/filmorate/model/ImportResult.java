@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class ImportResult {
+    private int index;
+    private ImportStatus status;
+    private Integer id;
+    private List<String> errors;
+}
@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Builder;
+import lombok.Data;
+import ru.yandex.practicum.filmorate.exception.IncorrectParameterException;
+
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * One page of a listing ordered by id. {@code nextCursor} is the id to pass as {@code after}
+ * for the next page, or {@code null} when this page is the last one.
+ */
+@Data
+@Builder
+public class KeysetPage<T> {
+    public static final int MAX_LIMIT = 1000;
+
+    private List<T> items;
+    private Integer nextCursor;
+
+    public static void checkLimit(Integer limit) {
+        if (limit == null || limit <= 0 || limit > MAX_LIMIT) {
+            throw new IncorrectParameterException("'Limit' must be between 1 and " + MAX_LIMIT);
+        }
+    }
+
+    /**
+     * Builds a page from rows fetched with {@code limit + 1}: the extra row only tells that
+     * another page exists and is not returned.
+     */
+    public static <T> KeysetPage<T> of(List<T> rows, int limit, ToIntFunction<T> idGetter) {
+        if (rows.size() <= limit) {
+            return KeysetPage.<T>builder().items(rows).build();
+        }
+        List<T> items = rows.subList(0, limit);
+        return KeysetPage.<T>builder()
+                .items(items)
+                .nextCursor(idGetter.applyAsInt(items.get(limit - 1)))
+                .build();
+    }
+}
@@ -26,7 +26,7 @@ public class User {
 
     public Set<Integer> getFriendsList() {
         if (friendsList == null) {
-            return new HashSet<>();
+            friendsList = new HashSet<>();
         }
         return friendsList;
     }
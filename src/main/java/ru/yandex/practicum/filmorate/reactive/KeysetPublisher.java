@@ -0,0 +1,133 @@
+package ru.yandex.practicum.filmorate.reactive;
+
+import ru.yandex.practicum.filmorate.model.KeysetPage;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes a listing ordered by id one keyset page at a time, fetching a page only when the
+ * subscriber has asked for more items and never more rows than it asked for. Pages are fetched
+ * on {@code executor}, so the subscriber's thread never blocks on JDBC, and no connection is
+ * held between pages.
+ * <p>
+ * Every subscriber gets its own cursor, starting from the first id.
+ */
+public class KeysetPublisher<T> implements Flow.Publisher<T> {
+    private final PageFetcher<T> fetcher;
+    private final int pageSize;
+    private final Executor executor;
+
+    public KeysetPublisher(PageFetcher<T> fetcher, int pageSize, Executor executor) {
+        this.fetcher = fetcher;
+        this.pageSize = pageSize;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber);
+        subscriber.onSubscribe(new KeysetSubscription(subscriber));
+    }
+
+    @FunctionalInterface
+    public interface PageFetcher<T> {
+        KeysetPage<T> fetch(int afterId, int limit);
+    }
+
+    private final class KeysetSubscription implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super T> subscriber;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile boolean invalidRequest;
+        // touched by run() only, which never runs concurrently with itself
+        private int cursor;
+        private boolean done;
+
+        private KeysetSubscription(Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = true;
+            } else {
+                requested.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        private void schedule() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                cancelled = true;
+                subscriber.onError(e);
+            }
+        }
+
+        /**
+         * Drains the demand; requests that arrive meanwhile, from the subscriber's onNext too,
+         * are picked up by the same run.
+         */
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                emit();
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void emit() {
+            if (invalidRequest && !done && !cancelled) {
+                done = true;
+                subscriber.onError(new IllegalArgumentException("Subscribers must request a positive number of items"));
+                return;
+            }
+            while (!done && !cancelled && requested.get() > 0) {
+                KeysetPage<T> page;
+                try {
+                    page = fetcher.fetch(cursor, (int) Math.min(requested.get(), pageSize));
+                } catch (RuntimeException e) {
+                    done = true;
+                    subscriber.onError(e);
+                    return;
+                }
+                List<T> items = page.getItems();
+                for (T item : items) {
+                    if (cancelled) {
+                        return;
+                    }
+                    subscriber.onNext(item);
+                }
+                if (requested.get() != Long.MAX_VALUE) {
+                    requested.addAndGet(-items.size());
+                }
+                if (page.getNextCursor() == null) {
+                    done = true;
+                    if (!cancelled) {
+                        subscriber.onComplete();
+                    }
+                    return;
+                }
+                cursor = page.getNextCursor();
+            }
+        }
+    }
+}
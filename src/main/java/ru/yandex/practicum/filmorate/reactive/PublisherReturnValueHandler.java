@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.Flow;
+
+/**
+ * Lets controller methods return a {@link Flow.Publisher}: the response is switched to async
+ * mode and the items are written as NDJSON by a {@link ServletNdjsonSubscriber}, after the
+ * handler thread has gone back to the pool. Spring MVC only adapts Reactor and RxJava types.
+ */
+public class PublisherReturnValueHandler implements HandlerMethodReturnValueHandler {
+    private final ObjectWriter writer;
+    private final int batchSize;
+    private final long timeoutMillis;
+
+    public PublisherReturnValueHandler(ObjectMapper objectMapper, int batchSize, long timeoutMillis) {
+        this.writer = objectMapper.writer();
+        this.batchSize = batchSize;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public boolean supportsReturnType(MethodParameter returnType) {
+        return Flow.Publisher.class.isAssignableFrom(returnType.getParameterType());
+    }
+
+    @Override
+    public void handleReturnValue(Object returnValue, MethodParameter returnType, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest) throws Exception {
+        mavContainer.setRequestHandled(true);
+        HttpServletRequest request = webRequest.getNativeRequest(HttpServletRequest.class);
+        HttpServletResponse response = webRequest.getNativeResponse(HttpServletResponse.class);
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        AsyncContext asyncContext = request.startAsync(request, response);
+        asyncContext.setTimeout(timeoutMillis);
+        @SuppressWarnings("unchecked")
+        Flow.Publisher<Object> publisher = (Flow.Publisher<Object>) returnValue;
+        publisher.subscribe(new ServletNdjsonSubscriber<>(asyncContext, writer, batchSize));
+    }
+}
@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Puts {@link PublisherReturnValueHandler} ahead of the built-in handlers: added the usual way,
+ * through WebMvcConfigurer, it would come after the {@code @ResponseBody} one, which claims
+ * every return value of a {@code @RestController}.
+ */
+@Configuration
+public class ReactiveConfig {
+    private final RequestMappingHandlerAdapter handlerAdapter;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final Duration timeout;
+
+    public ReactiveConfig(RequestMappingHandlerAdapter handlerAdapter, ObjectMapper objectMapper,
+                          @Value("${filmorate.reactive.batch-size:64}") int batchSize,
+                          @Value("${filmorate.reactive.stream-timeout:60s}") Duration timeout) {
+        this.handlerAdapter = handlerAdapter;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.timeout = timeout;
+    }
+
+    @PostConstruct
+    public void registerPublisherHandler() {
+        List<HandlerMethodReturnValueHandler> handlers = new ArrayList<>();
+        handlers.add(new PublisherReturnValueHandler(objectMapper, batchSize, timeout.toMillis()));
+        handlers.addAll(handlerAdapter.getReturnValueHandlers());
+        handlerAdapter.setReturnValueHandlers(handlers);
+    }
+}
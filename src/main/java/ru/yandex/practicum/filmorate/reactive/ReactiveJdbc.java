@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.reactive;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.function.Supplier;
+
+/**
+ * Runs the blocking service and DAO calls of the reactive controllers off the request threads,
+ * on one thread per pooled connection: more threads could only wait for a connection. The
+ * executor is not a bean, so the auto-configured MVC task executor stays in place.
+ */
+@Component
+public class ReactiveJdbc {
+    private final ExecutorService executor;
+    private final int pageSize;
+
+    public ReactiveJdbc(@Value("${spring.datasource.hikari.maximum-pool-size:10}") int threads,
+                        @Value("${filmorate.reactive.page-size:100}") int pageSize) {
+        this.executor = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("reactive-jdbc-"));
+        this.pageSize = pageSize;
+    }
+
+    public <T> CompletableFuture<T> supply(Supplier<T> call) {
+        return CompletableFuture.supplyAsync(call, executor);
+    }
+
+    public <T> Flow.Publisher<T> keyset(KeysetPublisher.PageFetcher<T> fetcher) {
+        return new KeysetPublisher<>(fetcher, pageSize, executor);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
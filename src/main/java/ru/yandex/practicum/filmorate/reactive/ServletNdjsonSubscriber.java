@@ -0,0 +1,182 @@
+package ru.yandex.practicum.filmorate.reactive;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes the items of a publisher to an async servlet response as newline-delimited JSON with
+ * non-blocking IO. It asks for the next {@code batchSize} items only after the previous ones are
+ * written and the connection can take more, so a slow client slows the publisher down instead
+ * of filling memory, and no thread waits on the socket in between.
+ * <p>
+ * Signals from the publisher and the container may come from different threads; all writes go
+ * through {@link #drain()}, which runs on one thread at a time. A publisher error after the
+ * first line has been sent can only cut the response short: it is logged and the response ends.
+ */
+@Slf4j
+class ServletNdjsonSubscriber<T> implements Flow.Subscriber<T> {
+    private final AsyncContext asyncContext;
+    private final ServletOutputStream out;
+    private final ObjectWriter writer;
+    private final int batchSize;
+    private final Queue<byte[]> lines = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final AtomicLong outstanding = new AtomicLong();
+    private volatile Flow.Subscription subscription;
+    private volatile boolean upstreamDone;
+    private volatile boolean finished;
+
+    ServletNdjsonSubscriber(AsyncContext asyncContext, ObjectWriter writer, int batchSize) throws IOException {
+        this.asyncContext = asyncContext;
+        this.out = asyncContext.getResponse().getOutputStream();
+        this.writer = writer;
+        this.batchSize = batchSize;
+        ContainerListener listener = new ContainerListener();
+        asyncContext.addListener(listener);
+        out.setWriteListener(listener);
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (this.subscription != null) {
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+        drain();
+    }
+
+    @Override
+    public void onNext(T item) {
+        try {
+            byte[] json = writer.writeValueAsBytes(item);
+            byte[] line = Arrays.copyOf(json, json.length + 1);
+            line[json.length] = '\n';
+            lines.add(line);
+        } catch (JsonProcessingException e) {
+            log.warn("Cannot serialize {}, ending the response", item, e);
+            cancel();
+            upstreamDone = true;
+        }
+        outstanding.decrementAndGet();
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        log.warn("Stream failed, ending the response", throwable);
+        upstreamDone = true;
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        upstreamDone = true;
+        drain();
+    }
+
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            if (!finished) {
+                try {
+                    write();
+                } catch (IOException | IllegalStateException e) {
+                    log.debug("Client went away", e);
+                    abort();
+                }
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    /**
+     * Writes while the connection takes data. When it does not, the container calls
+     * onWritePossible once it does, which drains again.
+     */
+    private void write() throws IOException {
+        while (out.isReady()) {
+            // read before polling: once set, every line is already queued
+            boolean done = upstreamDone;
+            byte[] line = lines.poll();
+            if (line != null) {
+                out.write(line);
+                continue;
+            }
+            if (done) {
+                finished = true;
+                asyncContext.complete();
+            } else if (subscription != null && outstanding.get() == 0) {
+                outstanding.set(batchSize);
+                subscription.request(batchSize);
+                continue;
+            }
+            return;
+        }
+    }
+
+    private void abort() {
+        finished = true;
+        cancel();
+        lines.clear();
+    }
+
+    private void cancel() {
+        Flow.Subscription current = subscription;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    private class ContainerListener implements WriteListener, AsyncListener {
+        @Override
+        public void onWritePossible() {
+            drain();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            log.debug("Write failed", throwable);
+            abort();
+            asyncContext.complete();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            log.warn("Stream timed out after {} ms", asyncContext.getTimeout());
+            abort();
+            asyncContext.complete();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            abort();
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            abort();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
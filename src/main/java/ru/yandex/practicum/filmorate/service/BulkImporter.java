@@ -0,0 +1,151 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.ImportResult;
+import ru.yandex.practicum.filmorate.model.ImportStatus;
+
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Reads a JSON array or newline-delimited JSON objects item by item, validates each item with
+ * the model's bean-validation constraints and hands the valid ones to the storage in batches.
+ * <p>
+ * Only the current batch is kept in memory. If a batch fails, its items are retried one by one,
+ * so a single bad row is reported as {@link ImportStatus#FAILED} without failing its neighbours.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BulkImporter {
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    @Value("${filmorate.import.batch-size:500}")
+    private int batchSize;
+
+    public <T> List<ImportResult> importItems(InputStream body, Class<T> type,
+                                              UnaryOperator<List<T>> writer, ToIntFunction<T> idGetter) {
+        List<ImportResult> results = new ArrayList<>();
+        List<T> batch = new ArrayList<>();
+        List<ImportResult> batchResults = new ArrayList<>();
+
+        int index = 0;
+        // the item being read, so a parse error inside it is reported against it
+        ImportResult reading = null;
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            JsonToken token = parser.nextToken();
+            boolean array = token == JsonToken.START_ARRAY;
+            if (array) {
+                token = parser.nextToken();
+            }
+            while (token != null && !(array && token == JsonToken.END_ARRAY)) {
+                ImportResult result = ImportResult.builder().index(index++).build();
+                results.add(result);
+                if (token != JsonToken.START_OBJECT) {
+                    rejected(result, "Item is not a JSON object");
+                    parser.skipChildren();
+                    token = parser.nextToken();
+                    continue;
+                }
+                reading = result;
+                JsonNode node = objectMapper.readTree(parser);
+                reading = null;
+                T item = readItem(node, type, result);
+                if (item != null) {
+                    batch.add(item);
+                    batchResults.add(result);
+                }
+                if (batch.size() >= batchSize) {
+                    write(batch, batchResults, writer, idGetter);
+                }
+                token = parser.nextToken();
+            }
+        } catch (JsonProcessingException ex) {
+            log.warn("Import stopped at item {}, body is not valid JSON: {}", index, ex.getOriginalMessage());
+            ImportResult result = reading != null ? reading : ImportResult.builder().index(index).build();
+            if (reading == null) {
+                results.add(result);
+            }
+            rejected(result, "Body is not valid JSON: " + ex.getOriginalMessage());
+        } catch (IOException ex) {
+            throw new ValidationException(ex);
+        }
+        write(batch, batchResults, writer, idGetter);
+        log.info("Imported {} of {} items of type {}", results.stream()
+                .filter(result -> result.getStatus() == ImportStatus.CREATED)
+                .count(), results.size(), type.getSimpleName());
+        return results;
+    }
+
+    private <T> T readItem(JsonNode node, Class<T> type, ImportResult result) {
+        T item;
+        try {
+            item = objectMapper.treeToValue(node, type);
+        } catch (JsonProcessingException ex) {
+            rejected(result, ex.getOriginalMessage());
+            return null;
+        }
+        List<String> errors = validator.validate(item).stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.toList());
+        if (!errors.isEmpty()) {
+            result.setStatus(ImportStatus.INVALID);
+            result.setErrors(errors);
+            return null;
+        }
+        return item;
+    }
+
+    private <T> void write(List<T> batch, List<ImportResult> batchResults,
+                           UnaryOperator<List<T>> writer, ToIntFunction<T> idGetter) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            List<T> written = writer.apply(new ArrayList<>(batch));
+            for (int i = 0; i < written.size(); i++) {
+                created(batchResults.get(i), idGetter.applyAsInt(written.get(i)));
+            }
+        } catch (RuntimeException batchEx) {
+            log.warn("Import batch of {} items failed, retrying item by item: {}", batch.size(), batchEx.getMessage());
+            for (int i = 0; i < batch.size(); i++) {
+                try {
+                    created(batchResults.get(i), idGetter.applyAsInt(writer.apply(List.of(batch.get(i))).get(0)));
+                } catch (RuntimeException ex) {
+                    batchResults.get(i).setStatus(ImportStatus.FAILED);
+                    batchResults.get(i).setErrors(List.of(String.valueOf(ex.getMessage())));
+                }
+            }
+        }
+        batch.clear();
+        batchResults.clear();
+    }
+
+    private static ImportResult rejected(ImportResult result, String error) {
+        result.setStatus(ImportStatus.INVALID);
+        result.setErrors(List.of(error));
+        return result;
+    }
+
+    private static void created(ImportResult result, int id) {
+        result.setStatus(ImportStatus.CREATED);
+        result.setId(id);
+    }
+}
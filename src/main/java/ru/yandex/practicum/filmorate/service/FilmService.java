@@ -4,11 +4,19 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.IncorrectParameterException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.ImportResult;
+import ru.yandex.practicum.filmorate.model.KeysetPage;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.search.FilmSearchField;
+import ru.yandex.practicum.filmorate.storage.film.popular.PopularFilmsRanking;
 
+import java.io.InputStream;
 import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -17,25 +25,49 @@ public class FilmService {
 
     @Qualifier("filmDbStorage")
     private final FilmStorage filmStorage;
+    private final Optional<PopularFilmsRanking> popularFilmsRanking;
+    private final BulkImporter bulkImporter;
 
     public Collection<Film> getAllFilms() {
         return filmStorage.getAllFilms();
     }
 
+    public Stream<Film> streamFilms() {
+        return filmStorage.streamFilms();
+    }
+
+    public KeysetPage<Film> getFilms(int afterId, Integer limit) {
+        KeysetPage.checkLimit(limit);
+        return KeysetPage.of(filmStorage.getFilms(afterId, limit + 1), limit, Film::getId);
+    }
+
     public Film getFilmById(int id) {
         return filmStorage.getFilmById(id);
     }
 
     public Film createFilm(Film film) {
-        return filmStorage.createFilm(film);
+        Film created = filmStorage.createFilm(film);
+        popularFilmsRanking.ifPresent(ranking -> ranking.addFilm(created));
+        return created;
+    }
+
+    public List<ImportResult> importFilms(InputStream body) {
+        return bulkImporter.importItems(body, Film.class, films -> {
+            List<Film> created = filmStorage.createFilms(films);
+            popularFilmsRanking.ifPresent(ranking -> created.forEach(ranking::addFilm));
+            return created;
+        }, Film::getId);
     }
 
     public Film updateFilm(Film film) {
-        return filmStorage.updateFilm(film);
+        Film updated = filmStorage.updateFilm(film);
+        popularFilmsRanking.ifPresent(ranking -> ranking.updateFilm(updated));
+        return updated;
     }
 
     public void deleteFilmById(int id) {
         filmStorage.deleteFilmById(id);
+        popularFilmsRanking.ifPresent(ranking -> ranking.removeFilm(id));
     }
 
     public void addLike(int filmId, int userId) {
@@ -46,7 +78,32 @@ public class FilmService {
         filmStorage.deleteLike(filmId, userId);
     }
 
-    public List<Film> getPopularFilms(Integer count) {
-        return filmStorage.getPopularFilms(count);
+    public List<Film> getPopularFilms(Integer count, Integer genreId, Integer year) {
+        if (genreId != null && genreId <= 0) {
+            log.info("'GenreId' is not positive");
+            throw new IncorrectParameterException("'GenreId' must be positive");
+        }
+        if (year != null && year <= 0) {
+            log.info("'Year' is not positive");
+            throw new IncorrectParameterException("'Year' must be positive");
+        }
+        if (popularFilmsRanking.isPresent()) {
+            return filmStorage.getFilmsByIds(popularFilmsRanking.get().getPopularFilmIds(count, genreId, year));
+        }
+        return filmStorage.getPopularFilms(count, genreId, year);
+    }
+
+    public List<Film> searchFilms(String query, String by, Integer limit) {
+        if (query == null || query.isBlank()) {
+            log.info("'Query' is empty");
+            throw new IncorrectParameterException("'Query' is empty");
+        }
+        KeysetPage.checkLimit(limit);
+        return filmStorage.searchFilms(query, FilmSearchField.parse(by), limit);
+    }
+
+    public List<Film> getRecommendations(int userId, Integer limit) {
+        KeysetPage.checkLimit(limit);
+        return filmStorage.getRecommendations(userId, limit);
     }
 }
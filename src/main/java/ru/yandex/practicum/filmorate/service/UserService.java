@@ -4,11 +4,15 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.model.ImportResult;
+import ru.yandex.practicum.filmorate.model.KeysetPage;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
+import java.io.InputStream;
 import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -16,16 +20,33 @@ import java.util.List;
 public class UserService {
     @Qualifier("userDbStorage")
     private final UserStorage userStorage;
+    private final BulkImporter bulkImporter;
 
     public Collection<User> getUsers() {
         return userStorage.getUsers();
     }
 
+    public Stream<User> streamUsers() {
+        return userStorage.streamUsers();
+    }
+
+    public KeysetPage<User> getUsers(int afterId, Integer limit) {
+        KeysetPage.checkLimit(limit);
+        return KeysetPage.of(userStorage.getUsers(afterId, limit + 1), limit, User::getId);
+    }
+
     public User createUser(User user) {
         validation(user);
         return userStorage.createUser(user);
     }
 
+    public List<ImportResult> importUsers(InputStream body) {
+        return bulkImporter.importItems(body, User.class, users -> {
+            users.forEach(this::validation);
+            return userStorage.createUsers(users);
+        }, User::getId);
+    }
+
     public User updateUser(User user) {
         validation(user);
         return userStorage.updateUser(user);
@@ -55,6 +76,16 @@ public class UserService {
         return userStorage.getFriendList(userId);
     }
 
+    public KeysetPage<User> getFriendList(int userId, int afterId, Integer limit) {
+        KeysetPage.checkLimit(limit);
+        return KeysetPage.of(userStorage.getFriendList(userId, afterId, limit + 1), limit, User::getId);
+    }
+
+    public List<User> getRecommendations(int userId, Integer limit) {
+        KeysetPage.checkLimit(limit);
+        return userStorage.getRecommendations(userId, limit);
+    }
+
     private void validation(User user) {
         if (user.getName() == null || user.getName().isBlank()) {
             log.info("Name is empty. Login is set as Name");
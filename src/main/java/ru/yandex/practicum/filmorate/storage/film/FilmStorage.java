@@ -1,26 +1,54 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.search.FilmSearchField;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public interface FilmStorage {
 
     Collection<Film> getAllFilms();
 
+    Stream<Film> streamFilms();
+
+    List<Film> getFilms(int afterId, int limit);
+
     Film getFilmById(int id);
 
     Film createFilm(Film film);
 
+    List<Film> createFilms(List<Film> films);
+
     Film updateFilm(Film film);
 
     void deleteFilmById(int id);
 
-    void addLike(int filmId, int userId);
+    List<Film> getFilmsByIds(List<Integer> ids);
+
+    boolean addLike(int filmId, int userId);
+
+    boolean deleteLike(int filmId, int userId);
+
+    /**
+     * @param genreId only films of this genre, or {@code null} for any
+     * @param year    only films released this year, or {@code null} for any
+     */
+    List<Film> getPopularFilms(Integer count, Integer genreId, Integer year);
+
+    Map<Integer, Integer> getLikesCounts();
+
+    /**
+     * Registers a listener told the like count of a film after every change of its likes, in
+     * the order the changes of that film were committed.
+     */
+    void addLikesCountListener(LikesCountListener listener);
 
-    void deleteLike(int filmId, int userId);
+    List<Film> getRecommendations(int userId, int limit);
 
-    List<Film> getPopularFilms(Integer count);
+    List<Film> searchFilms(String query, Set<FilmSearchField> by, int limit);
 
 }
@@ -0,0 +1,11 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+@FunctionalInterface
+public interface LikesCountListener {
+
+    /**
+     * @param likes the film's like count once a change of its likes is committed
+     */
+    void likesCounted(int filmId, int likes);
+
+}
@@ -1,29 +1,85 @@
 package ru.yandex.practicum.filmorate.storage.film.impl;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.codec.BinaryReader;
+import ru.yandex.practicum.filmorate.codec.BinaryWriter;
+import ru.yandex.practicum.filmorate.codec.ModelDecoder;
+import ru.yandex.practicum.filmorate.codec.ModelEncoder;
 import ru.yandex.practicum.filmorate.exception.IncorrectParameterException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
-import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.LikesCountListener;
+import ru.yandex.practicum.filmorate.storage.film.search.FilmSearchField;
+import ru.yandex.practicum.filmorate.storage.film.search.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.graph.LikeCoOccurrence;
+import ru.yandex.practicum.filmorate.storage.wal.StorageJournal;
 
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Safe for concurrent use. Likes are kept apart from the films in a {@link LikeCoOccurrence}
+ * graph, so replacing a film on update never touches its likes.
+ * <p>
+ * Changes go through a {@link StorageJournal}, which keeps them across restarts when
+ * {@code filmorate.memory-storage.data-dir} is set.
+ */
 @Slf4j
 @Component("inMemoryFilmStorage")
-public class InMemoryFilmStorage implements FilmStorage {
+public class InMemoryFilmStorage implements FilmStorage, StorageJournal.State {
+    private static final byte CREATE_FILM = 1;
+    private static final byte PUT_FILM = 2;
+    private static final byte DELETE_FILM = 3;
+    private static final byte ADD_LIKE = 4;
+    private static final byte DELETE_LIKE = 5;
 
-    private final Map<Integer, Film> films = new HashMap<>();
+    private final ConcurrentNavigableMap<Integer, Film> films = new ConcurrentSkipListMap<>();
 
-    private int id = 0;
+    private final LikeCoOccurrence likes = new LikeCoOccurrence();
+
+    private final FilmSearchIndex searchIndex = new FilmSearchIndex();
+
+    private final List<LikesCountListener> likesCountListeners = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger id = new AtomicInteger();
+
+    private final StorageJournal journal;
+
+    public InMemoryFilmStorage() {
+        this(StorageJournal.disabled());
+    }
+
+    @Autowired
+    public InMemoryFilmStorage(@Qualifier("filmStorageJournal") StorageJournal journal) {
+        this.journal = journal;
+    }
+
+    @PostConstruct
+    public void recover() throws IOException {
+        journal.open(this);
+    }
 
     private int createId() {
-        return ++id;
+        return id.incrementAndGet();
     }
 
     @Override
@@ -31,48 +87,85 @@ public class InMemoryFilmStorage implements FilmStorage {
         return new ArrayList<>(films.values());
     }
 
+    @Override
+    public Stream<Film> streamFilms() {
+        return films.values().stream();
+    }
+
+    @Override
+    public List<Film> getFilms(int afterId, int limit) {
+        return films.tailMap(afterId, false).values().stream()
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
     @Override
     public Film getFilmById(int id) {
-        if (films.get(id) != null) {
-            return films.get(id);
-        } else {
+        Film film = films.get(id);
+        if (film == null) {
             throw new NotFoundException("Film ID " + id + "is not found");
         }
+        return film;
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(List<Integer> ids) {
+        return ids.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
 
     @Override
     public Film createFilm(Film film) {
-        try {
+        Set<Integer> likers = film.getLikesList();
+        film.setLikesList(null);
+        return journal.write(() -> {
             film.setId(createId());
-            films.put(film.getId(), film);
+            likers.forEach(userId -> likes.addLike(film.getId(), userId));
+            putFilm(film);
             log.info("Film <<{}>> is created", film.getName());
-        } catch (ValidationException ex) {
-            log.error(ex.getMessage());
-            throw new ValidationException(ex);
-        }
-        return film;
+            return film;
+        }, (created, out) -> {
+            out.writeByte(CREATE_FILM);
+            ModelEncoder encoder = new ModelEncoder(out);
+            encoder.writeFilm(created);
+            encoder.writeIds(likers);
+        });
+    }
+
+    @Override
+    public List<Film> createFilms(List<Film> films) {
+        films.forEach(this::createFilm);
+        return films;
     }
 
     @Override
     public Film updateFilm(Film film) {
-        try {
-            if (films.containsKey(film.getId())) {
-                films.replace(film.getId(), film);
-                log.info("Film <<{}>> is updated", film.getName());
-            } else {
+        film.setLikesList(null);
+        return journal.write(() -> {
+            if (films.replace(film.getId(), film) == null) {
+                log.error("There is no such film");
                 throw new NotFoundException("There is no such film");
             }
-        } catch (NotFoundException ex) {
-            log.error(ex.getMessage());
-            throw new NotFoundException(ex.getMessage());
-        }
-        return film;
+            searchIndex.put(film.getId(), film.getName(), film.getDescription());
+            log.info("Film <<{}>> is updated", film.getName());
+            return film;
+        }, (updated, out) -> {
+            out.writeByte(PUT_FILM);
+            new ModelEncoder(out).writeFilm(updated);
+        });
     }
 
     @Override
     public void deleteFilmById(int id) {
-        if (films.containsKey(id)) {
-            films.remove(id);
+        boolean deleted = journal.write(() -> removeFilm(id), (removed, out) -> {
+            if (removed) {
+                out.writeByte(DELETE_FILM);
+                out.writeVarint(id);
+            }
+        });
+        if (deleted) {
             log.info("Film ID <<{}>> is deleted", id);
         } else {
             log.info("Film ID <<{}>> is not found", id);
@@ -80,27 +173,31 @@ public class InMemoryFilmStorage implements FilmStorage {
     }
 
     @Override
-    public void addLike(int filmId, int userId) {
-        if (films.containsKey(id)) {
-            films.get(filmId).getLikesList().add(userId);
+    public boolean addLike(int filmId, int userId) {
+        return likesCounted(filmId, journal.write(() -> {
+            if (!films.containsKey(filmId)) {
+                log.info("Film ID <<{}>> is not found", filmId);
+                return false;
+            }
             log.info("User ID {} added like to film ID {}", userId, filmId);
-        } else {
-            log.info("Film ID <<{}>> is not found", id);
-        }
+            return likes.addLike(filmId, userId);
+        }, (added, out) -> writeLike(out, added, ADD_LIKE, filmId, userId)));
     }
 
     @Override
-    public void deleteLike(int filmId, int userId) {
-        if (films.containsKey(filmId)) {
-            films.get(filmId).getLikesList().remove(userId);
+    public boolean deleteLike(int filmId, int userId) {
+        return likesCounted(filmId, journal.write(() -> {
+            if (!films.containsKey(filmId)) {
+                log.info("Film ID <<{}>> is not found", filmId);
+                return false;
+            }
             log.info("User ID {} deleted like of film ID {}", userId, filmId);
-        } else {
-            log.info("Film ID <<{}>> is not found", id);
-        }
+            return likes.deleteLike(filmId, userId);
+        }, (deleted, out) -> writeLike(out, deleted, DELETE_LIKE, filmId, userId)));
     }
 
     @Override
-    public List<Film> getPopularFilms(Integer count) {
+    public List<Film> getPopularFilms(Integer count, Integer genreId, Integer year) {
         if (count == null) {
             log.info("'Count' is null");
             throw new IncorrectParameterException("'Count' is null");
@@ -110,9 +207,145 @@ public class InMemoryFilmStorage implements FilmStorage {
             throw new IncorrectParameterException("'Count' is negative value");
         }
 
+        // like counts are read once per film, so concurrent likes cannot break the sort order contract;
+        // ties go by id, as in FilmDbStorage
         return films.values().stream()
-                .sorted((f1, f2) -> Integer.compare(f2.getLikesList().size(), f1.getLikesList().size()))
+                .filter(film -> genreId == null || film.getGenres() != null && film.getGenres().stream()
+                        .anyMatch(genre -> genre.getId() == genreId))
+                .filter(film -> year == null || film.getReleaseDate() != null && film.getReleaseDate().getYear() == year)
+                .map(film -> new AbstractMap.SimpleImmutableEntry<>(film, likes.likesCount(film.getId())))
+                .sorted(Comparator.comparing((Map.Entry<Film, Integer> entry) -> entry.getValue()).reversed()
+                        .thenComparing(entry -> entry.getKey().getId()))
                 .limit(count)
+                .map(Map.Entry::getKey)
                 .collect(Collectors.toList());
     }
+
+    @Override
+    public List<Film> getRecommendations(int userId, int limit) {
+        return Arrays.stream(likes.recommend(userId, limit))
+                .mapToObj(films::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Film> searchFilms(String query, Set<FilmSearchField> by, int limit) {
+        return Arrays.stream(searchIndex.search(query, by, limit, likes::likesCount))
+                .mapToObj(films::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Map<Integer, Integer> getLikesCounts() {
+        return films.values().stream()
+                .collect(Collectors.toMap(Film::getId, film -> likes.likesCount(film.getId())));
+    }
+
+    @Override
+    public void addLikesCountListener(LikesCountListener listener) {
+        likesCountListeners.add(listener);
+    }
+
+    @Override
+    public void writeSnapshot(BinaryWriter out) {
+        out.writeVarint(id.get());
+        // one encoder for the whole snapshot, so every genre and rating is written in full once
+        ModelEncoder encoder = new ModelEncoder(out);
+        for (Film film : films.values()) {
+            out.writeByte(1);
+            encoder.writeFilm(film);
+            encoder.writeIds(likes.likers(film.getId()));
+        }
+        out.writeByte(0);
+    }
+
+    @Override
+    public void readSnapshot(ByteBuffer buffer) {
+        BinaryReader in = new BinaryReader(buffer);
+        ModelDecoder decoder = new ModelDecoder(buffer);
+        id.set(in.readVarint());
+        while (in.readByte() != 0) {
+            Film film = decoder.readFilm();
+            putFilm(film);
+            for (int userId : decoder.readIds()) {
+                likes.addLike(film.getId(), userId);
+            }
+        }
+    }
+
+    @Override
+    public void replay(ByteBuffer record) {
+        BinaryReader in = new BinaryReader(record);
+        int type = in.readByte();
+        switch (type) {
+            case CREATE_FILM:
+                ModelDecoder decoder = new ModelDecoder(record);
+                Film film = decoder.readFilm();
+                id.accumulateAndGet(film.getId(), Math::max);
+                putFilm(film);
+                for (int userId : decoder.readIds()) {
+                    likes.addLike(film.getId(), userId);
+                }
+                break;
+            case PUT_FILM:
+                putFilm(new ModelDecoder(record).readFilm());
+                break;
+            case DELETE_FILM:
+                removeFilm(in.readVarint());
+                break;
+            case ADD_LIKE:
+            case DELETE_LIKE:
+                int filmId = in.readVarint();
+                int userId = in.readVarint();
+                if (films.containsKey(filmId)) {
+                    if (type == ADD_LIKE) {
+                        likes.addLike(filmId, userId);
+                    } else {
+                        likes.deleteLike(filmId, userId);
+                    }
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown film record type " + type);
+        }
+    }
+
+    private void putFilm(Film film) {
+        films.put(film.getId(), film);
+        searchIndex.put(film.getId(), film.getName(), film.getDescription());
+    }
+
+    private boolean removeFilm(int id) {
+        if (films.remove(id) == null) {
+            return false;
+        }
+        likes.deleteFilm(id);
+        searchIndex.remove(id);
+        return true;
+    }
+
+    /**
+     * Tells the listeners the film's like count after a change. It is read under the film's lock,
+     * so of concurrent changes the last one told gives the count after all of them.
+     */
+    private boolean likesCounted(int filmId, boolean changed) {
+        if (changed && !likesCountListeners.isEmpty()) {
+            likes.locked(filmId, () -> {
+                int count = likes.likesCount(filmId);
+                likesCountListeners.forEach(listener -> listener.likesCounted(filmId, count));
+                return null;
+            });
+        }
+        return changed;
+    }
+
+    private static void writeLike(BinaryWriter out, boolean changed, byte type, int filmId, int userId) {
+        if (changed) {
+            out.writeByte(type);
+            out.writeVarint(filmId);
+            out.writeVarint(userId);
+        }
+    }
 }
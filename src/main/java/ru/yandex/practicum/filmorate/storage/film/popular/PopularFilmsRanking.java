@@ -0,0 +1,214 @@
+package ru.yandex.practicum.filmorate.storage.film.popular;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.IncorrectParameterException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+
+/**
+ * Live ranking of films by like count, used by {@code FilmService} instead of the SQL query
+ * when {@code filmorate.popular-films.engine=memory}.
+ * <p>
+ * Every film is kept in a skip list ordered by (likes desc, film id asc), so an update is
+ * O(log n) and the top K are the first K entries. Updates of one film are serialized by
+ * {@link ConcurrentHashMap#compute}; the new position is inserted before the old one is
+ * removed, so readers may briefly see a film twice but never miss it.
+ * <p>
+ * Like counts come from the storage: it tells the ranking the committed count of a film after
+ * each change of its likes, in commit order, so no change is counted from a write that failed.
+ * A film may be liked before {@link #addFilm} is called for it; it is then ranked among all films
+ * only, until {@code addFilm} puts it in its other slices with the likes counted so far.
+ * <p>
+ * There is one such skip list per slice: all films, every genre, every release year and every
+ * (genre, year) pair. A film sits in each slice it belongs to, so a filtered top K is still the
+ * first K entries of a single list.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "filmorate.popular-films.engine", havingValue = "memory")
+public class PopularFilmsRanking {
+    private static final long[] NO_SLICES = new long[0];
+    private static final long[] ALL_FILMS = {slice(null, null)};
+
+    private final FilmStorage filmStorage;
+    private final Map<Integer, RankedFilm> films = new ConcurrentHashMap<>();
+    private final Map<Long, ConcurrentSkipListSet<Long>> rankings = new ConcurrentHashMap<>();
+
+    public PopularFilmsRanking(@Qualifier("filmDbStorage") FilmStorage filmStorage) {
+        this.filmStorage = filmStorage;
+        filmStorage.addLikesCountListener(this::setLikes);
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        films.clear();
+        rankings.clear();
+        Map<Integer, Integer> likesCounts = filmStorage.getLikesCounts();
+        try (Stream<Film> stored = filmStorage.streamFilms()) {
+            stored.forEach(film -> {
+                RankedFilm ranked = new RankedFilm(likesCounts.getOrDefault(film.getId(), 0), slices(film));
+                films.put(film.getId(), ranked);
+                ranked.addTo(this, film.getId());
+            });
+        }
+        log.info("Popular films ranking is rebuilt for {} films", films.size());
+    }
+
+    public void addFilm(Film film) {
+        films.compute(film.getId(), (id, old) -> {
+            RankedFilm ranked = new RankedFilm(old == null ? 0 : old.likes, slices(film));
+            ranked.addTo(this, id);
+            if (old != null) {
+                old.removeFrom(this, id, ranked.slices);
+            }
+            return ranked;
+        });
+    }
+
+    /**
+     * Moves the film to the slices of its new genres and release year.
+     */
+    public void updateFilm(Film film) {
+        films.computeIfPresent(film.getId(), (id, old) -> {
+            RankedFilm updated = new RankedFilm(old.likes, slices(film));
+            updated.addTo(this, id);
+            old.removeFrom(this, id, updated.slices);
+            return updated;
+        });
+    }
+
+    public void removeFilm(int filmId) {
+        films.computeIfPresent(filmId, (id, old) -> {
+            old.removeFrom(this, id, NO_SLICES);
+            return null;
+        });
+    }
+
+    public void setLikes(int filmId, int likes) {
+        films.compute(filmId, (id, old) -> {
+            if (old != null && likes == old.likes) {
+                return old;
+            }
+            RankedFilm updated = new RankedFilm(likes, old == null ? ALL_FILMS : old.slices);
+            updated.addTo(this, id);
+            if (old != null) {
+                old.removeFrom(this, id, NO_SLICES);
+            }
+            return updated;
+        });
+    }
+
+    /**
+     * @param genreId only films of this genre, or {@code null} for any
+     * @param year    only films released this year, or {@code null} for any
+     */
+    public List<Integer> getPopularFilmIds(Integer count, Integer genreId, Integer year) {
+        if (count == null) {
+            log.info("'Count' is null");
+            throw new IncorrectParameterException("'Count' is null");
+        }
+        if (count <= 0) {
+            log.info("'Count' is negative value");
+            throw new IncorrectParameterException("'Count' is negative value");
+        }
+        ConcurrentSkipListSet<Long> ranking = rankings.get(slice(genreId, year));
+        if (ranking == null) {
+            return Collections.emptyList();
+        }
+        Set<Integer> filmIds = new LinkedHashSet<>();
+        Iterator<Long> iterator = ranking.iterator();
+        while (filmIds.size() < count && iterator.hasNext()) {
+            filmIds.add(filmId(iterator.next()));
+        }
+        return new ArrayList<>(filmIds);
+    }
+
+    private ConcurrentSkipListSet<Long> ranking(long slice) {
+        return rankings.computeIfAbsent(slice, s -> new ConcurrentSkipListSet<>());
+    }
+
+    /**
+     * @return sorted slices the film belongs to, the all-films slice included
+     */
+    private static long[] slices(Film film) {
+        List<Integer> genreIds = new ArrayList<>();
+        genreIds.add(null);
+        if (film.getGenres() != null) {
+            film.getGenres().stream()
+                    .map(Genre::getId)
+                    .distinct()
+                    .forEach(genreIds::add);
+        }
+        List<Integer> years = new ArrayList<>();
+        years.add(null);
+        if (film.getReleaseDate() != null) {
+            years.add(film.getReleaseDate().getYear());
+        }
+        long[] slices = new long[genreIds.size() * years.size()];
+        int i = 0;
+        for (Integer genreId : genreIds) {
+            for (Integer year : years) {
+                slices[i++] = slice(genreId, year);
+            }
+        }
+        Arrays.sort(slices);
+        return slices;
+    }
+
+    private static long slice(Integer genreId, Integer year) {
+        return ((long) (genreId == null ? 0 : genreId) << 32) | (year == null ? 0 : year);
+    }
+
+    private static long key(int filmId, int likes) {
+        return ((long) (Integer.MAX_VALUE - likes) << 32) | filmId;
+    }
+
+    private static int filmId(long key) {
+        return (int) key;
+    }
+
+    private static final class RankedFilm {
+        private final int likes;
+        private final long[] slices;
+
+        private RankedFilm(int likes, long[] slices) {
+            this.likes = likes;
+            this.slices = slices;
+        }
+
+        private void addTo(PopularFilmsRanking owner, int filmId) {
+            for (long slice : slices) {
+                owner.ranking(slice).add(key(filmId, likes));
+            }
+        }
+
+        /**
+         * Removes the film's entries from all its slices but {@code keptSlices}, where an update
+         * with an unchanged like count has just re-added the very same entry.
+         */
+        private void removeFrom(PopularFilmsRanking owner, int filmId, long[] keptSlices) {
+            for (long slice : slices) {
+                if (Arrays.binarySearch(keptSlices, slice) < 0) {
+                    owner.ranking(slice).remove(key(filmId, likes));
+                }
+            }
+        }
+    }
+}
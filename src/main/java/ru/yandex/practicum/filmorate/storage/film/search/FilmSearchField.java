@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.storage.film.search;
+
+import ru.yandex.practicum.filmorate.exception.IncorrectParameterException;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+public enum FilmSearchField {
+    TITLE(2),
+    DESCRIPTION(1);
+
+    private final int weight;
+
+    FilmSearchField(int weight) {
+        this.weight = weight;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    /**
+     * @param by comma-separated field names, e.g. {@code title,description}
+     */
+    public static Set<FilmSearchField> parse(String by) {
+        Set<FilmSearchField> fields = EnumSet.noneOf(FilmSearchField.class);
+        for (String name : by.split(",")) {
+            try {
+                fields.add(valueOf(name.trim().toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException ex) {
+                throw new IncorrectParameterException("'By' must list title and/or description");
+            }
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,174 @@
+package ru.yandex.practicum.filmorate.storage.film.search;
+
+import ru.yandex.practicum.filmorate.storage.graph.IntAdjacencyStore;
+import ru.yandex.practicum.filmorate.storage.graph.IntCounter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntUnaryOperator;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Inverted index over film titles and descriptions. Text is split on anything but letters and
+ * digits and case-folded, with Cyrillic "ё" folded to "е". Writes are serialized; searches run
+ * concurrently with them.
+ * <p>
+ * Every query token must match a term of a searched field, either exactly or as a prefix of at most
+ * {@link #MAX_PREFIX_TERMS} terms. A match scores the field weight, doubled for an exact match, and
+ * the summed relevance of a film is multiplied by {@code 1 + ln(1 + likes)}.
+ */
+public class FilmSearchIndex {
+    public static final int MAX_PREFIX_TERMS = 64;
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int FIELDS = FilmSearchField.values().length;
+    private static final int EXACT_MATCH_BOOST = 2;
+    /**
+     * Scores are kept as ints; this keeps the like-count factor from collapsing to whole numbers.
+     */
+    private static final int SCORE_SCALE = 16;
+    private static final double[] LIKES_FACTORS = new double[1024];
+
+    static {
+        for (int likes = 0; likes < LIKES_FACTORS.length; likes++) {
+            LIKES_FACTORS[likes] = SCORE_SCALE * (1 + Math.log1p(likes));
+        }
+    }
+
+    private final ConcurrentNavigableMap<String, Integer> termIds = new ConcurrentSkipListMap<>();
+    private final AtomicInteger nextTermId = new AtomicInteger();
+    /**
+     * Posting key (term id * {@link #FIELDS} + field ordinal) to ids of the films containing it.
+     */
+    private final IntAdjacencyStore postings = new IntAdjacencyStore();
+    /**
+     * Film id to its posting keys, so a film can be unindexed without its old text.
+     */
+    private final IntAdjacencyStore filmPostings = new IntAdjacencyStore();
+
+    public synchronized void put(int filmId, String title, String description) {
+        remove(filmId);
+        index(filmId, FilmSearchField.TITLE, title);
+        index(filmId, FilmSearchField.DESCRIPTION, description);
+    }
+
+    public synchronized void remove(int filmId) {
+        for (int postingKey : filmPostings.neighbours(filmId)) {
+            postings.remove(postingKey, filmId);
+        }
+        filmPostings.removeNode(filmId);
+    }
+
+    /**
+     * @param likesCount like count of a film id
+     * @return ids of at most {@code limit} matching films, best score first, then by id
+     */
+    public int[] search(String query, Set<FilmSearchField> fields, int limit, IntUnaryOperator likesCount) {
+        List<String> tokens = tokenize(query).stream().distinct().collect(Collectors.toList());
+        if (tokens.isEmpty() || fields.isEmpty()) {
+            return new int[0];
+        }
+        int maxFilmId = postings.maxNeighbourId();
+        List<IntCounter> matches = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            IntCounter relevance = match(token, fields, maxFilmId);
+            if (relevance.size() == 0) {
+                return new int[0];
+            }
+            matches.add(relevance);
+        }
+        matches.sort(Comparator.comparingInt(IntCounter::size));
+
+        // films must match every token, so the rarest token bounds the candidates
+        IntCounter rarest = matches.get(0);
+        return rarest.top(limit, (filmId, relevance) -> {
+            int total = relevance;
+            for (int i = 1; i < matches.size(); i++) {
+                int other = matches.get(i).get(filmId);
+                if (other == 0) {
+                    return -1;
+                }
+                total += other;
+            }
+            return (int) Math.round(total * likesFactor(likesCount.applyAsInt(filmId)));
+        });
+    }
+
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String folded = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        for (String token : SEPARATORS.split(folded)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private void index(int filmId, FilmSearchField field, String text) {
+        for (String token : tokenize(text)) {
+            int termId = termIds.computeIfAbsent(token, t -> nextTermId.getAndIncrement());
+            int postingKey = postingKey(termId, field);
+            postings.add(postingKey, filmId);
+            filmPostings.add(filmId, postingKey);
+        }
+    }
+
+    private IntCounter match(String token, Set<FilmSearchField> fields, int maxFilmId) {
+        List<Integer> postingKeys = new ArrayList<>();
+        List<Integer> weights = new ArrayList<>();
+        Integer exactTermId = termIds.get(token);
+        if (exactTermId != null) {
+            for (FilmSearchField field : fields) {
+                postingKeys.add(postingKey(exactTermId, field));
+                weights.add(field.getWeight() * EXACT_MATCH_BOOST);
+            }
+        }
+        int expanded = 0;
+        for (int termId : termIds.subMap(token, false, token + Character.MAX_VALUE, false).values()) {
+            if (expanded++ == MAX_PREFIX_TERMS) {
+                break;
+            }
+            for (FilmSearchField field : fields) {
+                postingKeys.add(postingKey(termId, field));
+                weights.add(field.getWeight());
+            }
+        }
+
+        int expectedSize = 0;
+        for (int postingKey : postingKeys) {
+            expectedSize += postings.degree(postingKey);
+        }
+        IntCounter relevance = newCounter(expectedSize, maxFilmId);
+        for (int i = 0; i < postingKeys.size(); i++) {
+            int weight = weights.get(i);
+            postings.forEachNeighbour(postingKeys.get(i), Integer.MAX_VALUE, filmId -> relevance.increment(filmId, weight));
+        }
+        return relevance;
+    }
+
+    /**
+     * A dense counter zeroes 4 bytes per film id, which only pays off when a good share of them is counted.
+     */
+    private static IntCounter newCounter(int expectedSize, int maxFilmId) {
+        return new IntCounter(expectedSize, expectedSize * 32L < maxFilmId ? Integer.MAX_VALUE : maxFilmId);
+    }
+
+    private static double likesFactor(int likes) {
+        return likes < LIKES_FACTORS.length ? LIKES_FACTORS[likes] : SCORE_SCALE * (1 + Math.log1p(likes));
+    }
+
+    private static int postingKey(int termId, FilmSearchField field) {
+        return termId * FIELDS + field.ordinal();
+    }
+}
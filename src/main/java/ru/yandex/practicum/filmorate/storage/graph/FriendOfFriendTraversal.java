@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.storage.graph;
+
+import java.util.Arrays;
+
+/**
+ * "People you may know": ranks second-degree contacts of a user by the number of friends they share.
+ * <p>
+ * The two-hop walk is bounded: at most {@link #MAX_FRIENDS} friends of the user are expanded, and at
+ * most {@link #MAX_FRIENDS_OF_FRIEND} contacts are sampled from each of them, so a user who follows a
+ * celebrity does not pull the celebrity's whole audience into the walk. The per-friend cap shrinks
+ * further so that one walk visits at most {@link #MAX_EDGES} edges.
+ */
+public final class FriendOfFriendTraversal {
+    public static final int MAX_FRIENDS = 5_000;
+    public static final int MAX_FRIENDS_OF_FRIEND = 500;
+    public static final int MAX_EDGES = 250_000;
+
+    private FriendOfFriendTraversal() {
+    }
+
+    /**
+     * @return ids of at most {@code limit} recommended users, most mutual friends first, then by id
+     */
+    public static int[] recommend(IntAdjacencyStore graph, int userId, int limit) {
+        int[] friends = graph.neighbours(userId);
+        if (friends.length == 0) {
+            return new int[0];
+        }
+        IntCounter mutual = TwoHopWalk.count(graph, friends, MAX_FRIENDS, MAX_FRIENDS_OF_FRIEND, MAX_EDGES);
+        return mutual.top(limit,
+                candidate -> candidate == userId || Arrays.binarySearch(friends, candidate) >= 0);
+    }
+}
@@ -0,0 +1,147 @@
+package ru.yandex.practicum.filmorate.storage.graph;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Directed graph over int ids that keeps the neighbours of every node in a sorted {@code int[]}.
+ * An edge costs about four bytes instead of a boxed {@code Integer} plus a hash set entry, and
+ * the degree of a node is available without counting.
+ * <p>
+ * Safe for concurrent use: each node is guarded by its own monitor and readers get sorted copies.
+ */
+public class IntAdjacencyStore {
+    private static final int[] EMPTY = new int[0];
+
+    private final ConcurrentHashMap<Integer, Node> nodes = new ConcurrentHashMap<>();
+    private final AtomicInteger maxId = new AtomicInteger();
+
+    /**
+     * @return {@code true} if the edge was not present before
+     */
+    public boolean add(int from, int to) {
+        if (to > maxId.get()) {
+            maxId.accumulateAndGet(to, Math::max);
+        }
+        return nodes.computeIfAbsent(from, id -> new Node()).add(to);
+    }
+
+    /**
+     * @return {@code true} if the edge was present before
+     */
+    public boolean remove(int from, int to) {
+        Node node = nodes.get(from);
+        return node != null && node.remove(to);
+    }
+
+    public boolean contains(int from, int to) {
+        Node node = nodes.get(from);
+        return node != null && node.contains(to);
+    }
+
+    /**
+     * @return the largest id ever added as a neighbour, or 0 for an empty store
+     */
+    public int maxNeighbourId() {
+        return maxId.get();
+    }
+
+    public int degree(int from) {
+        Node node = nodes.get(from);
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * @return neighbours of the node in ascending order
+     */
+    public int[] neighbours(int from) {
+        return neighbours(from, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return at most {@code limit} neighbours greater than {@code afterId}, in ascending order
+     */
+    public int[] neighbours(int from, int afterId, int limit) {
+        Node node = nodes.get(from);
+        return node == null ? EMPTY : node.slice(afterId, limit);
+    }
+
+    /**
+     * Passes at most {@code limit} neighbours of the node to the consumer without copying them.
+     * When the node has more, they are sampled at an even stride over the sorted list.
+     * The consumer runs under the node's monitor and must not touch this store.
+     */
+    public void forEachNeighbour(int from, int limit, IntConsumer consumer) {
+        Node node = nodes.get(from);
+        if (node != null) {
+            node.forEach(limit, consumer);
+        }
+    }
+
+    /**
+     * @return neighbours shared by both nodes, in ascending order
+     * @see IntSetIntersection#intersect(int[], int[])
+     */
+    public int[] intersect(int first, int second) {
+        return IntSetIntersection.intersect(neighbours(first), neighbours(second));
+    }
+
+    public void removeNode(int from) {
+        nodes.remove(from);
+    }
+
+    private static final class Node {
+        private static final int INITIAL_CAPACITY = 4;
+
+        private int[] values = new int[INITIAL_CAPACITY];
+        private volatile int size;
+
+        synchronized boolean add(int value) {
+            int index = Arrays.binarySearch(values, 0, size, value);
+            if (index >= 0) {
+                return false;
+            }
+            index = -index - 1;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size + (size >> 1) + 1);
+            }
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = value;
+            size++;
+            return true;
+        }
+
+        synchronized boolean remove(int value) {
+            int index = Arrays.binarySearch(values, 0, size, value);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(values, index + 1, values, index, size - index - 1);
+            size--;
+            if (values.length > INITIAL_CAPACITY && size < values.length >> 2) {
+                values = Arrays.copyOf(values, Math.max(INITIAL_CAPACITY, size << 1));
+            }
+            return true;
+        }
+
+        synchronized boolean contains(int value) {
+            return Arrays.binarySearch(values, 0, size, value) >= 0;
+        }
+
+        synchronized void forEach(int limit, IntConsumer consumer) {
+            int step = size <= limit ? 1 : (size + limit - 1) / limit;
+            for (int i = 0; i < size; i += step) {
+                consumer.accept(values[i]);
+            }
+        }
+
+        synchronized int[] slice(int afterId, int limit) {
+            int from = Arrays.binarySearch(values, 0, size, afterId);
+            from = from >= 0 ? from + 1 : -from - 1;
+            int to = (int) Math.min(size, (long) from + limit);
+            return from >= to ? EMPTY : Arrays.copyOfRange(values, from, to);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.storage.graph;
+
+import java.util.Arrays;
+
+/**
+ * Growable int buffer, for collecting ids from a result set without boxing them.
+ */
+public class IntArrayBuilder {
+    private int[] values = new int[16];
+    private int size;
+
+    public void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size << 1);
+        }
+        values[size++] = value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
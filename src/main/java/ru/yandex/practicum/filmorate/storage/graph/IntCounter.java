@@ -0,0 +1,168 @@
+package ru.yandex.practicum.filmorate.storage.graph;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.function.IntPredicate;
+
+/**
+ * Map from positive int keys to int counts, without boxing. When the largest key is known and small
+ * enough, counts live in an array indexed by key; otherwise in an open-addressing hash table.
+ * Not thread-safe; parallel callers count into their own instances and {@link #addAll merge} them.
+ */
+public class IntCounter {
+    /**
+     * Largest key for which a dense array (4 bytes per possible key) is allocated.
+     */
+    private static final int DENSE_MAX_KEY = 1 << 20;
+    private static final int FREE = 0;
+
+    private int[] keys;
+    private int[] counts;
+    private int size;
+    private final boolean dense;
+
+    public IntCounter(int expectedSize) {
+        this(expectedSize, Integer.MAX_VALUE);
+    }
+
+    public IntCounter(int expectedSize, int maxKey) {
+        dense = maxKey <= DENSE_MAX_KEY;
+        if (dense) {
+            counts = new int[maxKey + 1];
+            keys = new int[Math.max(4, Math.min(expectedSize, maxKey + 1))];
+        } else {
+            int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+            keys = new int[capacity];
+            counts = new int[capacity];
+        }
+    }
+
+    public void increment(int key, int delta) {
+        if (dense) {
+            if (key >= counts.length) {
+                // an id added to the graph after the counter was sized
+                counts = Arrays.copyOf(counts, Math.max(key + 1, counts.length + (counts.length >> 1)));
+            }
+            if (counts[key] == 0) {
+                if (size == keys.length) {
+                    keys = Arrays.copyOf(keys, size << 1);
+                }
+                keys[size++] = key;
+            }
+            counts[key] += delta;
+            return;
+        }
+        int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        while (keys[index] != FREE) {
+            if (keys[index] == key) {
+                counts[index] += delta;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        counts[index] = delta;
+        if (++size * 2 > keys.length) {
+            rehash();
+        }
+    }
+
+    public int get(int key) {
+        if (dense) {
+            return key < counts.length ? counts[key] : 0;
+        }
+        int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        while (keys[index] != FREE) {
+            if (keys[index] == key) {
+                return counts[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void addAll(IntCounter other) {
+        other.forEach(this::increment);
+    }
+
+    public void forEach(Visitor visitor) {
+        if (dense) {
+            for (int i = 0; i < size; i++) {
+                visitor.visit(keys[i], counts[keys[i]]);
+            }
+            return;
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) {
+                visitor.visit(keys[i], counts[i]);
+            }
+        }
+    }
+
+    /**
+     * @return at most {@code limit} keys that are not excluded, highest count first, then by key
+     */
+    public int[] top(int limit, IntPredicate excluded) {
+        return top(limit, (key, count) -> excluded.test(key) ? -1 : count);
+    }
+
+    /**
+     * Keeps the best keys in a min-heap of {@code limit} packed (score, key) entries.
+     *
+     * @param score score of a key from its count; negative to leave the key out
+     * @return at most {@code limit} keys, highest score first, then by key
+     */
+    public int[] top(int limit, Scorer score) {
+        PriorityQueue<Long> best = new PriorityQueue<>(limit + 1);
+        forEach((key, count) -> {
+            int keyScore = score.score(key, count);
+            if (keyScore < 0) {
+                return;
+            }
+            long entry = ((long) keyScore << 32) | (Integer.MAX_VALUE - key);
+            if (best.size() < limit) {
+                best.add(entry);
+            } else if (entry > best.peek()) {
+                best.poll();
+                best.add(entry);
+            }
+        });
+        int[] ranked = new int[best.size()];
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            ranked[i] = Integer.MAX_VALUE - (int) (best.poll() & 0xFFFFFFFFL);
+        }
+        return ranked;
+    }
+
+    private void rehash() {
+        int[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new int[oldKeys.length << 1];
+        counts = new int[oldKeys.length << 1];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                increment(oldKeys[i], oldCounts[i]);
+            }
+        }
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    public interface Visitor {
+        void visit(int key, int count);
+    }
+
+    public interface Scorer {
+        int score(int key, int count);
+    }
+}
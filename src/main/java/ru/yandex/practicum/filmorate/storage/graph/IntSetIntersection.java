@@ -0,0 +1,135 @@
+package ru.yandex.practicum.filmorate.storage.graph;
+
+import java.util.Arrays;
+
+/**
+ * Intersection of sorted, duplicate-free int arrays. {@link #intersect} picks a strategy from the
+ * shape of the input:
+ * <ul>
+ *     <li>galloping search when one side is much smaller than the other,</li>
+ *     <li>bitmap AND when both sides are dense over their overlapping range,</li>
+ *     <li>linear merge otherwise.</li>
+ * </ul>
+ * Every method returns a new sorted array.
+ */
+public final class IntSetIntersection {
+    private static final int[] EMPTY = new int[0];
+
+    /**
+     * Galloping wins once the larger side is this many times bigger than the smaller one.
+     */
+    private static final int GALLOP_RATIO = 32;
+
+    /**
+     * A bitmap is used when the overlapping range spans at most this many ids per element.
+     */
+    private static final int DENSE_RANGE_PER_ELEMENT = 16;
+
+    private IntSetIntersection() {
+    }
+
+    public static int[] intersect(int[] a, int[] b) {
+        if (a.length == 0 || b.length == 0) {
+            return EMPTY;
+        }
+        int[] small = a.length <= b.length ? a : b;
+        int[] large = small == a ? b : a;
+        if (large.length / small.length >= GALLOP_RATIO) {
+            return gallop(small, large);
+        }
+        long low = Math.max(a[0], b[0]);
+        long high = Math.min(a[a.length - 1], b[b.length - 1]);
+        if (low > high) {
+            return EMPTY;
+        }
+        if (high - low < (long) DENSE_RANGE_PER_ELEMENT * small.length) {
+            return bitmapAnd(a, b);
+        }
+        return merge(a, b);
+    }
+
+    public static int[] merge(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < a.length && j < b.length) {
+            int x = a[i];
+            int y = b[j];
+            if (x == y) {
+                result[size++] = x;
+            }
+            i += x <= y ? 1 : 0;
+            j += y <= x ? 1 : 0;
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * For every element of {@code small}, finds its position in {@code large} by doubling the step from
+     * the previous match and then binary searching the last step, so the cost is
+     * O(small * log(large / small)).
+     */
+    public static int[] gallop(int[] small, int[] large) {
+        int[] result = new int[small.length];
+        int size = 0;
+        int from = 0;
+        for (int value : small) {
+            int step = 1;
+            int to = from;
+            while (to < large.length && large[to] < value) {
+                from = to + 1;
+                to += step;
+                step <<= 1;
+            }
+            int index = Arrays.binarySearch(large, from, Math.min(to + 1, large.length), value);
+            if (index >= 0) {
+                result[size++] = value;
+                from = index + 1;
+            } else {
+                from = -index - 1;
+            }
+            if (from >= large.length) {
+                break;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Sets one bit per element of each array over their overlapping range and ANDs the words.
+     */
+    public static int[] bitmapAnd(int[] a, int[] b) {
+        if (a.length == 0 || b.length == 0) {
+            return EMPTY;
+        }
+        int low = Math.max(a[0], b[0]);
+        int high = Math.min(a[a.length - 1], b[b.length - 1]);
+        if (low > high) {
+            return EMPTY;
+        }
+        int words = (int) (((long) high - low) >>> 6) + 1;
+        long[] left = toBitmap(a, low, high, words);
+        long[] right = toBitmap(b, low, high, words);
+        int[] result = new int[Math.min(a.length, b.length)];
+        int size = 0;
+        for (int word = 0; word < words; word++) {
+            long bits = left[word] & right[word];
+            while (bits != 0) {
+                result[size++] = low + (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private static long[] toBitmap(int[] values, int low, int high, int words) {
+        long[] bitmap = new long[words];
+        int from = Arrays.binarySearch(values, low);
+        for (int i = from >= 0 ? from : -from - 1; i < values.length && values[i] <= high; i++) {
+            long offset = (long) values[i] - low;
+            bitmap[(int) (offset >>> 6)] |= 1L << offset;
+        }
+        return bitmap;
+    }
+}
@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.storage.graph;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Like graph kept in both directions, for user-based collaborative filtering: films a user liked,
+ * and users who liked a film. Safe for concurrent use.
+ * <p>
+ * A like is changed in both directions under its film's lock, which {@link #locked} also gives
+ * to a caller, so that it can apply the changes of a film in the order it committed them.
+ * <p>
+ * A recommendation first finds the {@link #NEIGHBOURS} users whose likes overlap most with the
+ * user's own, walking user → liked films → their other likers within the {@link TwoHopWalk} caps.
+ * It then scores every film those users liked and the user has not, by the summed overlap of
+ * the users who liked it.
+ */
+public class LikeCoOccurrence {
+    public static final int MAX_FILMS = 2_000;
+    public static final int MAX_LIKERS_PER_FILM = 1_000;
+    public static final int MAX_EDGES = 250_000;
+    public static final int NEIGHBOURS = 50;
+    private static final int LOCK_STRIPES = 64;
+
+    private final IntAdjacencyStore filmsByUser = new IntAdjacencyStore();
+    private final IntAdjacencyStore usersByFilm = new IntAdjacencyStore();
+    // likes of one film are locked together: in the database they already wait for its FILMS row
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public LikeCoOccurrence() {
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * @return {@code true} if the like was not present before
+     */
+    public boolean addLike(int filmId, int userId) {
+        synchronized (lock(filmId)) {
+            filmsByUser.add(userId, filmId);
+            return usersByFilm.add(filmId, userId);
+        }
+    }
+
+    /**
+     * @return {@code true} if the like was present before
+     */
+    public boolean deleteLike(int filmId, int userId) {
+        synchronized (lock(filmId)) {
+            filmsByUser.remove(userId, filmId);
+            return usersByFilm.remove(filmId, userId);
+        }
+    }
+
+    public void deleteFilm(int filmId) {
+        synchronized (lock(filmId)) {
+            for (int userId : usersByFilm.neighbours(filmId)) {
+                filmsByUser.remove(userId, filmId);
+            }
+            usersByFilm.removeNode(filmId);
+        }
+    }
+
+    /**
+     * Runs {@code action} holding the lock of the film's likes, which is reentrant.
+     */
+    public <T> T locked(int filmId, Supplier<T> action) {
+        synchronized (lock(filmId)) {
+            return action.get();
+        }
+    }
+
+    public int likesCount(int filmId) {
+        return usersByFilm.degree(filmId);
+    }
+
+    /**
+     * @return ids of the users who liked the film, in ascending order
+     */
+    public int[] likers(int filmId) {
+        return usersByFilm.neighbours(filmId);
+    }
+
+    /**
+     * @return ids of at most {@code limit} films, best score first, then by id
+     */
+    public int[] recommend(int userId, int limit) {
+        int[] liked = filmsByUser.neighbours(userId);
+        if (liked.length == 0) {
+            return new int[0];
+        }
+        IntCounter overlap = TwoHopWalk.count(usersByFilm, liked, MAX_FILMS, MAX_LIKERS_PER_FILM, MAX_EDGES);
+        int[] similarUsers = overlap.top(NEIGHBOURS, otherId -> otherId == userId);
+
+        IntCounter scores = new IntCounter(similarUsers.length * 16, filmsByUser.maxNeighbourId());
+        for (int similarUser : similarUsers) {
+            int weight = overlap.get(similarUser);
+            filmsByUser.forEachNeighbour(similarUser, MAX_FILMS, filmId -> scores.increment(filmId, weight));
+        }
+        return scores.top(limit, filmId -> Arrays.binarySearch(liked, filmId) >= 0);
+    }
+
+    private Object lock(int filmId) {
+        return locks[Math.floorMod(filmId, LOCK_STRIPES)];
+    }
+}
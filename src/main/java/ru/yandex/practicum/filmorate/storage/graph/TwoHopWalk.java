@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.storage.graph;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Bounded two-hop counting shared by the recommendation walks: for a set of middle nodes, counts how
+ * often every node is reached through them in a second graph.
+ * <p>
+ * At most {@code maxMiddle} middle nodes are expanded and at most {@code maxPerMiddle} neighbours are
+ * sampled from each, shrunk further so that one walk visits at most {@code maxEdges} edges. Large walks
+ * are split on the common fork-join pool, one chunk per worker, each counting into its own {@link IntCounter}.
+ */
+public final class TwoHopWalk {
+    /**
+     * Fewest middle nodes worth handing to a separate thread.
+     */
+    private static final int PARALLEL_THRESHOLD = 256;
+
+    private TwoHopWalk() {
+    }
+
+    public static IntCounter count(IntAdjacencyStore secondHop, int[] middle,
+                                   int maxMiddle, int maxPerMiddle, int maxEdges) {
+        int expanded = Math.min(middle.length, maxMiddle);
+        if (expanded == 0) {
+            return new IntCounter(0, secondHop.maxNeighbourId());
+        }
+        int perMiddle = Math.max(1, Math.min(maxPerMiddle, maxEdges / expanded));
+
+        int chunks = Math.min(expanded / PARALLEL_THRESHOLD, ForkJoinPool.getCommonPoolParallelism());
+        if (chunks <= 1) {
+            return countRange(secondHop, middle, 0, expanded, perMiddle);
+        }
+        int chunkSize = (expanded + chunks - 1) / chunks;
+        return IntStream.range(0, chunks)
+                .parallel()
+                .mapToObj(chunk -> countRange(secondHop, middle, chunk * chunkSize,
+                        Math.min(expanded, (chunk + 1) * chunkSize), perMiddle))
+                .reduce((left, right) -> {
+                    left.addAll(right);
+                    return left;
+                })
+                .orElseGet(() -> new IntCounter(0, secondHop.maxNeighbourId()));
+    }
+
+    private static IntCounter countRange(IntAdjacencyStore secondHop, int[] middle, int from, int to, int perMiddle) {
+        IntCounter counter = new IntCounter((to - from) * 8, secondHop.maxNeighbourId());
+        for (int i = from; i < to; i++) {
+            secondHop.forEachNeighbour(middle[i], perMiddle, node -> counter.increment(node, 1));
+        }
+        return counter;
+    }
+}
@@ -4,13 +4,20 @@ import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface UserStorage {
 
     Collection<User> getUsers();
 
+    Stream<User> streamUsers();
+
+    List<User> getUsers(int afterId, int limit);
+
     User createUser(User user);
 
+    List<User> createUsers(List<User> users);
+
     User updateUser(User user);
 
     User getUserById(int id);
@@ -23,6 +30,10 @@ public interface UserStorage {
 
     List<User> getFriendList(int id);
 
+    List<User> getFriendList(int id, int afterId, int limit);
+
     List<User> getCommonFriends(int userId, int friendId);
 
+    List<User> getRecommendations(int id, int limit);
+
 }
@@ -1,26 +1,80 @@
 package ru.yandex.practicum.filmorate.storage.user.impl;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.codec.BinaryReader;
+import ru.yandex.practicum.filmorate.codec.BinaryWriter;
+import ru.yandex.practicum.filmorate.codec.ModelDecoder;
+import ru.yandex.practicum.filmorate.codec.ModelEncoder;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
-import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.graph.FriendOfFriendTraversal;
+import ru.yandex.practicum.filmorate.storage.graph.IntAdjacencyStore;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.storage.wal.StorageJournal;
 
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Safe for concurrent use. Friendships are kept apart from the users in an {@link IntAdjacencyStore}
+ * keyed by user id, so replacing a user on update never touches its friends. A second store holds
+ * the reverse edges, so deleting a user finds everyone who added them without a scan. A friendship
+ * write holds the locks of both users and a delete the user's own, so no edge is linked to a user
+ * being deleted.
+ * <p>
+ * Changes go through a {@link StorageJournal}, which keeps them across restarts when
+ * {@code filmorate.memory-storage.data-dir} is set.
+ */
 @Slf4j
 @Component("inMemoryUserStorage")
-public class InMemoryUserStorage implements UserStorage {
-    private final Map<Integer, User> users = new HashMap<>();
-    private int id = 0;
+public class InMemoryUserStorage implements UserStorage, StorageJournal.State {
+    private static final byte CREATE_USER = 1;
+    private static final byte PUT_USER = 2;
+    private static final byte DELETE_USER = 3;
+    private static final byte ADD_FRIEND = 4;
+    private static final byte DELETE_FRIEND = 5;
+    private static final int LOCK_STRIPES = 64;
+
+    private final ConcurrentNavigableMap<Integer, User> users = new ConcurrentSkipListMap<>();
+    private final IntAdjacencyStore friends = new IntAdjacencyStore();
+    private final IntAdjacencyStore followers = new IntAdjacencyStore();
+    private final AtomicInteger id = new AtomicInteger();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final StorageJournal journal;
+
+    public InMemoryUserStorage() {
+        this(StorageJournal.disabled());
+    }
+
+    @Autowired
+    public InMemoryUserStorage(@Qualifier("userStorageJournal") StorageJournal journal) {
+        this.journal = journal;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @PostConstruct
+    public void recover() throws IOException {
+        journal.open(this);
+    }
 
     private int createId() {
-        return ++id;
+        return id.incrementAndGet();
     }
 
     @Override
@@ -28,95 +82,251 @@ public class InMemoryUserStorage implements UserStorage {
         return new ArrayList<>(users.values());
     }
 
+    @Override
+    public Stream<User> streamUsers() {
+        return users.values().stream();
+    }
+
+    @Override
+    public List<User> getUsers(int afterId, int limit) {
+        return users.tailMap(afterId, false).values().stream()
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
     @Override
     public User createUser(User user) {
-        try {
+        Set<Integer> friendIds = user.getFriendsList();
+        user.setFriendsList(null);
+        return journal.write(() -> {
             user.setId(createId());
+            friendIds.forEach(friendId -> link(user.getId(), friendId));
             users.put(user.getId(), user);
             log.info("User {} is created", user.getLogin());
-        } catch (ValidationException ex) {
-            log.error(ex.getMessage());
-            throw new ValidationException(ex);
-        }
-        return user;
+            return user;
+        }, (created, out) -> {
+            out.writeByte(CREATE_USER);
+            ModelEncoder encoder = new ModelEncoder(out);
+            encoder.writeUser(created);
+            encoder.writeIds(friendIds);
+        });
+    }
+
+    @Override
+    public List<User> createUsers(List<User> users) {
+        users.forEach(this::createUser);
+        return users;
     }
 
     @Override
     public User updateUser(User user) {
-        try {
-            if (users.containsKey(user.getId())) {
-                users.replace(user.getId(), user);
-                log.info("User {} is update", user.getLogin());
-            } else {
+        user.setFriendsList(null);
+        return journal.write(() -> {
+            if (users.replace(user.getId(), user) == null) {
+                log.error("There is no such user");
                 throw new NotFoundException("There is no such user");
             }
-        } catch (NotFoundException ex) {
-            log.error(ex.getMessage());
-            throw new NotFoundException(ex.getMessage());
-        }
-        return user;
+            log.info("User {} is update", user.getLogin());
+            return user;
+        }, (updated, out) -> {
+            out.writeByte(PUT_USER);
+            new ModelEncoder(out).writeUser(updated);
+        });
     }
 
     @Override
     public User getUserById(int id) {
-        if (users.get(id) != null) {
-            return users.get(id);
-        } else {
+        User user = users.get(id);
+        if (user == null) {
             throw new NotFoundException("User ID " + id + " is not found");
         }
+        return user;
     }
 
     @Override
     public void deleteUserById(int id) {
-        if (users.containsKey(id)) {
-            users.remove(id);
+        locked(id, id, () -> journal.write(() -> {
+            if (users.remove(id) == null) {
+                throw new NotFoundException("User ID " + id + " is not found");
+            }
+            // the users whose edge to this one is removed are logged, so replay removes exactly these
+            int[] followerIds = followers.neighbours(id);
+            removeFriendships(id, followerIds);
             log.info("User ID {} is deleted", id);
-        } else {
-            throw new NotFoundException("User ID " + id + " is not found");
-        }
+            return followerIds;
+        }, (followerIds, out) -> {
+            out.writeByte(DELETE_USER);
+            out.writeVarint(id);
+            new ModelEncoder(out).writeIds(followerIds);
+        }));
     }
 
     @Override
     public void addFriend(int userId, int friendId) {
-        if (users.containsKey(userId) && users.containsKey(friendId)) {
-            users.get(userId).getFriendsList().add(friendId);
-            log.info("User {} subscribed to User {}", friendId, userId);
-        } else {
-            throw new NotFoundException("User ID " + userId + "  or User ID " + friendId + " is not found");
-        }
+        locked(userId, friendId, () -> journal.write(() -> {
+            if (users.containsKey(userId) && users.containsKey(friendId)) {
+                log.info("User {} subscribed to User {}", friendId, userId);
+                return link(userId, friendId);
+            } else {
+                throw new NotFoundException("User ID " + userId + "  or User ID " + friendId + " is not found");
+            }
+        }, (added, out) -> writeFriend(out, added, ADD_FRIEND, userId, friendId)));
     }
 
     @Override
     public void deleteFriend(int userId, int friendId) {
-        if (users.containsKey(userId) && users.containsKey(friendId)) {
-            users.get(userId).getFriendsList().remove(friendId);
-            log.info("User {} unsubscribed from User {}", friendId, userId);
-        } else {
-            throw new NotFoundException("User ID " + userId + "  or User ID " + friendId + " is not found");
-        }
+        locked(userId, friendId, () -> journal.write(() -> {
+            if (users.containsKey(userId) && users.containsKey(friendId)) {
+                log.info("User {} unsubscribed from User {}", friendId, userId);
+                return unlink(userId, friendId);
+            } else {
+                throw new NotFoundException("User ID " + userId + "  or User ID " + friendId + " is not found");
+            }
+        }, (deleted, out) -> writeFriend(out, deleted, DELETE_FRIEND, userId, friendId)));
     }
 
     @Override
     public List<User> getFriendList(int id) {
-        if (users.containsKey(id)) {
-            return users.get(id).getFriendsList()
-                    .stream()
-                    .map(users::get).collect(Collectors.toList());
-        } else {
-            throw new NotFoundException("User ID " + id + " is not found");
-        }
+        getUserById(id);
+        return toUsers(friends.neighbours(id));
+    }
+
+    @Override
+    public List<User> getFriendList(int id, int afterId, int limit) {
+        getUserById(id);
+        return toUsers(friends.neighbours(id, afterId, limit));
     }
 
     @Override
     public List<User> getCommonFriends(int userId, int friendId) {
-        if (users.containsKey(userId) && users.containsKey(friendId)) {
-            return users.get(userId).getFriendsList()
-                    .stream()
-                    .map(users::get)
-                    .filter(u -> users.get(friendId).getFriendsList().contains(u.getId()))
-                    .collect(Collectors.toList());
-        } else {
+        if (!users.containsKey(userId) || !users.containsKey(friendId)) {
             throw new NotFoundException("User ID " + userId + "  or User ID " + friendId + " is not found");
         }
+        return toUsers(friends.intersect(userId, friendId));
+    }
+
+    @Override
+    public List<User> getRecommendations(int id, int limit) {
+        getUserById(id);
+        return toUsers(FriendOfFriendTraversal.recommend(friends, id, limit));
+    }
+
+    /**
+     * Runs {@code action} holding the locks of both users, taken in stripe order.
+     */
+    private void locked(int userId, int friendId, Runnable action) {
+        int userStripe = Math.floorMod(userId, LOCK_STRIPES);
+        int friendStripe = Math.floorMod(friendId, LOCK_STRIPES);
+        synchronized (locks[Math.min(userStripe, friendStripe)]) {
+            synchronized (locks[Math.max(userStripe, friendStripe)]) {
+                action.run();
+            }
+        }
+    }
+
+    private List<User> toUsers(int[] ids) {
+        return Arrays.stream(ids)
+                .mapToObj(users::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void writeSnapshot(BinaryWriter out) {
+        out.writeVarint(id.get());
+        ModelEncoder encoder = new ModelEncoder(out);
+        for (User user : users.values()) {
+            out.writeByte(1);
+            encoder.writeUser(user);
+            encoder.writeIds(friends.neighbours(user.getId()));
+        }
+        out.writeByte(0);
+    }
+
+    @Override
+    public void readSnapshot(ByteBuffer buffer) {
+        BinaryReader in = new BinaryReader(buffer);
+        ModelDecoder decoder = new ModelDecoder(buffer);
+        id.set(in.readVarint());
+        while (in.readByte() != 0) {
+            User user = decoder.readUser();
+            users.put(user.getId(), user);
+            for (int friendId : decoder.readIds()) {
+                link(user.getId(), friendId);
+            }
+        }
+    }
+
+    @Override
+    public void replay(ByteBuffer record) {
+        BinaryReader in = new BinaryReader(record);
+        int type = in.readByte();
+        switch (type) {
+            case CREATE_USER:
+                ModelDecoder decoder = new ModelDecoder(record);
+                User user = decoder.readUser();
+                id.accumulateAndGet(user.getId(), Math::max);
+                users.put(user.getId(), user);
+                for (int friendId : decoder.readIds()) {
+                    link(user.getId(), friendId);
+                }
+                break;
+            case PUT_USER:
+                User updated = new ModelDecoder(record).readUser();
+                users.put(updated.getId(), updated);
+                break;
+            case DELETE_USER:
+                int deletedId = in.readVarint();
+                users.remove(deletedId);
+                removeFriendships(deletedId, new ModelDecoder(record).readIds());
+                break;
+            case ADD_FRIEND:
+                link(in.readVarint(), in.readVarint());
+                break;
+            case DELETE_FRIEND:
+                unlink(in.readVarint(), in.readVarint());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown user record type " + type);
+        }
+    }
+
+    private boolean link(int userId, int friendId) {
+        if (!friends.add(userId, friendId)) {
+            return false;
+        }
+        followers.add(friendId, userId);
+        return true;
+    }
+
+    private boolean unlink(int userId, int friendId) {
+        if (!friends.remove(userId, friendId)) {
+            return false;
+        }
+        followers.remove(friendId, userId);
+        return true;
+    }
+
+    /**
+     * Removes the user's edges in both directions: from each of {@code followerIds} and to each of
+     * the user's own friends.
+     */
+    private void removeFriendships(int id, int[] followerIds) {
+        for (int followerId : followerIds) {
+            friends.remove(followerId, id);
+        }
+        for (int friendId : friends.neighbours(id)) {
+            followers.remove(friendId, id);
+        }
+        friends.removeNode(id);
+        followers.removeNode(id);
+    }
+
+    private static void writeFriend(BinaryWriter out, boolean changed, byte type, int userId, int friendId) {
+        if (changed) {
+            out.writeByte(type);
+            out.writeVarint(userId);
+            out.writeVarint(friendId);
+        }
     }
-}
\ No newline at end of file
+}
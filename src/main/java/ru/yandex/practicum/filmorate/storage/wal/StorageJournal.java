@@ -0,0 +1,317 @@
+package ru.yandex.practicum.filmorate.storage.wal;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.codec.BinaryWriter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Keeps an in-memory storage across restarts: every change is appended to a {@link WriteAheadLog},
+ * and a snapshot of the whole state is taken once the log grows past {@code snapshotAfter} bytes
+ * and on close. Recovery loads the latest snapshot and replays the logs written since. Records
+ * and snapshots are decoded straight from the mapped files.
+ * <p>
+ * Files are numbered by generation. Snapshot N is taken after switching to log N, so snapshot N
+ * and logs N onwards hold everything, and older files are deleted once it is on disk. Writers go
+ * on while the snapshot is read from the live state. That is sound because every record sets the
+ * final value of each film, user or edge it touches: replaying log N over any state seen between
+ * the start and the end of the snapshot gives the same result.
+ * <p>
+ * A writer applies its change and appends the record under one lock, so the log has the changes
+ * in the order they were applied. With {@link Durability#GROUP_COMMIT} it then waits, outside the
+ * lock, for a sync covering its record. A journal made by {@link #disabled()} only applies changes.
+ */
+@Slf4j
+public class StorageJournal implements Closeable {
+    private static final int SNAPSHOT_MAGIC = 0x464d5332;
+    private static final Pattern FILE_NAME = Pattern.compile("(wal|snapshot)-(\\d+)\\.(log|bin)");
+    private static final StorageJournal DISABLED = new StorageJournal(null, Durability.ASYNC, Long.MAX_VALUE);
+
+    public enum Durability {
+        ASYNC, GROUP_COMMIT
+    }
+
+    /**
+     * The storage behind a journal. Malformed input fails with {@link IllegalArgumentException}.
+     */
+    public interface State {
+        /**
+         * Runs concurrently with writers; each value written must be read atomically.
+         */
+        void writeSnapshot(BinaryWriter out);
+
+        void readSnapshot(ByteBuffer in);
+
+        void replay(ByteBuffer record);
+    }
+
+    @FunctionalInterface
+    public interface RecordWriter<T> {
+        /**
+         * Writes the record of a change given its result, or nothing if nothing changed.
+         */
+        void write(T result, BinaryWriter out);
+    }
+
+    private final Path directory;
+    private final Durability durability;
+    private final long snapshotAfter;
+    private final ReentrantLock lock = new ReentrantLock();
+    // guarded by lock
+    private final BinaryWriter buffer = new BinaryWriter();
+    private final Object checkpointMonitor = new Object();
+    private final AtomicBoolean checkpointRunning = new AtomicBoolean();
+    private State state;
+    // swapped under lock
+    private volatile WriteAheadLog wal;
+    // changed under both checkpointMonitor and lock
+    private long generation;
+
+    public StorageJournal(Path directory, Durability durability, long snapshotAfter) {
+        this.directory = directory;
+        this.durability = durability;
+        this.snapshotAfter = snapshotAfter;
+    }
+
+    public static StorageJournal disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Restores the state from the directory and opens the last log for appending.
+     */
+    public void open(State state) throws IOException {
+        if (directory == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        this.state = state;
+        Files.createDirectories(directory);
+        TreeMap<Long, Path> logs = new TreeMap<>();
+        TreeMap<Long, Path> snapshots = new TreeMap<>();
+        listFiles(logs, snapshots);
+
+        long first = logs.isEmpty() ? 1 : logs.firstKey();
+        if (!snapshots.isEmpty()) {
+            first = snapshots.lastKey();
+            readSnapshot(snapshots.lastEntry().getValue());
+        }
+        generation = logs.isEmpty() ? first : Math.max(first, logs.lastKey());
+        long[] records = new long[1];
+        WriteAheadLog.RecordHandler replay = record -> {
+            records[0]++;
+            replay(record);
+        };
+        for (Path file : logs.subMap(first, true, generation, false).values()) {
+            WriteAheadLog.replay(file, replay);
+        }
+        wal = WriteAheadLog.open(walFile(generation), replay);
+        deleteBefore(first);
+        log.info("Recovered {} from {} and {} log records in {} ms", directory,
+                snapshots.isEmpty() ? "no snapshot" : snapshots.lastEntry().getValue().getFileName(),
+                records[0], (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Applies a change and logs it.
+     *
+     * @param change applies the change; an exception leaves nothing logged
+     * @param record writes the record of the change, which replay must apply the same way
+     */
+    public <T> T write(Supplier<T> change, RecordWriter<? super T> record) {
+        if (directory == null) {
+            return change.get();
+        }
+        WriteAheadLog target;
+        long lsn = 0;
+        T result;
+        lock.lock();
+        try {
+            target = wal;
+            if (target == null) {
+                throw new IllegalStateException("Journal " + directory + " is not open");
+            }
+            result = change.get();
+            buffer.reset();
+            record.write(result, buffer);
+            if (buffer.size() > 0) {
+                lsn = target.append(buffer.array(), buffer.size());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+        if (lsn > 0) {
+            if (durability == Durability.GROUP_COMMIT) {
+                target.sync(lsn);
+            }
+            if (lsn >= snapshotAfter) {
+                checkpointInBackground();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Takes a snapshot, after which recovery replays only the changes made from now on.
+     */
+    public void checkpoint() throws IOException {
+        if (directory == null) {
+            return;
+        }
+        synchronized (checkpointMonitor) {
+            long next = generation + 1;
+            WriteAheadLog nextWal = WriteAheadLog.open(walFile(next), record -> {
+                throw new IOException("Log " + walFile(next) + " is not empty");
+            });
+            WriteAheadLog previous;
+            lock.lock();
+            try {
+                previous = wal;
+                wal = nextWal;
+                generation = next;
+            } finally {
+                lock.unlock();
+            }
+            previous.close();
+            writeSnapshot(next);
+            deleteBefore(next);
+        }
+    }
+
+    /**
+     * Takes a final snapshot, so the next start does not replay the log.
+     */
+    @Override
+    public void close() throws IOException {
+        if (directory == null || wal == null) {
+            return;
+        }
+        checkpoint();
+        wal.close();
+    }
+
+    private void checkpointInBackground() {
+        if (!checkpointRunning.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                checkpoint();
+            } catch (IOException | RuntimeException e) {
+                log.error("Snapshot of {} failed", directory, e);
+            } finally {
+                checkpointRunning.set(false);
+            }
+        }, "storage-snapshot");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void replay(ByteBuffer record) throws IOException {
+        try {
+            state.replay(record);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Malformed record in " + directory, e);
+        }
+    }
+
+    private void writeSnapshot(long snapshotGeneration) throws IOException {
+        Path temporary = directory.resolve("snapshot-" + snapshotGeneration + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            CheckedOutputStream checked = new CheckedOutputStream(Channels.newOutputStream(channel), new CRC32());
+            BinaryWriter out = new BinaryWriter(checked, 1 << 16);
+            out.writeInt(SNAPSHOT_MAGIC);
+            state.writeSnapshot(out);
+            out.flush();
+            out.writeInt((int) checked.getChecksum().getValue());
+            out.flush();
+            channel.force(true);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Files.move(temporary, snapshotFile(snapshotGeneration), StandardCopyOption.ATOMIC_MOVE);
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.debug("Cannot sync directory {}", directory, e);
+        }
+    }
+
+    private void readSnapshot(Path file) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int size = mapped.capacity();
+        if (size < 2 * Integer.BYTES || mapped.getInt(0) != SNAPSHOT_MAGIC) {
+            throw new IOException(file + " is not a snapshot");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(mapped.slice(0, size - Integer.BYTES));
+        if ((int) crc.getValue() != mapped.getInt(size - Integer.BYTES)) {
+            throw new IOException("Snapshot " + file + " is corrupt");
+        }
+        try {
+            state.readSnapshot(mapped.slice(Integer.BYTES, size - 2 * Integer.BYTES));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Malformed snapshot " + file, e);
+        }
+    }
+
+    private void listFiles(Map<Long, Path> logs, Map<Long, Path> snapshots) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                Matcher matcher = FILE_NAME.matcher(name);
+                if (matcher.matches()) {
+                    (matcher.group(1).equals("wal") ? logs : snapshots).put(Long.parseLong(matcher.group(2)), file);
+                } else if (name.endsWith(".tmp")) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private void deleteBefore(long firstKept) throws IOException {
+        TreeMap<Long, Path> logs = new TreeMap<>();
+        TreeMap<Long, Path> snapshots = new TreeMap<>();
+        listFiles(logs, snapshots);
+        for (Path file : logs.headMap(firstKept).values()) {
+            Files.delete(file);
+        }
+        for (Path file : snapshots.headMap(firstKept).values()) {
+            Files.delete(file);
+        }
+    }
+
+    private Path walFile(long walGeneration) {
+        return directory.resolve("wal-" + walGeneration + ".log");
+    }
+
+    private Path snapshotFile(long snapshotGeneration) {
+        return directory.resolve("snapshot-" + snapshotGeneration + ".bin");
+    }
+}
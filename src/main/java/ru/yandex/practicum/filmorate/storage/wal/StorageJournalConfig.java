@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.storage.wal;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+
+/**
+ * Journals of the in-memory storages, one directory each under
+ * {@code filmorate.memory-storage.data-dir}. Without a directory the storages keep nothing.
+ */
+@Configuration
+public class StorageJournalConfig {
+    private final String dataDir;
+    private final StorageJournal.Durability durability;
+    private final DataSize snapshotAfter;
+
+    public StorageJournalConfig(@Value("${filmorate.memory-storage.data-dir:}") String dataDir,
+                                @Value("${filmorate.memory-storage.durability:async}")
+                                StorageJournal.Durability durability,
+                                @Value("${filmorate.memory-storage.snapshot-after:64MB}") DataSize snapshotAfter) {
+        this.dataDir = dataDir;
+        this.durability = durability;
+        this.snapshotAfter = snapshotAfter;
+    }
+
+    @Bean
+    public StorageJournal filmStorageJournal() {
+        return journal("films");
+    }
+
+    @Bean
+    public StorageJournal userStorageJournal() {
+        return journal("users");
+    }
+
+    private StorageJournal journal(String name) {
+        if (dataDir.isBlank()) {
+            return StorageJournal.disabled();
+        }
+        return new StorageJournal(Path.of(dataDir, name), durability, snapshotAfter.toBytes());
+    }
+}
@@ -0,0 +1,177 @@
+package ru.yandex.practicum.filmorate.storage.wal;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log file written through a memory mapping. A record is its length, the CRC32 of
+ * its bytes and the bytes; the log ends at the first zero length. The file is mapped and grown
+ * in {@link #CHUNK_SIZE} steps, so the unused tail is zeros.
+ * <p>
+ * An append is a copy into the mapping: the record survives a crash of the process once
+ * {@link #append} returns, and a crash of the machine once {@link #sync} covers it. Syncs are
+ * group commits: a thread that finds another one forcing the mapping waits for it and then forces
+ * everything appended meanwhile, for all the threads queued behind it, in one call.
+ * <p>
+ * Appends are serialized; syncs may run concurrently with them.
+ */
+@Slf4j
+public class WriteAheadLog implements Closeable {
+    static final int CHUNK_SIZE = 16 * 1024 * 1024;
+    private static final int HEADER = 2 * Integer.BYTES;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final Object syncMonitor = new Object();
+    // guarded by this
+    private MappedByteBuffer buffer;
+    // end of the last record, guarded by this
+    private int position;
+    private volatile long durable;
+
+    @FunctionalInterface
+    public interface RecordHandler {
+        void handle(ByteBuffer record) throws IOException;
+    }
+
+    private WriteAheadLog(Path file, FileChannel channel, MappedByteBuffer buffer, int position) {
+        this.file = file;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.position = position;
+        this.durable = position;
+    }
+
+    /**
+     * Opens the log for appending, creating it if needed, and passes the records already in it
+     * to the handler. A torn record at the end, left by a crash in the middle of an append, is
+     * dropped along with anything after it.
+     */
+    public static WriteAheadLog open(Path file, RecordHandler handler) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    roundUp(Math.max(channel.size(), CHUNK_SIZE)));
+            int end = scan(file, buffer, handler);
+            if (end + Integer.BYTES <= buffer.capacity() && buffer.getInt(end) != 0) {
+                for (int i = end; i < buffer.capacity(); i++) {
+                    buffer.put(i, (byte) 0);
+                }
+                buffer.force();
+            }
+            return new WriteAheadLog(file, channel, buffer, end);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Passes the records of a closed log to the handler without opening it for appending.
+     */
+    public static void replay(Path file, RecordHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            scan(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), handler);
+        }
+    }
+
+    /**
+     * @return the position after the record, to pass to {@link #sync}
+     */
+    public synchronized long append(byte[] record, int length) throws IOException {
+        if (length <= 0) {
+            throw new IllegalArgumentException("A record cannot be empty");
+        }
+        int end = position + HEADER + length;
+        if (end < 0) {
+            throw new IOException("Log " + file + " is full");
+        }
+        if (end > buffer.capacity()) {
+            buffer.force(0, position);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, roundUp(end));
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, length);
+        buffer.putInt(position + Integer.BYTES, (int) crc.getValue());
+        buffer.put(position + HEADER, record, 0, length);
+        // the length goes last: a record is not there until its length is
+        buffer.putInt(position, length);
+        position = end;
+        return end;
+    }
+
+    /**
+     * Returns once the log up to {@code lsn} is on disk.
+     */
+    public void sync(long lsn) {
+        if (durable >= lsn) {
+            return;
+        }
+        synchronized (syncMonitor) {
+            if (durable >= lsn) {
+                return;
+            }
+            MappedByteBuffer mapped;
+            int end;
+            synchronized (this) {
+                mapped = buffer;
+                end = position;
+            }
+            int from = (int) durable;
+            mapped.force(from, end - from);
+            durable = end;
+        }
+    }
+
+    public synchronized long size() {
+        return position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        sync(size());
+        channel.close();
+    }
+
+    private static int scan(Path file, ByteBuffer buffer, RecordHandler handler) throws IOException {
+        int position = 0;
+        CRC32 crc = new CRC32();
+        while (position + HEADER <= buffer.limit()) {
+            int length = buffer.getInt(position);
+            if (length == 0) {
+                break;
+            }
+            if (length < 0 || length > buffer.limit() - position - HEADER) {
+                log.warn("Log {} ends with a torn record at {}", file, position);
+                break;
+            }
+            ByteBuffer record = buffer.slice(position + HEADER, length);
+            crc.reset();
+            crc.update(record.duplicate());
+            if ((int) crc.getValue() != buffer.getInt(position + Integer.BYTES)) {
+                log.warn("Log {} ends with a torn record at {}", file, position);
+                break;
+            }
+            handler.handle(record);
+            position += HEADER + length;
+        }
+        return position;
+    }
+
+    private static int roundUp(long size) throws IOException {
+        long rounded = (size + CHUNK_SIZE - 1) / CHUNK_SIZE * CHUNK_SIZE;
+        if (rounded > Integer.MAX_VALUE) {
+            throw new IOException("Log is too large to map");
+        }
+        return (int) rounded;
+    }
+}
@@ -1,14 +0,0 @@
-MERGE INTO MPA KEY(MPA_ID)
-    VALUES (1, 'G'),
-    (2, 'PG'),
-    (3, 'PG-13'),
-    (4, 'R'),
-    (5, 'NC-17');
-
-MERGE INTO GENRE KEY(GENRE_ID)
-    VALUES (1, 'Комедия'),
-    (2, 'Драма'),
-    (3, 'Мультфильм'),
-    (4, 'Триллер'),
-    (5, 'Документальный'),
-    (6, 'Боевик');
\ No newline at end of file
@@ -1,3 +1,6 @@
+-- Baseline: the schema formerly in schema.sql. It keeps IF NOT EXISTS so that it also applies
+-- cleanly to databases created by that script.
+
 CREATE TABLE IF NOT EXISTS GENRE
 (
     GENRE_ID   int auto_increment primary key,
@@ -27,10 +30,16 @@ CREATE TABLE IF NOT EXISTS FILMS
     RELEASE_DATE date         not null,
     DURATION     int          not null,
     MPA_ID       int,
+    LIKES_COUNT  int          default 0 not null,
     constraint "fk_mpa_id"
         foreign key (MPA_ID) references MPA (MPA_ID)
 );
 
+ALTER TABLE FILMS ADD COLUMN IF NOT EXISTS LIKES_COUNT int default 0 not null;
+
+CREATE INDEX IF NOT EXISTS FILMS_LIKES_COUNT_IDX ON FILMS (LIKES_COUNT DESC, FILM_ID);
+CREATE INDEX IF NOT EXISTS FILMS_RELEASE_DATE_IDX ON FILMS (RELEASE_DATE);
+
 CREATE TABLE IF NOT EXISTS FRIENDS
 (
     USER_ID   int         not null,
@@ -73,3 +82,25 @@ CREATE TABLE IF NOT EXISTS FILM_GENRE
         FOREIGN KEY (GENRE_ID)
             REFERENCES GENRE (GENRE_ID)
 );
+
+CREATE INDEX IF NOT EXISTS FILM_GENRE_GENRE_ID_IDX ON FILM_GENRE (GENRE_ID, FILM_ID);
+
+UPDATE FILMS AS F
+SET LIKES_COUNT = (SELECT COUNT(*) FROM FILM_LIKES AS L WHERE L.FILM_ID = F.FILM_ID)
+WHERE LIKES_COUNT = 0
+  AND EXISTS(SELECT 1 FROM FILM_LIKES AS L WHERE L.FILM_ID = F.FILM_ID);
+
+MERGE INTO MPA KEY(MPA_ID)
+    VALUES (1, 'G'),
+    (2, 'PG'),
+    (3, 'PG-13'),
+    (4, 'R'),
+    (5, 'NC-17');
+
+MERGE INTO GENRE KEY(GENRE_ID)
+    VALUES (1, 'Комедия'),
+    (2, 'Драма'),
+    (3, 'Мультфильм'),
+    (4, 'Триллер'),
+    (5, 'Документальный'),
+    (6, 'Боевик');
@@ -0,0 +1,5 @@
+-- The primary keys only serve lookups by their leading column. These cover the other direction:
+-- films liked by a user and users who added a user as a friend. FILM_GENRE by genre is served by
+-- FILM_GENRE_GENRE_ID_IDX from V1.
+CREATE INDEX IF NOT EXISTS FILM_LIKES_USER_ID_IDX ON FILM_LIKES (USER_ID, FILM_ID);
+CREATE INDEX IF NOT EXISTS FRIENDS_FRIEND_ID_IDX ON FRIENDS (FRIEND_ID, USER_ID);
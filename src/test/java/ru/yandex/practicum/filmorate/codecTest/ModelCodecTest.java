@@ -0,0 +1,150 @@
+package ru.yandex.practicum.filmorate.codecTest;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.codec.ModelCodec;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ModelCodecTest {
+
+    @Test
+    public void shouldRoundTripEveryField() {
+        Film film = film(7, "Сталкер", new Mpa(3, "PG-13"), new Genre(2, "Драма"), new Genre(4, "Триллер"));
+        film.setLikesList(Set.of(1_000_000, 3, 12));
+        User user = User.builder()
+                .id(42)
+                .email("user@mail.ru")
+                .login("user")
+                .name("Пользователь")
+                .birthday(LocalDate.of(1899, 12, 31))
+                .friendsList(Set.of(5, 1))
+                .build();
+
+        Film decodedFilm = ModelCodec.read(ByteBuffer.wrap(ModelCodec.encode(film)), Film.class);
+        User decodedUser = ModelCodec.read(ByteBuffer.wrap(ModelCodec.encode(user)), User.class);
+
+        assertFilm(film, decodedFilm);
+        assertEquals(user, decodedUser);
+    }
+
+    @Test
+    public void shouldKeepNullsAndEmptyCollections() {
+        Film film = Film.builder().id(1).name("Film").duration(-1).genres(List.of()).build();
+        User user = User.builder().id(2).email("user@mail.ru").login("user").build();
+
+        Film decodedFilm = ModelCodec.read(ByteBuffer.wrap(ModelCodec.encode(film)), Film.class);
+        User decodedUser = ModelCodec.read(ByteBuffer.wrap(ModelCodec.encode(user)), User.class);
+
+        assertFilm(film, decodedFilm);
+        assertNull(decodedFilm.getDescription());
+        assertNull(decodedFilm.getReleaseDate());
+        assertNull(decodedFilm.getMpa());
+        assertEquals(List.of(), decodedFilm.getGenres());
+        assertEquals(user, decodedUser);
+        assertNull(decodedUser.getName());
+    }
+
+    @Test
+    public void shouldWriteEachGenreAndRatingOfAListOnce() {
+        List<Film> films = IntStream.rangeClosed(1, 100)
+                .mapToObj(i -> film(i, "Film " + i, new Mpa(1, "G"), new Genre(1, "Комедия"), new Genre(6, "Боевик")))
+                .collect(Collectors.toList());
+        byte[] list = ModelCodec.encodeList(Film.class, films);
+        List<Film> decoded = ModelCodec.readList(ByteBuffer.wrap(list), Film.class);
+
+        assertEquals(1, occurrences(list, "Комедия"));
+        assertEquals(1, occurrences(list, "Боевик"));
+        assertEquals(films.size(), decoded.size());
+        for (int i = 0; i < films.size(); i++) {
+            assertFilm(films.get(i), decoded.get(i));
+        }
+        decoded.get(0).getMpa().setName("changed");
+        assertEquals("G", decoded.get(1).getMpa().getName());
+    }
+
+    @Test
+    public void shouldDecodeFromADirectBufferAtAnOffset() {
+        Film film = film(3, "Direct", new Mpa(5, "NC-17"), new Genre(3, "Мультфильм"));
+        byte[] bytes = ModelCodec.encode(film);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length + 10);
+        buffer.position(10);
+        buffer.put(bytes);
+        buffer.position(10);
+
+        Film decoded = ModelCodec.read(buffer, Film.class);
+
+        assertFilm(film, decoded);
+        assertEquals(buffer.capacity(), buffer.position());
+    }
+
+    @Test
+    public void shouldRejectMalformedDocuments() {
+        byte[] bytes = ModelCodec.encode(film(1, "Film", new Mpa(1, "G"), new Genre(1, "Комедия")));
+
+        byte[] newer = bytes.clone();
+        newer[1] = (byte) (ModelCodec.VERSION + 1);
+        byte[] magic = bytes.clone();
+        magic[0] = 0;
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 3);
+        byte[] flags = ModelCodec.encode(User.builder().id(1).email("e").login("l").name("n").build());
+        flags[flags.length - 1] = (byte) 0x40;
+
+        assertThrows(IllegalArgumentException.class, () -> ModelCodec.read(ByteBuffer.wrap(newer), Film.class));
+        assertThrows(IllegalArgumentException.class, () -> ModelCodec.read(ByteBuffer.wrap(magic), Film.class));
+        assertThrows(IllegalArgumentException.class, () -> ModelCodec.read(ByteBuffer.wrap(truncated), Film.class));
+        assertThrows(IllegalArgumentException.class, () -> ModelCodec.read(ByteBuffer.wrap(flags), User.class));
+        assertThrows(IllegalArgumentException.class, () -> ModelCodec.read(ByteBuffer.wrap(bytes), User.class));
+    }
+
+    private static Film film(int id, String name, Mpa mpa, Genre... genres) {
+        return Film.builder()
+                .id(id)
+                .name(name)
+                .description("Description of " + name)
+                .releaseDate(LocalDate.of(1979, 5, 25))
+                .duration(163)
+                .mpa(mpa)
+                .genres(List.of(genres))
+                .build();
+    }
+
+    private static int occurrences(byte[] bytes, String value) {
+        String text = new String(bytes, StandardCharsets.ISO_8859_1);
+        String pattern = new String(value.getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1);
+        return text.split(Pattern.quote(pattern), -1).length - 1;
+    }
+
+    private static void assertFilm(Film expected, Film actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getDescription(), actual.getDescription());
+        assertEquals(expected.getReleaseDate(), actual.getReleaseDate());
+        assertEquals(expected.getDuration(), actual.getDuration());
+        assertEquals(expected.getLikesList(), actual.getLikesList());
+        if (expected.getMpa() != null) {
+            assertEquals(expected.getMpa().getId(), actual.getMpa().getId());
+            assertEquals(expected.getMpa().getName(), actual.getMpa().getName());
+        }
+        assertEquals(expected.getGenres().size(), actual.getGenres().size());
+        for (int i = 0; i < expected.getGenres().size(); i++) {
+            assertEquals(expected.getGenres().get(i).getId(), actual.getGenres().get(i).getId());
+            assertEquals(expected.getGenres().get(i).getName(), actual.getGenres().get(i).getName());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package ru.yandex.practicum.filmorate.concurrencyTest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import ru.yandex.practicum.filmorate.concurrency.ConcurrencyLimitFilter;
+import ru.yandex.practicum.filmorate.metrics.MetricsRegistry;
+
+import javax.servlet.Servlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ConcurrencyLimitFilterTest {
+    private final MetricsRegistry metricsRegistry = new MetricsRegistry();
+    private final ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(1, Duration.ofMillis(100),
+            new ObjectMapper(), metricsRegistry);
+
+    @Test
+    public void shouldRejectRequestsBeyondTheLimitOnceTheyWaitedTooLong() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<MockHttpServletResponse> first = executor.submit(() -> call(new MockFilterChain(servlet(() -> {
+                entered.countDown();
+                release.await();
+            }))));
+            assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+            MockHttpServletResponse rejected = call(new MockFilterChain());
+            assertEquals(503, rejected.getStatus());
+            assertEquals("1", rejected.getHeader("Retry-After"));
+            assertEquals("{\"error\":\"Too many concurrent requests\"}", rejected.getContentAsString());
+
+            release.countDown();
+            assertEquals(200, first.get(5, TimeUnit.SECONDS).getStatus());
+            assertEquals(200, call(new MockFilterChain()).getStatus());
+            assertThat(scrape()).contains("filmorate_request_limit_rejected_total 1");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldHoldThePermitUntilAnAsyncRequestCompletes() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/films/export");
+        request.setAsyncSupported(true);
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+
+        assertEquals(503, call(new MockFilterChain()).getStatus());
+
+        ((MockAsyncContext) request.getAsyncContext()).complete();
+        assertEquals(200, call(new MockFilterChain()).getStatus());
+    }
+
+    @Test
+    public void shouldNotLimitTheMetricsEndpoint() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/films/export");
+        request.setAsyncSupported(true);
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/metrics"), response, new MockFilterChain());
+
+        assertEquals(200, response.getStatus());
+    }
+
+    private MockHttpServletResponse call(MockFilterChain chain) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/films"), response, chain);
+        return response;
+    }
+
+    private String scrape() {
+        StringBuilder out = new StringBuilder();
+        metricsRegistry.scrape(out);
+        return out.toString();
+    }
+
+    private static Servlet servlet(Blocking body) {
+        return new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                try {
+                    body.run();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+
+    @FunctionalInterface
+    private interface Blocking {
+        void run() throws InterruptedException;
+    }
+}
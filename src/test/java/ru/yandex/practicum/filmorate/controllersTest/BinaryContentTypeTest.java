@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.controllersTest;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.codec.BinaryModelHttpMessageConverter;
+import ru.yandex.practicum.filmorate.codec.ModelCodec;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class BinaryContentTypeTest {
+    private final TestRestTemplate restTemplate;
+
+    @Test
+    public void shouldAcceptAndServeFilmsInTheBinaryFormat() {
+        Film film = Film.builder()
+                .name("Solaris")
+                .description("Психологическая драма")
+                .releaseDate(LocalDate.of(1972, 3, 20))
+                .duration(167)
+                .mpa(new Mpa(2, "PG"))
+                .genres(List.of(new Genre(2, "Драма")))
+                .build();
+
+        ResponseEntity<byte[]> created = exchange(HttpMethod.POST, ModelCodec.encode(film));
+        ResponseEntity<byte[]> films = exchange(HttpMethod.GET, null);
+
+        assertEquals(HttpStatus.OK, created.getStatusCode());
+        assertThat(created.getHeaders().getContentType()).isEqualTo(BinaryModelHttpMessageConverter.MEDIA_TYPE);
+        assertEquals(1, ModelCodec.read(ByteBuffer.wrap(created.getBody()), Film.class).getId());
+        List<Film> decoded = ModelCodec.readList(ByteBuffer.wrap(films.getBody()), Film.class);
+        assertEquals(1, decoded.size());
+        assertEquals("Психологическая драма", decoded.get(0).getDescription());
+        assertEquals(LocalDate.of(1972, 3, 20), decoded.get(0).getReleaseDate());
+        assertEquals("PG", decoded.get(0).getMpa().getName());
+        assertEquals("Драма", decoded.get(0).getGenres().get(0).getName());
+    }
+
+    @Test
+    public void shouldKeepJsonTheDefaultAndRejectAMalformedBody() {
+        ResponseEntity<String> json = restTemplate.getForEntity("/films", String.class);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(BinaryModelHttpMessageConverter.MEDIA_TYPE, MediaType.APPLICATION_JSON));
+        headers.setContentType(BinaryModelHttpMessageConverter.MEDIA_TYPE);
+        ResponseEntity<String> malformed = restTemplate.exchange("/films", HttpMethod.POST,
+                new HttpEntity<>(new byte[]{1, 2, 3}, headers), String.class);
+
+        assertThat(json.getHeaders().getContentType().isCompatibleWith(MediaType.APPLICATION_JSON)).isTrue();
+        assertEquals(HttpStatus.BAD_REQUEST, malformed.getStatusCode());
+        assertThat(malformed.getHeaders().getContentType().isCompatibleWith(MediaType.APPLICATION_JSON)).isTrue();
+        assertThat(malformed.getBody()).contains("Malformed request body");
+    }
+
+    private ResponseEntity<byte[]> exchange(HttpMethod method, byte[] body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(BinaryModelHttpMessageConverter.MEDIA_TYPE));
+        headers.setContentType(BinaryModelHttpMessageConverter.MEDIA_TYPE);
+        return restTemplate.exchange("/films", method, new HttpEntity<>(body, headers), byte[].class);
+    }
+}
@@ -10,12 +10,20 @@ import ru.yandex.practicum.filmorate.controllers.FilmController;
 import ru.yandex.practicum.filmorate.controllers.GenreController;
 import ru.yandex.practicum.filmorate.controllers.MpaController;
 import ru.yandex.practicum.filmorate.controllers.UserController;
+import ru.yandex.practicum.filmorate.exception.IncorrectParameterException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.ImportResult;
+import ru.yandex.practicum.filmorate.model.ImportStatus;
+import ru.yandex.practicum.filmorate.model.KeysetPage;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
@@ -27,7 +35,7 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 @SpringBootTest
 @AutoConfigureTestDatabase
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
-@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
 public class FilmControllerTest {
     private final FilmController filmController;
     private final UserController userController;
@@ -158,10 +166,31 @@ public class FilmControllerTest {
         filmController.createFilm(film);
         userController.createUser(user);
         filmController.addLike(1, 1);
-        assertThat(filmController.getPopularFilms(filmController.getAllFilms().size()).size())
+        assertThat(filmController.getPopularFilms(filmController.getAllFilms().size(), null, null).size())
                 .isEqualTo(1);
     }
 
+    @Test
+    public void shouldFilterPopularFilmsByGenreAndYear() {
+        filmController.createFilm(film);
+        int genreId = film.getGenres().get(0).getId();
+        int year = film.getReleaseDate().getYear();
+
+        assertThat(filmController.getPopularFilms(10, genreId, year).size()).isEqualTo(1);
+        assertThat(filmController.getPopularFilms(10, genreId, year + 1).size()).isEqualTo(0);
+        assertThrows(IncorrectParameterException.class, () -> filmController.getPopularFilms(10, 0, null));
+        assertThrows(IncorrectParameterException.class, () -> filmController.getPopularFilms(10, null, -1));
+    }
+
+    @Test
+    public void shouldSearchFilms() {
+        filmController.createFilm(film);
+
+        assertEquals(1, filmController.searchFilms(film.getName().toUpperCase(), "title", 10).size());
+        assertThrows(IncorrectParameterException.class, () -> filmController.searchFilms(" ", "title", 10));
+        assertThrows(IncorrectParameterException.class, () -> filmController.searchFilms("x", "director", 10));
+    }
+
     @Test
     public void shouldReturnFilmGenres() {
         List<Genre> genres = genreController.getAll();
@@ -199,4 +228,65 @@ public class FilmControllerTest {
         Mpa mpa = mpaController.getById(1);
         assertThat(mpa.getName()).isEqualTo("G");
     }
+
+    @Test
+    public void shouldImportFilmsInBulk() {
+        String body = "[" +
+                "{\"name\": \"Film 1\", \"description\": \"First\", \"releaseDate\": \"2001-11-16\", " +
+                "\"duration\": 152, \"mpa\": {\"id\": 2}, \"genres\": [{\"id\": 2}, {\"id\": 1}]}," +
+                "{\"name\": \"Film 2\", \"description\": \"Too old\", \"releaseDate\": \"1890-01-01\", " +
+                "\"duration\": 100, \"mpa\": {\"id\": 1}}," +
+                "{\"name\": \"Film 3\", \"description\": \"Unknown genre\", \"releaseDate\": \"2002-01-01\", " +
+                "\"duration\": 100, \"mpa\": {\"id\": 1}, \"genres\": [{\"id\": 99}]}," +
+                "{\"name\": \"Film 4\", \"description\": \"Fourth\", \"releaseDate\": \"2003-01-01\", " +
+                "\"duration\": 90, \"mpa\": {\"id\": 3}}" +
+                "]";
+
+        List<ImportResult> results = filmController.importFilms(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(results.size()).isEqualTo(4);
+        assertThat(results.get(0).getStatus()).isEqualTo(ImportStatus.CREATED);
+        assertThat(results.get(1).getStatus()).isEqualTo(ImportStatus.INVALID);
+        assertThat(results.get(1).getErrors().get(0)).isEqualTo("releaseDate: Invalid release date");
+        assertThat(results.get(2).getStatus()).isEqualTo(ImportStatus.FAILED);
+        assertThat(results.get(3).getStatus()).isEqualTo(ImportStatus.CREATED);
+        assertThat(filmController.getAllFilms().size()).isEqualTo(2);
+        assertThat(filmController.getFilmById(results.get(0).getId()).getGenres().size()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldExportFilmsAsNdjson() throws IOException {
+        filmController.createFilm(film);
+        film.setGenres(new ArrayList<>(List.of(new Genre(2, "Драма"), new Genre(1, "Комедия"))));
+        filmController.createFilm(film);
+        film.setGenres(new ArrayList<>());
+        filmController.createFilm(film);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        filmController.exportFilms().getBody().writeTo(out);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+
+        assertThat(lines.length).isEqualTo(3);
+        assertThat(lines[0]).startsWith("{\"id\":1,");
+        assertThat(lines[1]).contains("\"genres\":[{\"id\":1,\"name\":\"Комедия\"},{\"id\":2,\"name\":\"Драма\"}]");
+        assertThat(lines[2]).contains("\"genres\":[]");
+    }
+
+    @Test
+    public void shouldPageFilmsByCursor() {
+        for (int i = 0; i < 3; i++) {
+            filmController.createFilm(film);
+        }
+
+        KeysetPage<Film> page = filmController.getFilms(2, 0);
+        assertThat(page.getItems().size()).isEqualTo(2);
+        assertThat(page.getItems().get(0).getGenres().size()).isEqualTo(1);
+        assertThat(page.getNextCursor()).isEqualTo(2);
+
+        page = filmController.getFilms(2, page.getNextCursor());
+        assertThat(page.getItems().size()).isEqualTo(1);
+        assertThat(page.getItems().get(0).getId()).isEqualTo(3);
+        assertThat(page.getNextCursor()).isNull();
+    }
 }
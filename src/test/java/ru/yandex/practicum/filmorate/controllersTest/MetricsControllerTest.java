@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.controllersTest;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class MetricsControllerTest {
+    private final MockMvc mockMvc;
+
+    @Test
+    public void shouldExposeRequestQueryAndCacheMetrics() throws Exception {
+        mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"user@mail.ru\",\"login\":\"user\",\"birthday\":\"1990-01-01\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/users/1")).andExpect(status().isOk());
+        mockMvc.perform(get("/genres/1")).andExpect(status().isOk());
+        mockMvc.perform(get("/films/999")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/films/popular")).andExpect(status().isOk());
+
+        String metrics = mockMvc.perform(get("/metrics"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/plain"))
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(metrics).contains("# TYPE http_server_requests_seconds histogram\n");
+        assertThat(metrics).contains(
+                "http_server_requests_seconds_count{method=\"GET\",uri=\"/genres/{id}\",status=\"200\"} 1\n");
+        assertThat(metrics).contains(
+                "http_server_requests_seconds_count{method=\"GET\",uri=\"/films/{id}\",status=\"404\"} 1\n");
+        assertThat(metrics).contains(
+                "http_server_requests_seconds_bucket{method=\"GET\",uri=\"/films/{id}\",status=\"404\",le=\"+Inf\"} 1\n");
+        assertThat(metrics).contains("filmorate_jdbc_query_seconds_count{operation=\"FilmDbStorage.getFilmById\"} 1\n");
+        assertThat(metrics).contains("filmorate_jdbc_rows_total{operation=\"FilmDbStorage.getFilmById\"} 0\n");
+        assertThat(metrics).contains("filmorate_jdbc_rows_total{operation=\"UserDbStorage.createUser\"} 1\n");
+        assertThat(metrics).contains("filmorate_jdbc_rows_total{operation=\"UserDbStorage.getUserById\"} 1\n");
+        assertThat(metrics).contains("cache_gets_total{cache=\"genres\",result=\"miss\"} 1\n");
+        assertThat(metrics).contains("cache_hit_ratio{cache=\"genres\"}");
+    }
+}
@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.controllersTest;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class ReactiveControllerTest {
+    private final TestRestTemplate restTemplate;
+    private final UserService userService;
+
+    @Test
+    public void shouldStreamEveryUserAcrossPagesAndBatches() {
+        IntStream.rangeClosed(1, 250).forEach(i -> userService.createUser(user(i)));
+
+        ResponseEntity<String> response = getNdjson("/reactive/users");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON);
+        List<String> lines = Arrays.asList(response.getBody().split("\n"));
+        assertEquals(250, lines.size());
+        assertThat(lines.get(0)).contains("\"login\":\"user1\"");
+        assertThat(lines.get(249)).contains("\"login\":\"user250\"");
+    }
+
+    @Test
+    public void shouldStreamFriendsAndAnswer404ForAMissingUser() {
+        IntStream.rangeClosed(1, 4).forEach(i -> userService.createUser(user(i)));
+        userService.addFriend(1, 2);
+        userService.addFriend(1, 4);
+
+        ResponseEntity<String> friends = getNdjson("/reactive/users/1/friends");
+        assertEquals(List.of(2, 4), Arrays.stream(friends.getBody().split("\n"))
+                .map(line -> line.replaceAll(".*\"id\":(\\d+).*", "$1"))
+                .map(Integer::valueOf)
+                .collect(Collectors.toList()));
+
+        ResponseEntity<String> missingFriends = getNdjson("/reactive/users/999/friends");
+        assertEquals(HttpStatus.NOT_FOUND, missingFriends.getStatusCode());
+    }
+
+    @Test
+    public void shouldMapNotFoundFromACompletedFuture() {
+        userService.createUser(user(1));
+
+        assertEquals(HttpStatus.OK, restTemplate.getForEntity("/reactive/users/1", User.class).getStatusCode());
+        ResponseEntity<String> missing = restTemplate.getForEntity("/reactive/users/999", String.class);
+        assertEquals(HttpStatus.NOT_FOUND, missing.getStatusCode());
+        assertThat(missing.getBody()).contains("\"error\"");
+    }
+
+    private ResponseEntity<String> getNdjson(String path) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.APPLICATION_NDJSON, MediaType.APPLICATION_JSON));
+        return restTemplate.exchange(path, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+    }
+
+    private static User user(int i) {
+        return User.builder()
+                .email("user" + i + "@mail.ru")
+                .login("user" + i)
+                .name("User " + i)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+}
@@ -7,10 +7,17 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.DirtiesContext;
 import ru.yandex.practicum.filmorate.controllers.UserController;
+import ru.yandex.practicum.filmorate.exception.IncorrectParameterException;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.ImportResult;
+import ru.yandex.practicum.filmorate.model.ImportStatus;
+import ru.yandex.practicum.filmorate.model.KeysetPage;
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.List;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -18,7 +25,7 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 @SpringBootTest
 @AutoConfigureTestDatabase
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
-@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
 public class UserControllerTest {
 
     private final UserController userController;
@@ -196,4 +203,87 @@ public class UserControllerTest {
         assertThrows(NotFoundException.class, () -> userController.getFriendList(33));
 
     }
+
+    @Test
+    void shouldImportUsersFromNdjson() {
+        String body = "{\"email\": \"first@mail.ru\", \"login\": \"first\", \"birthday\": \"1990-01-01\"}\n" +
+                "{\"email\": \"wrong\", \"login\": \"second\", \"birthday\": \"1990-01-01\"}\n" +
+                "{\"email\": \"third@mail.ru\", \"login\": \"third\", \"name\": \"Third\", " +
+                "\"birthday\": \"1990-01-01\"}\n";
+
+        List<ImportResult> results = userController.importUsers(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(results.size()).isEqualTo(3);
+        assertThat(results.get(0).getStatus()).isEqualTo(ImportStatus.CREATED);
+        assertThat(results.get(1).getStatus()).isEqualTo(ImportStatus.INVALID);
+        assertThat(results.get(2).getStatus()).isEqualTo(ImportStatus.CREATED);
+        assertThat(userController.getUserById(results.get(0).getId()).getName()).isEqualTo("first");
+        assertThat(userController.getUsers().size()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldReportAnItemCutShortAsItself() {
+        String body = "[{\"email\": \"first@mail.ru\", \"login\": \"first\", \"birthday\": \"1990-01-01\"}," +
+                "{\"email\": \"second@mail.ru\", \"login\": ";
+
+        List<ImportResult> results = userController.importUsers(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(results.size()).isEqualTo(2);
+        assertThat(results.get(0).getStatus()).isEqualTo(ImportStatus.CREATED);
+        assertThat(results.get(1).getIndex()).isEqualTo(1);
+        assertThat(results.get(1).getStatus()).isEqualTo(ImportStatus.INVALID);
+        assertThat(results.get(1).getErrors().get(0)).startsWith("Body is not valid JSON");
+        assertThat(userController.getUsers().size()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRejectAnItemThatIsNotAnObjectAndGoOn() {
+        String body = "[{\"email\": \"first@mail.ru\", \"login\": \"first\", \"birthday\": \"1990-01-01\"}," +
+                "1, [{\"login\": \"nested\"}]," +
+                "{\"email\": \"second@mail.ru\", \"login\": \"second\", \"birthday\": \"1990-01-02\"}]";
+
+        List<ImportResult> results = userController.importUsers(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(results.size()).isEqualTo(4);
+        assertThat(results.get(0).getStatus()).isEqualTo(ImportStatus.CREATED);
+        assertThat(results.get(1).getStatus()).isEqualTo(ImportStatus.INVALID);
+        assertThat(results.get(2).getStatus()).isEqualTo(ImportStatus.INVALID);
+        assertThat(results.get(3).getIndex()).isEqualTo(3);
+        assertThat(results.get(3).getStatus()).isEqualTo(ImportStatus.CREATED);
+        assertThat(userController.getUsers().size()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldPageUsersAndFriendsByCursor() {
+        for (int i = 1; i <= 5; i++) {
+            userController.createUser(User.builder()
+                    .email("user" + i + "@mail.ru")
+                    .login("user" + i)
+                    .birthday(LocalDate.of(1990, 1, i))
+                    .build());
+        }
+        for (int friendId = 2; friendId <= 5; friendId++) {
+            userController.addFriend(1, friendId);
+        }
+
+        KeysetPage<User> users = userController.getUsers(3, 0);
+        assertThat(users.getItems().size()).isEqualTo(3);
+        assertThat(users.getNextCursor()).isEqualTo(3);
+        users = userController.getUsers(3, users.getNextCursor());
+        assertThat(users.getItems().get(0).getId()).isEqualTo(4);
+        assertThat(users.getNextCursor()).isNull();
+
+        KeysetPage<User> friends = userController.getFriendList(1, 2, 0);
+        assertThat(friends.getItems().get(0).getId()).isEqualTo(2);
+        assertThat(friends.getNextCursor()).isEqualTo(3);
+        friends = userController.getFriendList(1, 2, friends.getNextCursor());
+        assertThat(friends.getItems().get(1).getId()).isEqualTo(5);
+        assertThat(friends.getNextCursor()).isNull();
+
+        assertThrows(NotFoundException.class, () -> userController.getFriendList(9999, 2, 0));
+        assertThrows(IncorrectParameterException.class, () -> userController.getUsers(0, 0));
+    }
 }
@@ -0,0 +1,392 @@
+package ru.yandex.practicum.filmorate.daoTest;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.dao.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.dao.genre.GenreDbStorage;
+import ru.yandex.practicum.filmorate.dao.rating.MpaDbStorage;
+import ru.yandex.practicum.filmorate.dao.user.UserDbStorage;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.search.FilmSearchField;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@Import(StatementCounter.class)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class FilmDbStorageTest {
+    private final FilmDbStorage filmStorage;
+    private final UserDbStorage userStorage;
+    private final GenreDbStorage genreStorage;
+    private final MpaDbStorage mpaStorage;
+    private final StatementCounter statementCounter;
+    private final JdbcTemplate jdbcTemplate;
+
+    private Film createFilm(int number) {
+        return filmStorage.createFilm(Film.builder()
+                .name("Film " + number)
+                .description("Description " + number)
+                .releaseDate(LocalDate.of(2000, 1, 1).plusDays(number))
+                .duration(90 + number)
+                .mpa(new Mpa(1 + number % 5, null))
+                .genres(new ArrayList<>(List.of(new Genre(1 + number % 6, null), new Genre(1 + (number + 1) % 6, null))))
+                .build());
+    }
+
+    private Film createFilm(int year, Integer... genreIds) {
+        return filmStorage.createFilm(Film.builder()
+                .name("Film of " + year)
+                .description("Description")
+                .releaseDate(LocalDate.of(year, 6, 1))
+                .duration(90)
+                .mpa(new Mpa(1, null))
+                .genres(Arrays.stream(genreIds).map(id -> new Genre(id, null)).collect(Collectors.toList()))
+                .build());
+    }
+
+    private static List<Integer> ids(List<Film> films) {
+        return films.stream().map(Film::getId).collect(Collectors.toList());
+    }
+
+    private User createUser(int number) {
+        return userStorage.createUser(User.builder()
+                .email("user" + number + "@mail.ru")
+                .login("user" + number)
+                .name("User " + number)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build());
+    }
+
+    @Test
+    public void shouldLoadGenresOfAllFilmsWithConstantStatementCount() {
+        for (int i = 0; i < 3; i++) {
+            createFilm(i);
+        }
+        statementCounter.reset();
+        Collection<Film> fewFilms = filmStorage.getAllFilms();
+        int fewFilmsStatements = statementCounter.get();
+
+        for (int i = 3; i < 50; i++) {
+            createFilm(i);
+        }
+        statementCounter.reset();
+        Collection<Film> manyFilms = filmStorage.getAllFilms();
+
+        assertEquals(fewFilmsStatements, statementCounter.get());
+        assertThat(fewFilms.size()).isEqualTo(3);
+        assertThat(manyFilms.size()).isEqualTo(50);
+        manyFilms.forEach(film -> assertThat(film.getGenres().size()).isEqualTo(2));
+    }
+
+    @Test
+    public void shouldLoadGenresOfPopularFilmsWithConstantStatementCount() {
+        User user = createUser(1);
+        for (int i = 0; i < 3; i++) {
+            filmStorage.addLike(createFilm(i).getId(), user.getId());
+        }
+        statementCounter.reset();
+        filmStorage.getPopularFilms(3, null, null);
+        int fewFilmsStatements = statementCounter.get();
+
+        for (int i = 3; i < 50; i++) {
+            filmStorage.addLike(createFilm(i).getId(), user.getId());
+        }
+        statementCounter.reset();
+        List<Film> popular = filmStorage.getPopularFilms(50, null, null);
+
+        assertEquals(fewFilmsStatements, statementCounter.get());
+        assertThat(popular.size()).isEqualTo(50);
+        popular.forEach(film -> assertThat(film.getGenres().size()).isEqualTo(2));
+    }
+
+    @Test
+    public void shouldOrderPopularFilmsByMaintainedLikesCount() {
+        User first = createUser(1);
+        User second = createUser(2);
+        Film film = createFilm(1);
+        Film liked = createFilm(2);
+        Film mostLiked = createFilm(3);
+        filmStorage.addLike(liked.getId(), first.getId());
+        filmStorage.addLike(mostLiked.getId(), first.getId());
+        filmStorage.addLike(mostLiked.getId(), second.getId());
+        filmStorage.addLike(film.getId(), second.getId());
+        filmStorage.deleteLike(film.getId(), second.getId());
+        filmStorage.deleteLike(film.getId(), second.getId());
+
+        List<Film> popular = filmStorage.getPopularFilms(3, null, null);
+
+        assertThat(popular.get(0).getId()).isEqualTo(mostLiked.getId());
+        assertThat(popular.get(1).getId()).isEqualTo(liked.getId());
+        assertThat(popular.get(2).getId()).isEqualTo(film.getId());
+        assertThat(jdbcTemplate.queryForObject("SELECT LIKES_COUNT FROM FILMS WHERE FILM_ID = ?",
+                Integer.class, film.getId())).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldReadPopularFilmsThroughLikesCountIndex() {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN SELECT * FROM FILMS " +
+                "ORDER BY LIKES_COUNT DESC, FILM_ID LIMIT 10", String.class);
+        assertThat(plan).contains("FILMS_LIKES_COUNT_IDX");
+    }
+
+    @Test
+    public void shouldFilterPopularFilmsByGenreAndYear() {
+        Film comedy1999 = createFilm(1999, 1);
+        Film drama1999 = createFilm(1999, 2);
+        Film comedy2000 = createFilm(2000, 1);
+        Film likedComedy1999 = createFilm(1999, 1, 2);
+        User user = createUser(1);
+        filmStorage.addLike(likedComedy1999.getId(), user.getId());
+        filmStorage.addLike(comedy2000.getId(), user.getId());
+
+        assertEquals(List.of(likedComedy1999.getId(), comedy1999.getId()), ids(filmStorage.getPopularFilms(10, 1, 1999)));
+        assertEquals(List.of(comedy2000.getId(), likedComedy1999.getId(), comedy1999.getId()),
+                ids(filmStorage.getPopularFilms(10, 1, null)));
+        assertEquals(List.of(likedComedy1999.getId(), comedy1999.getId(), drama1999.getId()),
+                ids(filmStorage.getPopularFilms(10, null, 1999)));
+        assertEquals(List.of(likedComedy1999.getId()), ids(filmStorage.getPopularFilms(1, 2, null)));
+        assertEquals(2, filmStorage.getPopularFilms(10, 1, 1999).get(0).getGenres().size());
+        assertEquals(List.of(), filmStorage.getPopularFilms(10, 3, 1999));
+    }
+
+    @Test
+    public void shouldReadFilteredPopularFilmsThroughIndexes() {
+        String byGenre = jdbcTemplate.queryForObject("EXPLAIN SELECT F.* FROM FILMS AS F " +
+                "JOIN FILM_GENRE AS FG ON FG.FILM_ID = F.FILM_ID AND FG.GENRE_ID = 1 " +
+                "ORDER BY F.LIKES_COUNT DESC, F.FILM_ID LIMIT 10", String.class);
+        assertThat(byGenre).contains("FILM_GENRE_GENRE_ID_IDX");
+
+        String byYear = jdbcTemplate.queryForObject("EXPLAIN SELECT F.* FROM FILMS AS F " +
+                "WHERE F.RELEASE_DATE >= DATE '1999-01-01' AND F.RELEASE_DATE < DATE '2000-01-01' " +
+                "ORDER BY F.LIKES_COUNT DESC, F.FILM_ID LIMIT 10", String.class);
+        assertThat(byYear).contains("FILMS_RELEASE_DATE_IDX");
+    }
+
+    @Test
+    public void shouldReadLikedFilmsOfUserThroughUserIdIndex() {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN SELECT FILM_ID FROM FILM_LIKES WHERE USER_ID = 1",
+                String.class);
+        assertThat(plan).contains("FILM_LIKES_USER_ID_IDX: USER_ID = 1");
+    }
+
+    @Test
+    public void shouldReadFilmsByIdArrayThroughPrimaryKey() {
+        Film first = createFilm(1);
+        Film second = createFilm(2);
+        createFilm(3);
+
+        String plan = jdbcTemplate.queryForObject("EXPLAIN SELECT * FROM FILMS WHERE FILM_ID = ANY(?)",
+                String.class, new Object[]{new Integer[]{first.getId(), second.getId()}});
+        assertThat(plan).contains("PRIMARY_KEY");
+        assertEquals(List.of(second.getId(), first.getId()),
+                ids(filmStorage.getFilmsByIds(List.of(second.getId(), first.getId(), 999))));
+    }
+
+    @Test
+    public void shouldServeGenresAndMpaWithoutStatements() {
+        Film film = createFilm(1);
+        statementCounter.reset();
+
+        assertThat(genreStorage.getAll().size()).isEqualTo(6);
+        assertThat(genreStorage.getById(1).getName()).isEqualTo("Комедия");
+        assertThat(mpaStorage.getAll().size()).isEqualTo(5);
+        assertThat(mpaStorage.getById(1).getName()).isEqualTo("G");
+        assertThrows(NotFoundException.class, () -> genreStorage.getById(100));
+        assertThrows(NotFoundException.class, () -> mpaStorage.getById(100));
+        assertEquals(0, statementCounter.get());
+
+        Film loaded = filmStorage.getFilmById(film.getId());
+        assertThat(loaded.getMpa().getName()).isEqualTo("PG");
+        assertThat(loaded.getGenres().get(0).getName()).isEqualTo("Драма");
+    }
+
+    @Test
+    public void shouldReadBackAFilmWithoutMpa() {
+        Film rated = createFilm(1);
+        Film unrated = filmStorage.createFilms(List.of(Film.builder()
+                .name("Unrated")
+                .description("Description")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(0)
+                .genres(new ArrayList<>())
+                .build())).get(0);
+
+        assertThat(filmStorage.getFilmById(unrated.getId()).getMpa()).isNull();
+        assertEquals(List.of(rated.getId(), unrated.getId()), ids(new ArrayList<>(filmStorage.getAllFilms())));
+        assertEquals(List.of(rated.getId(), unrated.getId()), ids(filmStorage.getPopularFilms(10, null, null)));
+        assertThat(filmStorage.getFilmsByIds(List.of(unrated.getId())).get(0).getMpa()).isNull();
+    }
+
+    @Test
+    public void shouldWriteLikesWithoutExistenceQueries() {
+        Film film = createFilm(1);
+        User user = createUser(1);
+
+        statementCounter.reset();
+        assertThat(filmStorage.addLike(film.getId(), user.getId())).isTrue();
+        assertEquals(2, statementCounter.get());
+
+        statementCounter.reset();
+        assertThat(filmStorage.deleteLike(film.getId(), user.getId())).isTrue();
+        assertEquals(2, statementCounter.get());
+    }
+
+    @Test
+    public void shouldLeaveARepeatedLikeUnchanged() {
+        Film film = createFilm(1);
+        User user = createUser(1);
+        List<Integer> likesCounted = new ArrayList<>();
+        filmStorage.addLikesCountListener((filmId, likes) -> likesCounted.add(likes));
+
+        assertThat(filmStorage.addLike(film.getId(), user.getId())).isTrue();
+        assertThat(filmStorage.addLike(film.getId(), user.getId())).isFalse();
+        assertThrows(NotFoundException.class, () -> filmStorage.addLike(film.getId(), user.getId() + 1));
+        assertThat(filmStorage.deleteLike(film.getId(), user.getId())).isTrue();
+        assertThat(filmStorage.addLike(film.getId(), user.getId())).isTrue();
+
+        assertEquals(List.of(1, 0, 1), likesCounted);
+
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT LIKES_COUNT FROM FILMS WHERE FILM_ID = ?",
+                Integer.class, film.getId()));
+    }
+
+    @Test
+    public void shouldThrowNotFoundWhenLikeRefersToMissingFilmOrUser() {
+        Film film = createFilm(1);
+        User user = createUser(1);
+
+        assertThrows(NotFoundException.class, () -> filmStorage.addLike(film.getId() + 1, user.getId()));
+        assertThrows(NotFoundException.class, () -> filmStorage.addLike(film.getId(), user.getId() + 1));
+        assertThrows(NotFoundException.class, () -> filmStorage.deleteLike(film.getId() + 1, user.getId()));
+        assertThrows(NotFoundException.class, () -> filmStorage.deleteLike(film.getId(), user.getId() + 1));
+        assertThat(filmStorage.deleteLike(film.getId(), user.getId())).isFalse();
+        assertThrows(NotFoundException.class, () -> filmStorage.getFilmById(film.getId() + 1));
+        assertThrows(NotFoundException.class, () -> filmStorage.deleteFilmById(film.getId() + 1));
+    }
+
+    @Test
+    public void shouldWriteOnlyChangedGenresOnUpdate() {
+        Film film = createFilm(0);
+        film.setGenres(new ArrayList<>(List.of(new Genre(3, null), new Genre(2, null), new Genre(3, null))));
+
+        statementCounter.reset();
+        Film updated = filmStorage.updateFilm(film);
+
+        assertEquals(4, statementCounter.get());
+        assertEquals(List.of(2, 3), updated.getGenres().stream().map(Genre::getId).collect(Collectors.toList()));
+        assertThat(updated.getGenres().get(0).getName()).isEqualTo("Драма");
+        assertEquals(List.of(2, 3), filmStorage.getFilmById(film.getId()).getGenres().stream()
+                .map(Genre::getId)
+                .collect(Collectors.toList()));
+
+        statementCounter.reset();
+        filmStorage.updateFilm(film);
+        assertEquals(2, statementCounter.get());
+    }
+
+    @Test
+    public void shouldRecommendFilmsLikedBySimilarUsers() {
+        List<Film> films = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            films.add(createFilm(i));
+        }
+        List<User> users = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            users.add(createUser(i));
+        }
+        int[][] likes = {{0, 0}, {0, 1}, {1, 0}, {1, 1}, {1, 2}, {2, 0}, {2, 3}, {3, 4}};
+        for (int[] like : likes) {
+            filmStorage.addLike(films.get(like[1]).getId(), users.get(like[0]).getId());
+        }
+
+        statementCounter.reset();
+        List<Film> recommended = filmStorage.getRecommendations(users.get(0).getId(), 10);
+
+        assertEquals(2, statementCounter.get());
+        assertEquals(List.of(films.get(2).getId(), films.get(3).getId()),
+                recommended.stream().map(Film::getId).collect(Collectors.toList()));
+        assertThat(recommended.get(0).getGenres().size()).isEqualTo(2);
+
+        filmStorage.deleteLike(films.get(2).getId(), users.get(1).getId());
+        filmStorage.deleteLike(films.get(3).getId(), users.get(2).getId());
+        assertEquals(List.of(), filmStorage.getRecommendations(users.get(0).getId(), 10));
+        assertThrows(NotFoundException.class, () -> filmStorage.getRecommendations(users.get(3).getId() + 1, 10));
+    }
+
+    @Test
+    public void shouldKeepLikeIndexInCommitOrderUnderConcurrentWrites() throws Exception {
+        Film shared = createFilm(1);
+        Film toggled = createFilm(2);
+        User user = createUser(1);
+        User other = createUser(2);
+        filmStorage.addLike(shared.getId(), user.getId());
+        filmStorage.addLike(shared.getId(), other.getId());
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 50; i++) {
+                    filmStorage.addLike(toggled.getId(), other.getId());
+                    filmStorage.deleteLike(toggled.getId(), other.getId());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM FILM_LIKES WHERE FILM_ID = ?",
+                Integer.class, toggled.getId()));
+        assertEquals(List.of(), filmStorage.getRecommendations(user.getId(), 10));
+    }
+
+    @Test
+    public void shouldSearchFilmsThroughIndexKeptInSyncWithWrites() {
+        Film first = createFilm(1);
+        Film second = createFilm(2);
+        User user = createUser(1);
+        filmStorage.addLike(second.getId(), user.getId());
+
+        statementCounter.reset();
+        List<Film> found = filmStorage.searchFilms("film", EnumSet.allOf(FilmSearchField.class), 10);
+        assertEquals(List.of(second.getId(), first.getId()), ids(found));
+        assertThat(found.get(0).getGenres().size()).isEqualTo(2);
+        assertEquals(2, statementCounter.get());
+
+        first.setName("Renamed");
+        filmStorage.updateFilm(first);
+        assertEquals(List.of(first.getId()), ids(filmStorage.searchFilms("renamed", EnumSet.of(FilmSearchField.TITLE), 10)));
+        assertEquals(List.of(second.getId()), ids(filmStorage.searchFilms("film", EnumSet.of(FilmSearchField.TITLE), 10)));
+
+        filmStorage.deleteFilmById(first.getId());
+        assertEquals(List.of(), filmStorage.searchFilms("renamed", EnumSet.allOf(FilmSearchField.class), 10));
+    }
+}
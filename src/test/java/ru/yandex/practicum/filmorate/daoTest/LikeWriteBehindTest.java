@@ -0,0 +1,223 @@
+package ru.yandex.practicum.filmorate.daoTest;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.dao.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.dao.film.LikeWriteBehind;
+import ru.yandex.practicum.filmorate.dao.user.UserDbStorage;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ServiceUnavailableException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "filmorate.likes.write-mode=write-behind",
+        "filmorate.likes.write-behind.flush-interval=1h",
+        "filmorate.likes.write-behind.capacity=3",
+        "filmorate.likes.write-behind.full-queue-timeout=50ms"
+})
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class LikeWriteBehindTest {
+    private final FilmDbStorage filmStorage;
+    private final UserDbStorage userStorage;
+    private final LikeWriteBehind likeWriteBehind;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private Film createFilm(int number) {
+        return filmStorage.createFilm(Film.builder()
+                .name("Film " + number)
+                .description("Description " + number)
+                .releaseDate(LocalDate.of(2000, 1, 1).plusDays(number))
+                .duration(90)
+                .mpa(new Mpa(1, null))
+                .genres(new ArrayList<>())
+                .build());
+    }
+
+    private User createUser(int number) {
+        return userStorage.createUser(User.builder()
+                .email("user" + number + "@mail.ru")
+                .login("user" + number)
+                .name("User " + number)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build());
+    }
+
+    private int storedLikes() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM FILM_LIKES", Integer.class);
+    }
+
+    private static List<Integer> ids(List<Film> films) {
+        return films.stream().map(Film::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    public void shouldShowQueuedLikesInPopularFilmsBeforeTheyAreWritten() {
+        Film film = createFilm(1);
+        Film liked = createFilm(2);
+        User user = createUser(1);
+
+        Map<Integer, Integer> likesCounted = new ConcurrentHashMap<>();
+        filmStorage.addLikesCountListener(likesCounted::put);
+
+        assertTrue(filmStorage.addLike(liked.getId(), user.getId()));
+        assertFalse(filmStorage.addLike(liked.getId(), user.getId()));
+
+        assertEquals(0, storedLikes());
+        assertEquals(Map.of(), likesCounted);
+        assertEquals(List.of(liked.getId(), film.getId()), ids(filmStorage.getPopularFilms(2, null, null)));
+        assertEquals(List.of(liked.getId()), ids(filmStorage.getPopularFilms(1, null, 2000)));
+
+        likeWriteBehind.flush();
+
+        assertEquals(1, storedLikes());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT LIKES_COUNT FROM FILMS WHERE FILM_ID = ?",
+                Integer.class, liked.getId()));
+        assertEquals(Map.of(), likeWriteBehind.pendingDeltas());
+        assertEquals(Map.of(liked.getId(), 1), likesCounted);
+        assertEquals(List.of(liked.getId(), film.getId()), ids(filmStorage.getPopularFilms(2, null, null)));
+    }
+
+    @Test
+    public void shouldRereadLikeCountsWhenAFlushCommitsMeanwhile() {
+        Film film = createFilm(1);
+        User user = createUser(1);
+        filmStorage.addLike(film.getId(), user.getId());
+        AtomicInteger reads = new AtomicInteger();
+
+        int likes = likeWriteBehind.readWithPendingDeltas(pendingDeltas -> {
+            if (reads.getAndIncrement() == 0) {
+                likeWriteBehind.flush();
+            }
+            return jdbcTemplate.queryForObject("SELECT LIKES_COUNT FROM FILMS WHERE FILM_ID = ?",
+                    Integer.class, film.getId()) + pendingDeltas.getOrDefault(film.getId(), 0);
+        });
+
+        assertEquals(1, likes);
+        assertEquals(2, reads.get());
+    }
+
+    @Test
+    public void shouldDropFilmsLosingQueuedLikesFromPopularFilms() {
+        Film first = createFilm(1);
+        Film second = createFilm(2);
+        Film third = createFilm(3);
+        User user = createUser(1);
+        User other = createUser(2);
+        filmStorage.addLike(first.getId(), user.getId());
+        filmStorage.addLike(first.getId(), other.getId());
+        filmStorage.addLike(second.getId(), user.getId());
+        likeWriteBehind.flush();
+
+        filmStorage.deleteLike(first.getId(), user.getId());
+        filmStorage.deleteLike(first.getId(), other.getId());
+
+        assertEquals(List.of(second.getId(), first.getId()), ids(filmStorage.getPopularFilms(2, null, null)));
+        likeWriteBehind.flush();
+        assertEquals(List.of(second.getId(), first.getId(), third.getId()),
+                ids(filmStorage.getPopularFilms(3, null, null)));
+        assertEquals(1, storedLikes());
+    }
+
+    @Test
+    public void shouldCancelOutALikeAndUnlikeOfTheSamePair() {
+        Film film = createFilm(1);
+        User user = createUser(1);
+
+        filmStorage.addLike(film.getId(), user.getId());
+        filmStorage.deleteLike(film.getId(), user.getId());
+
+        assertEquals(Map.of(), likeWriteBehind.pendingDeltas());
+        likeWriteBehind.flush();
+        assertEquals(0, storedLikes());
+        assertThrows(NotFoundException.class, () -> filmStorage.addLike(film.getId(), 999));
+    }
+
+    @Test
+    public void shouldRefuseLikesWhileTheQueueIsFull() {
+        User user = createUser(1);
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            films.add(createFilm(i));
+        }
+        // holding the monitor keeps the flusher from making room
+        synchronized (AopTestUtils.<LikeWriteBehind>getTargetObject(likeWriteBehind)) {
+            for (int i = 0; i < 3; i++) {
+                filmStorage.addLike(films.get(i).getId(), user.getId());
+            }
+            assertThrows(ServiceUnavailableException.class, () -> filmStorage.addLike(films.get(3).getId(), user.getId()));
+        }
+        likeWriteBehind.flush();
+        assertTrue(filmStorage.addLike(films.get(3).getId(), user.getId()));
+    }
+
+    @Test
+    public void shouldAcknowledgeGroupCommitsOnlyOnceWritten() throws Exception {
+        Film film = createFilm(1);
+        User user = createUser(1);
+        LikeWriteBehind groupCommit = new LikeWriteBehind(jdbcTemplate, transactionTemplate, 500,
+                Duration.ofMillis(20), 10, Duration.ofSeconds(1), LikeWriteBehind.Durability.GROUP_COMMIT);
+        groupCommit.start();
+        try {
+            assertTrue(groupCommit.submit(film.getId(), user.getId(), true, () -> true));
+            assertEquals(1, storedLikes());
+        } finally {
+            groupCommit.stop();
+        }
+        assertThat(groupCommit.pendingDeltas()).isEqualTo(Map.of());
+    }
+
+    @Test
+    public void shouldAcknowledgeAGroupCommitRetriedAfterAFailedFlush() throws Exception {
+        Film film = createFilm(1);
+        User user = createUser(1);
+        AtomicInteger flushes = new AtomicInteger();
+        TransactionTemplate failingOnce = new TransactionTemplate(transactionTemplate.getTransactionManager()) {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                if (flushes.getAndIncrement() == 0) {
+                    throw new TransientDataAccessResourceException("Database is not available");
+                }
+                return super.execute(action);
+            }
+        };
+        LikeWriteBehind groupCommit = new LikeWriteBehind(jdbcTemplate, failingOnce, 500,
+                Duration.ofMillis(20), 10, Duration.ofSeconds(1), LikeWriteBehind.Durability.GROUP_COMMIT);
+        groupCommit.start();
+        try {
+            assertTrue(groupCommit.submit(film.getId(), user.getId(), true, () -> true));
+            assertEquals(1, storedLikes());
+            assertThat(flushes.get()).isGreaterThan(1);
+        } finally {
+            groupCommit.stop();
+        }
+    }
+}
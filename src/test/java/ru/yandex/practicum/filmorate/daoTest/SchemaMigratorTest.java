@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.daoTest;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.dao.migration.SchemaMigrator;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class SchemaMigratorTest {
+    private final SchemaMigrator schemaMigrator;
+    private final JdbcTemplate jdbcTemplate;
+
+    private List<Integer> appliedVersions() {
+        return jdbcTemplate.queryForList("SELECT VERSION FROM SCHEMA_HISTORY ORDER BY VERSION", Integer.class);
+    }
+
+    @Test
+    public void shouldApplyEveryMigrationOnce() {
+        assertEquals(List.of(1, 2), appliedVersions());
+        assertEquals(6, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM GENRE", Integer.class));
+
+        schemaMigrator.afterPropertiesSet();
+        assertEquals(List.of(1, 2), appliedVersions());
+    }
+
+    @Test
+    public void shouldRejectEditedMigration() {
+        jdbcTemplate.update("UPDATE SCHEMA_HISTORY SET CHECKSUM = CHECKSUM + 1 WHERE VERSION = 2");
+
+        assertThrows(IllegalStateException.class, schemaMigrator::afterPropertiesSet);
+    }
+}
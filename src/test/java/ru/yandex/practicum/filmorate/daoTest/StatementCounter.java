@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.daoTest;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Wraps the application {@link DataSource} and counts every statement prepared through it,
+ * so tests can assert how many round trips a storage call costs.
+ */
+public class StatementCounter implements BeanPostProcessor {
+    private final AtomicInteger count = new AtomicInteger();
+
+    public int get() {
+        return count.get();
+    }
+
+    public void reset() {
+        count.set(0);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof DataSource)) {
+            return bean;
+        }
+        return new DelegatingDataSource((DataSource) bean) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return countStatements(super.getConnection());
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                return countStatements(super.getConnection(username, password));
+            }
+        };
+    }
+
+    private Connection countStatements(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.equals("prepareStatement") || name.equals("createStatement")
+                            || name.equals("prepareCall")) {
+                        count.incrementAndGet();
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
@@ -0,0 +1,204 @@
+package ru.yandex.practicum.filmorate.daoTest;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.dao.user.UserDbStorage;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@Import(StatementCounter.class)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class UserDbStorageTest {
+    private final UserDbStorage userStorage;
+    private final StatementCounter statementCounter;
+    private final JdbcTemplate jdbcTemplate;
+
+    private User createUser(int number) {
+        return userStorage.createUser(User.builder()
+                .email("user" + number + "@mail.ru")
+                .login("user" + number)
+                .name("User " + number)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build());
+    }
+
+    @Test
+    public void shouldWriteFriendsWithoutExistenceQueries() {
+        User user = createUser(1);
+        User friend = createUser(2);
+
+        statementCounter.reset();
+        userStorage.addFriend(user.getId(), friend.getId());
+        assertEquals(2, statementCounter.get());
+
+        statementCounter.reset();
+        userStorage.addFriend(user.getId(), friend.getId());
+        assertEquals(1, statementCounter.get());
+
+        statementCounter.reset();
+        userStorage.deleteFriend(user.getId(), friend.getId());
+        assertEquals(1, statementCounter.get());
+        assertThat(userStorage.getFriendList(user.getId()).size()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldDeleteFriendshipInBothDirectionsThroughPrimaryKey() {
+        User user = createUser(1);
+        User friend = createUser(2);
+        userStorage.addFriend(user.getId(), friend.getId());
+        userStorage.addFriend(friend.getId(), user.getId());
+
+        userStorage.deleteFriend(user.getId(), friend.getId());
+        assertThat(userStorage.getFriendList(user.getId()).size()).isEqualTo(0);
+        assertThat(userStorage.getFriendList(friend.getId()).size()).isEqualTo(0);
+
+        String plan = jdbcTemplate.queryForObject("EXPLAIN DELETE FROM FRIENDS " +
+                "WHERE USER_ID IN (1, 2) AND FRIEND_ID IN (1, 2) AND USER_ID <> FRIEND_ID", String.class);
+        assertThat(plan).containsPattern("PRIMARY_KEY_\\w+: USER_ID IN");
+    }
+
+    @Test
+    public void shouldDeleteASelfFriendshipOnlyWhenAskedFor() {
+        User user = createUser(1);
+        User friend = createUser(2);
+        userStorage.addFriend(user.getId(), user.getId());
+        userStorage.addFriend(friend.getId(), friend.getId());
+        userStorage.addFriend(user.getId(), friend.getId());
+
+        userStorage.deleteFriend(user.getId(), friend.getId());
+        assertEquals(List.of(user.getId()), ids(userStorage.getFriendList(user.getId())));
+        assertEquals(List.of(friend.getId()), ids(userStorage.getFriendList(friend.getId())));
+
+        userStorage.deleteFriend(user.getId(), user.getId());
+        assertThat(userStorage.getFriendList(user.getId()).size()).isEqualTo(0);
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM FRIENDS WHERE USER_ID = ?",
+                Integer.class, user.getId()));
+    }
+
+    @Test
+    public void shouldReadFollowersThroughFriendIdIndex() {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN SELECT USER_ID FROM FRIENDS WHERE FRIEND_ID = 1",
+                String.class);
+        assertThat(plan).contains("FRIENDS_FRIEND_ID_IDX: FRIEND_ID = 1");
+    }
+
+    @Test
+    public void shouldThrowNotFoundForMissingUsers() {
+        User user = createUser(1);
+        int missingId = user.getId() + 1;
+
+        assertThrows(NotFoundException.class, () -> userStorage.getUserById(missingId));
+        assertThrows(NotFoundException.class, () -> userStorage.deleteUserById(missingId));
+        assertThrows(NotFoundException.class, () -> userStorage.addFriend(user.getId(), missingId));
+        assertThrows(NotFoundException.class, () -> userStorage.addFriend(missingId, user.getId()));
+        assertThrows(NotFoundException.class, () -> userStorage.deleteFriend(user.getId(), missingId));
+        assertThrows(NotFoundException.class, () -> userStorage.getFriendList(missingId));
+        assertThrows(NotFoundException.class, () -> userStorage.getCommonFriends(missingId, user.getId()));
+        assertThat(userStorage.getCommonFriends(user.getId(), user.getId()).size()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldLoadCommonFriendsWithTwoStatements() {
+        for (int i = 1; i <= 6; i++) {
+            createUser(i);
+        }
+        for (int friendId : new int[]{3, 4, 5}) {
+            userStorage.addFriend(1, friendId);
+        }
+        for (int friendId : new int[]{1, 4, 5, 6}) {
+            userStorage.addFriend(2, friendId);
+        }
+
+        statementCounter.reset();
+        List<Integer> common = userStorage.getCommonFriends(1, 2).stream()
+                .map(User::getId)
+                .collect(Collectors.toList());
+
+        assertEquals(List.of(4, 5), common);
+        assertEquals(2, statementCounter.get());
+        assertThat(userStorage.getCommonFriends(1, 6).size()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldRecommendFriendsOfFriendsByMutualCount() {
+        for (int i = 1; i <= 6; i++) {
+            createUser(i);
+        }
+        userStorage.addFriend(1, 2);
+        userStorage.addFriend(1, 3);
+        userStorage.addFriend(2, 4);
+        userStorage.addFriend(2, 5);
+        userStorage.addFriend(3, 4);
+        userStorage.addFriend(3, 1);
+        userStorage.addFriend(3, 2);
+
+        statementCounter.reset();
+        List<Integer> recommended = userStorage.getRecommendations(1, 10).stream()
+                .map(User::getId)
+                .collect(Collectors.toList());
+
+        assertEquals(List.of(4, 5), recommended);
+        assertEquals(1, statementCounter.get());
+
+        userStorage.deleteFriend(2, 5);
+        assertEquals(List.of(4), userStorage.getRecommendations(1, 10).stream()
+                .map(User::getId)
+                .collect(Collectors.toList()));
+        assertThat(userStorage.getRecommendations(6, 10).size()).isEqualTo(0);
+        assertThrows(NotFoundException.class, () -> userStorage.getRecommendations(99, 10));
+    }
+
+    @Test
+    public void shouldKeepFriendIndexInCommitOrderUnderConcurrentWrites() throws Exception {
+        User user = createUser(1);
+        User friend = createUser(2);
+        User toggled = createUser(3);
+        userStorage.addFriend(user.getId(), friend.getId());
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 50; i++) {
+                    userStorage.addFriend(friend.getId(), toggled.getId());
+                    userStorage.deleteFriend(toggled.getId(), friend.getId());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(userStorage.getFriendList(friend.getId()).size()).isEqualTo(0);
+        assertEquals(List.of(), userStorage.getRecommendations(user.getId(), 10));
+    }
+
+    private static List<Integer> ids(List<User> users) {
+        return users.stream()
+                .map(User::getId)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate.reactiveTest;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.KeysetPage;
+import ru.yandex.practicum.filmorate.reactive.KeysetPublisher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class KeysetPublisherTest {
+    private static final List<Integer> IDS = IntStream.rangeClosed(1, 10).boxed().collect(Collectors.toList());
+
+    private final List<Integer> fetchedLimits = new ArrayList<>();
+    private final KeysetPublisher<Integer> publisher = new KeysetPublisher<>(this::fetch, 4, Runnable::run);
+
+    @Test
+    public void shouldFetchNoMoreRowsThanRequested() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+
+        subscriber.subscription.request(3);
+        assertEquals(List.of(1, 2, 3), subscriber.items);
+        assertEquals(List.of(3), fetchedLimits);
+
+        subscriber.subscription.request(6);
+        assertEquals(IDS.subList(0, 9), subscriber.items);
+        assertEquals(List.of(3, 4, 2), fetchedLimits);
+        assertFalse(subscriber.completed);
+
+        subscriber.subscription.request(5);
+        assertEquals(IDS, subscriber.items);
+        assertTrue(subscriber.completed);
+    }
+
+    @Test
+    public void shouldStopFetchingOnceCancelled() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        subscriber.onItem = item -> {
+            if (item == 2) {
+                subscriber.subscription.cancel();
+            }
+            return null;
+        };
+        publisher.subscribe(subscriber);
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        assertEquals(List.of(1, 2), subscriber.items);
+        assertEquals(List.of(4), fetchedLimits);
+        assertFalse(subscriber.completed);
+    }
+
+    @Test
+    public void shouldSignalAnErrorForANonPositiveRequest() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+
+        subscriber.subscription.request(0);
+
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        assertTrue(fetchedLimits.isEmpty());
+    }
+
+    private KeysetPage<Integer> fetch(int afterId, int limit) {
+        fetchedLimits.add(limit);
+        List<Integer> rows = IDS.stream().filter(id -> id > afterId).limit(limit + 1).collect(Collectors.toList());
+        return KeysetPage.of(rows, limit, Integer::intValue);
+    }
+
+    private static class RecordingSubscriber implements Flow.Subscriber<Integer> {
+        private final List<Integer> items = new ArrayList<>();
+        private Flow.Subscription subscription;
+        private Function<Integer, Void> onItem = item -> null;
+        private boolean completed;
+        private Throwable error;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(Integer item) {
+            items.add(item);
+            onItem.apply(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
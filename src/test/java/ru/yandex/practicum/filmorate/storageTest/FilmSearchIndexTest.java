@@ -0,0 +1,74 @@
+package ru.yandex.practicum.filmorate.storageTest;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.IncorrectParameterException;
+import ru.yandex.practicum.filmorate.storage.film.search.FilmSearchField;
+import ru.yandex.practicum.filmorate.storage.film.search.FilmSearchIndex;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FilmSearchIndexTest {
+    private static final Set<FilmSearchField> ALL_FIELDS = EnumSet.allOf(FilmSearchField.class);
+
+    private final FilmSearchIndex index = new FilmSearchIndex();
+
+    @Test
+    public void shouldMatchCaseFoldedCyrillicAndLatinTokensAndPrefixes() {
+        index.put(1, "Ёлки", "Новогодняя комедия");
+        index.put(2, "The Matrix", "Neo learns the truth");
+        index.put(3, "Матрица: Перезагрузка", "Sequel of The Matrix");
+
+        assertArrayEquals(new int[]{1}, search("ЕЛКИ"));
+        assertArrayEquals(new int[]{1}, search("новогод"));
+        assertArrayEquals(new int[]{2, 3}, search("matrix"));
+        assertArrayEquals(new int[]{3}, search("matrix, sequel!"));
+        assertArrayEquals(new int[0], search("matrix комедия"));
+        assertArrayEquals(new int[0], search("..."));
+    }
+
+    @Test
+    public void shouldRankTitleAndExactMatchesFirstAndBoostLikedFilms() {
+        index.put(1, "Road trip", "A comedy");
+        index.put(2, "Comedy night", "Stand-up");
+        index.put(3, "Comedians", "Behind the scenes");
+        index.put(4, "Comedy club", "Stand-up");
+
+        assertArrayEquals(new int[]{2, 3, 4, 1}, search("comed"));
+        assertArrayEquals(new int[]{2, 4, 1}, search("comedy"));
+        assertArrayEquals(new int[]{1}, index.search("comedy", EnumSet.of(FilmSearchField.DESCRIPTION), 10, id -> 0));
+
+        Map<Integer, Integer> likes = Map.of(4, 3);
+        assertArrayEquals(new int[]{4, 2}, index.search("comedy", ALL_FIELDS, 2, id -> likes.getOrDefault(id, 0)));
+    }
+
+    @Test
+    public void shouldFollowUpdatesAndDeletes() {
+        index.put(1, "Old title", "Old description");
+        index.put(1, "New title", "New description");
+        index.put(2, "Old times", "");
+
+        assertArrayEquals(new int[]{1}, search("new"));
+        assertArrayEquals(new int[]{2}, search("old"));
+
+        index.remove(2);
+        assertArrayEquals(new int[0], search("old"));
+        assertArrayEquals(new int[]{1}, search("title"));
+    }
+
+    @Test
+    public void shouldParseSearchFields() {
+        assertEquals(EnumSet.of(FilmSearchField.TITLE), FilmSearchField.parse("title"));
+        assertEquals(ALL_FIELDS, FilmSearchField.parse("description, Title"));
+        assertThrows(IncorrectParameterException.class, () -> FilmSearchField.parse("director"));
+    }
+
+    private int[] search(String query) {
+        return index.search(query, ALL_FIELDS, 10, id -> 0);
+    }
+}
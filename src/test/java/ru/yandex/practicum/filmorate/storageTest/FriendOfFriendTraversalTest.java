@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.storageTest;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.graph.FriendOfFriendTraversal;
+import ru.yandex.practicum.filmorate.storage.graph.IntAdjacencyStore;
+import ru.yandex.practicum.filmorate.storage.graph.IntCounter;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FriendOfFriendTraversalTest {
+    private final IntAdjacencyStore graph = new IntAdjacencyStore();
+
+    @Test
+    public void shouldRankByMutualFriendsAndSkipExistingFriends() {
+        graph.add(1, 2);
+        graph.add(1, 3);
+        graph.add(1, 4);
+        graph.add(2, 10);
+        graph.add(3, 10);
+        graph.add(4, 10);
+        graph.add(2, 11);
+        graph.add(3, 11);
+        graph.add(2, 12);
+        graph.add(2, 3);
+        graph.add(3, 1);
+
+        assertArrayEquals(new int[]{10, 11, 12}, FriendOfFriendTraversal.recommend(graph, 1, 5));
+        assertArrayEquals(new int[]{10, 11}, FriendOfFriendTraversal.recommend(graph, 1, 2));
+        assertArrayEquals(new int[0], FriendOfFriendTraversal.recommend(graph, 99, 5));
+    }
+
+    @Test
+    public void shouldRankLargeFriendListsAndCapCelebrities() {
+        int friends = 1_000;
+        for (int friend = 2; friend < 2 + friends; friend++) {
+            graph.add(1, friend);
+            graph.add(friend, 100_000 + friend % 7);
+        }
+        int celebrity = 2;
+        for (int follower = 200_000; follower < 200_000 + 10_000; follower++) {
+            graph.add(celebrity, follower);
+        }
+
+        int[] recommended = FriendOfFriendTraversal.recommend(graph, 1, 3);
+
+        // friends 2..1001 hit 100_001 (friend % 7 == 1) 142 times and every other contact 143 times
+        assertArrayEquals(new int[]{100_000, 100_002, 100_003}, recommended);
+        int[] all = FriendOfFriendTraversal.recommend(graph, 1, 10_000);
+        int celebrityContacts = countAbove(all, 200_000 - 1);
+        assertTrue(celebrityContacts > 0);
+        assertTrue(celebrityContacts <= FriendOfFriendTraversal.MAX_FRIENDS_OF_FRIEND);
+        assertEquals(7 + celebrityContacts, all.length);
+    }
+
+    @Test
+    public void shouldCountAndMergeWithoutBoxing() {
+        IntCounter first = new IntCounter(2);
+        IntCounter second = new IntCounter(2, 2_000);
+        for (int i = 1; i <= 1_000; i++) {
+            first.increment(i, 1);
+            second.increment(i * 2, 2);
+        }
+        first.addAll(second);
+
+        assertEquals(1_000 + 500, first.size());
+        assertEquals(3, first.get(2));
+        assertEquals(1, first.get(3));
+        assertEquals(2, first.get(2_000));
+        assertEquals(0, first.get(5_000));
+
+        second.increment(10_000, 1);
+        assertEquals(1, second.get(10_000));
+    }
+
+    private static int countAbove(int[] ids, int bound) {
+        int count = 0;
+        for (int id : ids) {
+            if (id > bound) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,191 @@
+package ru.yandex.practicum.filmorate.storageTest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.codec.BinaryReader;
+import ru.yandex.practicum.filmorate.codec.BinaryWriter;
+import ru.yandex.practicum.filmorate.codec.ModelDecoder;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.impl.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.impl.InMemoryUserStorage;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class InMemoryStorageConcurrencyTest {
+    private static final int THREADS = 16;
+    private static final int PER_THREAD = 500;
+
+    private InMemoryFilmStorage filmStorage;
+    private InMemoryUserStorage userStorage;
+
+    @BeforeEach
+    public void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        userStorage = new InMemoryUserStorage();
+    }
+
+    @Test
+    public void shouldGiveUniqueIdsToConcurrentlyCreatedEntities() throws Exception {
+        runConcurrently(thread -> {
+            for (int i = 0; i < PER_THREAD; i++) {
+                filmStorage.createFilm(film("Film " + thread + "-" + i));
+                userStorage.createUser(user("user" + thread + "-" + i));
+            }
+        });
+
+        int total = THREADS * PER_THREAD;
+        assertEquals(total, filmStorage.getAllFilms().size());
+        assertEquals(total, userStorage.getUsers().size());
+        assertEquals(total, filmStorage.getAllFilms().stream().map(Film::getId).distinct().count());
+        assertEquals(total, filmStorage.getFilms(0, total).get(total - 1).getId());
+    }
+
+    @Test
+    public void shouldKeepEveryLikeAddedConcurrentlyWithUpdates() throws Exception {
+        Film film = filmStorage.createFilm(film("Film"));
+        AtomicInteger added = new AtomicInteger();
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < PER_THREAD; i++) {
+                int userId = thread * PER_THREAD + i;
+                if (filmStorage.addLike(film.getId(), userId)) {
+                    added.incrementAndGet();
+                }
+                filmStorage.addLike(film.getId(), userId);
+                if (i % 50 == 0) {
+                    Film replacement = film("Film " + i);
+                    replacement.setId(film.getId());
+                    filmStorage.updateFilm(replacement);
+                }
+                filmStorage.getPopularFilms(10, null, null);
+            }
+        });
+
+        assertEquals(THREADS * PER_THREAD, added.get());
+        assertEquals(THREADS * PER_THREAD, filmStorage.getLikesCounts().get(film.getId()));
+    }
+
+    @Test
+    public void shouldKeepFriendsConsistentUnderConcurrentAddAndDelete() throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < THREADS + 1; i++) {
+            ids.add(userStorage.createUser(user("user" + i)).getId());
+        }
+        int userId = ids.get(0);
+
+        runConcurrently(thread -> {
+            int friendId = ids.get(thread + 1);
+            for (int i = 0; i < PER_THREAD; i++) {
+                userStorage.addFriend(userId, friendId);
+                userStorage.addFriend(friendId, userId);
+                userStorage.getCommonFriends(userId, friendId);
+                if (i < PER_THREAD - 1) {
+                    userStorage.deleteFriend(userId, friendId);
+                }
+            }
+        });
+
+        List<Integer> friends = userStorage.getFriendList(userId).stream()
+                .map(User::getId)
+                .sorted()
+                .collect(Collectors.toList());
+        assertEquals(ids.subList(1, ids.size()), friends);
+        assertThat(userStorage.getFriendList(userId, 0, 5).size()).isEqualTo(5);
+    }
+
+    @Test
+    public void shouldNotLinkFriendsToAUserDeletedConcurrently() throws Exception {
+        int keeperId = userStorage.createUser(user("keeper")).getId();
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < PER_THREAD; i++) {
+            ids.add(userStorage.createUser(user("user" + i)).getId());
+        }
+
+        runConcurrently(thread -> {
+            for (int id : ids) {
+                try {
+                    if (thread % 2 == 0) {
+                        userStorage.addFriend(keeperId, id);
+                        userStorage.addFriend(id, keeperId);
+                    } else {
+                        userStorage.deleteUserById(id);
+                    }
+                } catch (NotFoundException ignored) {
+                    // the user is deleted already
+                }
+            }
+        });
+
+        BinaryWriter snapshot = new BinaryWriter();
+        userStorage.writeSnapshot(snapshot);
+        ByteBuffer buffer = ByteBuffer.wrap(snapshot.toByteArray());
+        BinaryReader in = new BinaryReader(buffer);
+        ModelDecoder decoder = new ModelDecoder(buffer);
+        in.readVarint();
+        List<Integer> friendIds = new ArrayList<>();
+        while (in.readByte() != 0) {
+            assertEquals(keeperId, decoder.readUser().getId());
+            Arrays.stream(decoder.readIds()).forEach(friendIds::add);
+        }
+        assertEquals(List.of(), friendIds);
+    }
+
+    private void runConcurrently(ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            Callable<Void> callable = () -> {
+                start.await();
+                task.run(thread);
+                return null;
+            };
+            futures.add(executor.submit(callable));
+        }
+        start.countDown();
+        for (Future<Void> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+    }
+
+    private static Film film(String name) {
+        return Film.builder()
+                .name(name)
+                .description("Description")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .build();
+    }
+
+    private static User user(String login) {
+        return User.builder()
+                .email(login + "@mail.ru")
+                .login(login)
+                .name(login)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+
+    private interface ThreadTask {
+        void run(int thread);
+    }
+}
@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.storageTest;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.graph.IntAdjacencyStore;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IntAdjacencyStoreTest {
+    private final IntAdjacencyStore store = new IntAdjacencyStore();
+
+    @Test
+    public void shouldKeepNeighboursSortedAndUnique() {
+        assertTrue(store.add(1, 5));
+        assertTrue(store.add(1, 2));
+        assertTrue(store.add(1, 9));
+        assertFalse(store.add(1, 5));
+
+        assertArrayEquals(new int[]{2, 5, 9}, store.neighbours(1));
+        assertEquals(3, store.degree(1));
+        assertEquals(0, store.degree(2));
+        assertTrue(store.contains(1, 9));
+        assertFalse(store.contains(9, 1));
+
+        assertTrue(store.remove(1, 5));
+        assertFalse(store.remove(1, 5));
+        assertArrayEquals(new int[]{2, 9}, store.neighbours(1));
+    }
+
+    @Test
+    public void shouldSliceNeighboursAfterCursor() {
+        for (int i = 1; i <= 10; i++) {
+            store.add(1, i * 10);
+        }
+
+        assertArrayEquals(new int[]{10, 20, 30}, store.neighbours(1, 0, 3));
+        assertArrayEquals(new int[]{40, 50}, store.neighbours(1, 30, 2));
+        assertArrayEquals(new int[]{40, 50}, store.neighbours(1, 35, 2));
+        assertArrayEquals(new int[0], store.neighbours(1, 100, 2));
+        assertArrayEquals(new int[0], store.neighbours(2, 0, 2));
+    }
+
+    @Test
+    public void shouldIntersectNeighbours() {
+        store.add(1, 2);
+        store.add(1, 3);
+        store.add(1, 7);
+        store.add(2, 3);
+        store.add(2, 5);
+        store.add(2, 7);
+
+        assertArrayEquals(new int[]{3, 7}, store.intersect(1, 2));
+        assertArrayEquals(new int[0], store.intersect(1, 4));
+    }
+
+    @Test
+    public void shouldMatchTreeSetUnderRandomAddsAndRemoves() {
+        Random random = new Random(42);
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int i = 0; i < 20_000; i++) {
+            int value = random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), store.remove(1, value));
+            } else {
+                assertEquals(expected.add(value), store.add(1, value));
+            }
+        }
+
+        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), store.neighbours(1));
+        assertEquals(expected.size(), store.degree(1));
+        store.removeNode(1);
+        assertEquals(0, store.degree(1));
+    }
+}
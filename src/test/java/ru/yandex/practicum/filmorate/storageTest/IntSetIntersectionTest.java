@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.storageTest;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.graph.IntSetIntersection;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+public class IntSetIntersectionTest {
+    private final Random random = new Random(7);
+
+    @Test
+    public void shouldAgreeWithTreeSetForEveryStrategy() {
+        int[][] shapes = {
+                {0, 100, 1_000},
+                {5, 5, 10},
+                {50, 5_000, 1_000_000},
+                {2_000, 2_000, 4_000},
+                {3_000, 3_000, 1_000_000},
+                {1, 10_000, 20_000},
+        };
+        for (int[] shape : shapes) {
+            for (int round = 0; round < 20; round++) {
+                int[] a = randomSet(shape[0], shape[2]);
+                int[] b = randomSet(shape[1], shape[2]);
+                int[] expected = expected(a, b);
+
+                assertArrayEquals(expected, IntSetIntersection.intersect(a, b));
+                assertArrayEquals(expected, IntSetIntersection.intersect(b, a));
+                assertArrayEquals(expected, IntSetIntersection.merge(a, b));
+                assertArrayEquals(expected, IntSetIntersection.bitmapAnd(a, b));
+                int[] small = a.length <= b.length ? a : b;
+                assertArrayEquals(expected, IntSetIntersection.gallop(small, small == a ? b : a));
+            }
+        }
+    }
+
+    @Test
+    public void shouldHandleDisjointAndIdenticalSets() {
+        int[] low = {1, 2, 3};
+        int[] high = {10, 20, 30};
+
+        assertArrayEquals(new int[0], IntSetIntersection.intersect(low, high));
+        assertArrayEquals(new int[0], IntSetIntersection.bitmapAnd(low, high));
+        assertArrayEquals(high, IntSetIntersection.intersect(high, high.clone()));
+        assertArrayEquals(new int[]{Integer.MAX_VALUE},
+                IntSetIntersection.bitmapAnd(new int[]{0, Integer.MAX_VALUE}, new int[]{Integer.MAX_VALUE}));
+    }
+
+    private int[] randomSet(int size, int bound) {
+        TreeSet<Integer> set = new TreeSet<>();
+        while (set.size() < size) {
+            set.add(1 + random.nextInt(bound));
+        }
+        return set.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int[] expected(int[] a, int[] b) {
+        TreeSet<Integer> set = new TreeSet<>();
+        for (int value : a) {
+            set.add(value);
+        }
+        TreeSet<Integer> result = new TreeSet<>();
+        for (int value : b) {
+            if (set.contains(value)) {
+                result.add(value);
+            }
+        }
+        return result.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.storageTest;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.graph.LikeCoOccurrence;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LikeCoOccurrenceTest {
+    private final LikeCoOccurrence likes = new LikeCoOccurrence();
+
+    @Test
+    public void shouldScoreFilmsBySummedOverlapOfSimilarUsers() {
+        // user 1 liked films 1 and 2; user 2 shares both, users 3 and 4 share one each,
+        // so film 11 scores 2 + 1, and films 10 and 12 tie at 2
+        like(1, 1, 2);
+        like(2, 1, 2, 10, 11);
+        like(3, 1, 11, 12);
+        like(4, 2, 12);
+        like(5, 13);
+
+        assertArrayEquals(new int[]{11, 10, 12}, likes.recommend(1, 5));
+        assertArrayEquals(new int[]{11}, likes.recommend(1, 1));
+        assertArrayEquals(new int[0], likes.recommend(99, 5));
+        assertEquals(2, likes.likesCount(11));
+    }
+
+    @Test
+    public void shouldFollowLikeAndFilmDeletes() {
+        like(1, 1);
+        like(2, 1, 10, 11);
+
+        assertFalse(likes.addLike(10, 2));
+        assertTrue(likes.deleteLike(10, 2));
+        assertFalse(likes.deleteLike(10, 2));
+        assertArrayEquals(new int[]{11}, likes.recommend(1, 5));
+
+        likes.deleteFilm(11);
+        assertEquals(0, likes.likesCount(11));
+        assertArrayEquals(new int[0], likes.recommend(1, 5));
+
+        likes.deleteFilm(1);
+        assertArrayEquals(new int[0], likes.recommend(2, 5));
+    }
+
+    @Test
+    public void shouldCapPopularFilmsInTheWalk() {
+        int blockbuster = 1;
+        like(1, blockbuster);
+        for (int user = 100; user < 100 + 5_000; user++) {
+            like(user, blockbuster, 1_000 + user % 5);
+        }
+
+        int[] recommended = likes.recommend(1, 10);
+
+        assertEquals(5, recommended.length);
+        for (int film : recommended) {
+            assertTrue(film >= 1_000 && film < 1_005);
+        }
+    }
+
+    private void like(int userId, int... filmIds) {
+        for (int filmId : filmIds) {
+            likes.addLike(filmId, userId);
+        }
+    }
+}
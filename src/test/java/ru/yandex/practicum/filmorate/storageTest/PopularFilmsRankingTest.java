@@ -0,0 +1,167 @@
+package ru.yandex.practicum.filmorate.storageTest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.IncorrectParameterException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.film.impl.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.popular.PopularFilmsRanking;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PopularFilmsRankingTest {
+    private static final int FILMS = 50;
+
+    private InMemoryFilmStorage filmStorage;
+    private PopularFilmsRanking ranking;
+
+    @BeforeEach
+    public void setUp() {
+        filmStorage = new InMemoryFilmStorage();
+        for (int i = 0; i < FILMS; i++) {
+            filmStorage.createFilm(Film.builder()
+                    .name("Film " + i)
+                    .releaseDate(LocalDate.of(2000, 1, 1))
+                    .duration(100)
+                    .build());
+        }
+        filmStorage.addLike(3, 1);
+        filmStorage.addLike(3, 2);
+        filmStorage.addLike(7, 1);
+        ranking = new PopularFilmsRanking(filmStorage);
+        ranking.rebuild();
+    }
+
+    @Test
+    public void shouldRebuildRankingFromStorage() {
+        assertEquals(List.of(3, 7, 1), ranking.getPopularFilmIds(3, null, null));
+    }
+
+    @Test
+    public void shouldUpdateRankingOnLikesAndFilmChanges() {
+        filmStorage.addLike(10, 1);
+        filmStorage.addLike(10, 2);
+        filmStorage.addLike(10, 3);
+        filmStorage.deleteLike(3, 1);
+        filmStorage.deleteLike(1, 1);
+        ranking.removeFilm(7);
+        ranking.addFilm(Film.builder().id(FILMS + 1).build());
+
+        assertEquals(List.of(10, 3, 1, 2), ranking.getPopularFilmIds(4, null, null));
+        assertThat(ranking.getPopularFilmIds(FILMS * 2, null, null).size()).isEqualTo(FILMS);
+    }
+
+    @Test
+    public void shouldRankFilmsWithinGenreAndYearSlices() {
+        Film comedy1999 = filmStorage.createFilm(Film.builder()
+                .name("Comedy")
+                .releaseDate(LocalDate.of(1999, 5, 1))
+                .duration(100)
+                .genres(List.of(new Genre(1, null)))
+                .build());
+        Film drama1999 = filmStorage.createFilm(Film.builder()
+                .name("Drama")
+                .releaseDate(LocalDate.of(1999, 7, 1))
+                .duration(100)
+                .genres(List.of(new Genre(2, null), new Genre(2, null)))
+                .build());
+        ranking.addFilm(comedy1999);
+        ranking.addFilm(drama1999);
+        filmStorage.addLike(drama1999.getId(), 1);
+
+        assertEquals(List.of(drama1999.getId(), comedy1999.getId()), ranking.getPopularFilmIds(10, null, 1999));
+        assertEquals(List.of(comedy1999.getId()), ranking.getPopularFilmIds(10, 1, 1999));
+        assertEquals(List.of(drama1999.getId()), ranking.getPopularFilmIds(10, 2, null));
+        assertEquals(List.of(), ranking.getPopularFilmIds(10, 1, 2000));
+
+        drama1999.setGenres(List.of(new Genre(1, null)));
+        ranking.updateFilm(drama1999);
+        filmStorage.addLike(drama1999.getId(), 2);
+
+        assertEquals(List.of(drama1999.getId(), comedy1999.getId()), ranking.getPopularFilmIds(10, 1, 1999));
+        assertEquals(List.of(), ranking.getPopularFilmIds(10, 2, null));
+        assertEquals(List.of(3, drama1999.getId()), ranking.getPopularFilmIds(2, null, null));
+
+        ranking.removeFilm(comedy1999.getId());
+        assertEquals(List.of(drama1999.getId()), ranking.getPopularFilmIds(10, 1, null));
+    }
+
+    @Test
+    public void shouldTakeLikeCountsAsCommitted() {
+        ranking.setLikes(3, 0);
+        ranking.setLikes(12, 5);
+
+        assertEquals(List.of(12, 7, 1), ranking.getPopularFilmIds(3, null, null));
+        filmStorage.deleteLike(3, 1);
+        assertEquals(List.of(12, 3, 7), ranking.getPopularFilmIds(3, null, null));
+    }
+
+    @Test
+    public void shouldKeepLikesOfAFilmLikedBeforeItIsAdded() {
+        Film film = filmStorage.createFilm(Film.builder()
+                .name("Comedy")
+                .releaseDate(LocalDate.of(1999, 5, 1))
+                .duration(100)
+                .genres(List.of(new Genre(1, null)))
+                .build());
+        filmStorage.addLike(film.getId(), 1);
+        filmStorage.addLike(film.getId(), 2);
+        filmStorage.addLike(film.getId(), 3);
+
+        assertEquals(List.of(film.getId()), ranking.getPopularFilmIds(1, null, null));
+        assertEquals(List.of(), ranking.getPopularFilmIds(10, 1, 1999));
+
+        ranking.addFilm(film);
+
+        assertEquals(List.of(film.getId(), 3), ranking.getPopularFilmIds(2, null, null));
+        assertEquals(List.of(film.getId()), ranking.getPopularFilmIds(10, 1, 1999));
+    }
+
+    @Test
+    public void shouldNotAcceptWrongCount() {
+        assertThrows(IncorrectParameterException.class, () -> ranking.getPopularFilmIds(null, null, null));
+        assertThrows(IncorrectParameterException.class, () -> ranking.getPopularFilmIds(0, null, null));
+    }
+
+    @Test
+    public void shouldKeepRankingConsistentUnderConcurrentLikes() throws InterruptedException {
+        AtomicIntegerArray expected = new AtomicIntegerArray(FILMS + 1);
+        expected.set(3, 2);
+        expected.set(7, 1);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        for (int thread = 0; thread < 16; thread++) {
+            int seed = thread;
+            executor.submit(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 10_000; i++) {
+                    int filmId = 1 + random.nextInt(FILMS);
+                    filmStorage.addLike(filmId, seed * 10_000 + i);
+                    expected.incrementAndGet(filmId);
+                    ranking.getPopularFilmIds(10, null, null);
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+        List<Integer> expectedOrder = IntStream.rangeClosed(1, FILMS).boxed()
+                .sorted(Comparator.<Integer>comparingInt(expected::get).reversed()
+                        .thenComparing(Comparator.naturalOrder()))
+                .collect(Collectors.toList());
+        assertEquals(expectedOrder, ranking.getPopularFilmIds(FILMS, null, null));
+    }
+}
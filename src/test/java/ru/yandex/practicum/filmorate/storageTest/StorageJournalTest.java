@@ -0,0 +1,199 @@
+package ru.yandex.practicum.filmorate.storageTest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.impl.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.search.FilmSearchField;
+import ru.yandex.practicum.filmorate.storage.user.impl.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.wal.StorageJournal;
+import ru.yandex.practicum.filmorate.storage.wal.WriteAheadLog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class StorageJournalTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void shouldRestoreTheStorageFromItsLogAfterACrash() throws IOException {
+        InMemoryFilmStorage filmStorage = filmStorage();
+        InMemoryUserStorage userStorage = userStorage();
+        Film first = filmStorage.createFilm(film("First", 1, 2));
+        Film second = filmStorage.createFilm(film("Second"));
+        Film deleted = filmStorage.createFilm(film("Deleted"));
+        User user = userStorage.createUser(user("user"));
+        User friend = userStorage.createUser(user("friend"));
+        User removed = userStorage.createUser(user("removed"));
+        filmStorage.addLike(second.getId(), user.getId());
+        filmStorage.addLike(second.getId(), friend.getId());
+        filmStorage.addLike(first.getId(), friend.getId());
+        filmStorage.deleteLike(first.getId(), friend.getId());
+        filmStorage.addLike(deleted.getId(), user.getId());
+        filmStorage.deleteFilmById(deleted.getId());
+        Film updated = film("First, extended", 3);
+        updated.setId(first.getId());
+        filmStorage.updateFilm(updated);
+        userStorage.addFriend(user.getId(), friend.getId());
+        userStorage.addFriend(user.getId(), removed.getId());
+        userStorage.addFriend(removed.getId(), user.getId());
+        userStorage.deleteUserById(removed.getId());
+
+        // the storages are dropped without closing their journals
+        InMemoryFilmStorage recoveredFilms = filmStorage();
+        InMemoryUserStorage recoveredUsers = userStorage();
+
+        assertEquals(List.of(second.getId(), first.getId()), ids(recoveredFilms.getPopularFilms(10, null, null)));
+        assertEquals(Map.of(first.getId(), 0, second.getId(), 2), recoveredFilms.getLikesCounts());
+        Film restored = recoveredFilms.getFilmById(first.getId());
+        assertEquals("First, extended", restored.getName());
+        assertEquals(LocalDate.of(2001, 2, 3), restored.getReleaseDate());
+        assertEquals(1, restored.getMpa().getId());
+        assertEquals(List.of(3), restored.getGenres().stream().map(Genre::getId).collect(Collectors.toList()));
+        assertEquals(List.of(first.getId()),
+                ids(recoveredFilms.searchFilms("extended", Set.of(FilmSearchField.TITLE), 10)));
+        assertEquals(List.of(friend.getId()), userIds(recoveredUsers.getFriendList(user.getId())));
+        assertEquals(2, recoveredUsers.getUsers().size());
+        assertThat(recoveredFilms.createFilm(film("Next")).getId()).isEqualTo(deleted.getId() + 1);
+        assertThat(recoveredUsers.createUser(user("next")).getId()).isEqualTo(removed.getId() + 1);
+    }
+
+    @Test
+    public void shouldRecoverFromTheSnapshotAndTheLogWrittenAfterIt() throws IOException {
+        StorageJournal journal = journal();
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage(journal);
+        filmStorage.recover();
+        for (int i = 0; i < 10; i++) {
+            filmStorage.createFilm(film("Film " + i));
+        }
+        filmStorage.addLike(3, 1);
+        journal.checkpoint();
+        filmStorage.addLike(5, 1);
+        filmStorage.addLike(5, 2);
+        filmStorage.deleteFilmById(3);
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(List.of("snapshot-2.bin", "wal-2.log"),
+                    files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList()));
+        }
+        InMemoryFilmStorage recovered = filmStorage();
+        assertEquals(9, recovered.getAllFilms().size());
+        assertEquals(List.of(5), ids(recovered.getPopularFilms(1, null, null)));
+        assertEquals(2, recovered.getLikesCounts().get(5));
+        assertNull(recovered.getLikesCounts().get(3));
+    }
+
+    @Test
+    public void shouldDropOneWayFriendshipsToADeletedUser() throws IOException {
+        InMemoryUserStorage userStorage = userStorage();
+        User follower = userStorage.createUser(user("follower"));
+        User removed = userStorage.createUser(user("removed"));
+        User friend = userStorage.createUser(user("friend"));
+        userStorage.addFriend(follower.getId(), removed.getId());
+        userStorage.addFriend(follower.getId(), friend.getId());
+        userStorage.addFriend(removed.getId(), friend.getId());
+
+        userStorage.deleteUserById(removed.getId());
+
+        assertEquals(List.of(friend.getId()), userIds(userStorage.getFriendList(follower.getId())));
+        InMemoryUserStorage recovered = userStorage();
+        assertEquals(List.of(friend.getId()), userIds(recovered.getFriendList(follower.getId())));
+        assertEquals(List.of(), userIds(recovered.getFriendList(friend.getId())));
+        // the reverse edges are rebuilt on recovery
+        recovered.addFriend(friend.getId(), follower.getId());
+        recovered.deleteUserById(follower.getId());
+        assertEquals(List.of(), userIds(recovered.getFriendList(friend.getId())));
+    }
+
+    @Test
+    public void shouldDropATornRecordAtTheEndOfTheLog() throws IOException {
+        Path file = directory.resolve("torn.log");
+        try (WriteAheadLog wal = WriteAheadLog.open(file, record -> {
+        })) {
+            for (byte i = 1; i <= 3; i++) {
+                wal.append(new byte[]{i, i, i}, 3);
+            }
+        }
+        // the third record is 11 bytes long and starts at 22; damage its last byte
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{9}), 32);
+        }
+
+        List<Byte> replayed = new ArrayList<>();
+        try (WriteAheadLog wal = WriteAheadLog.open(file, record -> replayed.add(record.get(0)))) {
+            assertEquals(22, wal.size());
+            wal.append(new byte[]{4}, 1);
+        }
+        replayed.clear();
+        WriteAheadLog.replay(file, record -> replayed.add(record.get(0)));
+        assertEquals(List.of((byte) 1, (byte) 2, (byte) 4), replayed);
+    }
+
+    private StorageJournal journal() {
+        return new StorageJournal(directory, StorageJournal.Durability.GROUP_COMMIT, Long.MAX_VALUE);
+    }
+
+    private InMemoryFilmStorage filmStorage() throws IOException {
+        InMemoryFilmStorage storage = new InMemoryFilmStorage(journal());
+        storage.recover();
+        return storage;
+    }
+
+    private InMemoryUserStorage userStorage() throws IOException {
+        InMemoryUserStorage storage = new InMemoryUserStorage(
+                new StorageJournal(directory.resolve("users"), StorageJournal.Durability.ASYNC, Long.MAX_VALUE));
+        storage.recover();
+        return storage;
+    }
+
+    private static Film film(String name, Integer... genreIds) {
+        List<Genre> genres = new ArrayList<>();
+        for (Integer genreId : genreIds) {
+            genres.add(new Genre(genreId, null));
+        }
+        return Film.builder()
+                .name(name)
+                .description("About " + name)
+                .releaseDate(LocalDate.of(2001, 2, 3))
+                .duration(100)
+                .mpa(new Mpa(1, "G"))
+                .genres(genres)
+                .build();
+    }
+
+    private static User user(String login) {
+        return User.builder()
+                .email(login + "@mail.ru")
+                .login(login)
+                .name(null)
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+    }
+
+    private static List<Integer> ids(List<Film> films) {
+        return films.stream().map(Film::getId).collect(Collectors.toList());
+    }
+
+    private static List<Integer> userIds(List<User> users) {
+        return users.stream().map(User::getId).collect(Collectors.toList());
+    }
+}